@@ -0,0 +1,77 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.purchase.PurchaseDetail;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the time to append a signed purchase to the journal of PurchaseOutbox and to acknowledge it,
+ * without the requests to the save server.
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PurchaseOutboxBenchmark {
+    private Path path;
+    private PurchaseOutbox outbox;
+    private JSONObject body;
+    private long id;
+
+    @Setup
+    public void setup() throws Exception {
+        SavePurchaseClient client = new SavePurchaseClient(
+                NetWorkType.testnet,
+                "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276",
+                "0x85EeBb1289c0d0C17eFCbadB40AeF0a1c3b46714",
+                new InMemoryHttpTransport(215115, 10)
+        );
+        body = client.makeNewPurchaseBody(
+                "P000001",
+                1700000000,
+                0,
+                "10000",
+                "10000",
+                "php",
+                "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                "",
+                new PurchaseDetail[]{new PurchaseDetail("2020051310000000", "10000", 10)},
+                215115
+        );
+        path = Files.createTempFile("outbox", ".journal");
+        outbox = new PurchaseOutbox(client, path);
+        id = 0;
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        outbox.close();
+        Files.deleteIfExists(path);
+    }
+
+    @Benchmark
+    public void appendAndAcknowledge() throws Exception {
+        outbox.append(PurchaseOutbox.NEW, body);
+        outbox.acknowledge(id++);
+    }
+}
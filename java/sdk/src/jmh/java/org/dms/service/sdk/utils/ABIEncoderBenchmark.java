@@ -0,0 +1,104 @@
+package org.dms.service.sdk.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the messages of CommonUtils with the encoding through web3j types.
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ABIEncoderBenchmark {
+    private final String purchaseId = "P0001000000000123";
+    private final BigInteger amount = new BigInteger("100000000000000000000", 10);
+    private final BigInteger loyalty = new BigInteger("5000000000000000000", 10);
+    private final String currency = "krw";
+    private final String shopId = "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874";
+    private final String account = "0x64D111eA9763c93a003cef491941A011B8df5a49";
+    private final String phone = "0x8f01f960dd25ac5b4f6b4e5cd0a5a1bc4c1d7a1ed2c4da1c8b56e2ee2bcb1ca0";
+    private final String sender = "0x3FE8D00143bd0eAd2397D48ba0E31E5E1268dBfb";
+    private final String terminalId = "POS001";
+
+    @Benchmark
+    public byte[] openNewPaymentWeb3j() {
+        String value = TypeEncoder.encode(
+                new DynamicStruct(
+                        new Utf8String("OpenNewPayment"),
+                        new Utf8String(purchaseId),
+                        new Uint256(amount),
+                        new Utf8String(currency),
+                        new Bytes32(Numeric.hexStringToByteArray(shopId)),
+                        new Address(account),
+                        new Utf8String(terminalId)
+                )
+        );
+        return Hash.sha3(Numeric.hexStringToByteArray(value));
+    }
+
+    @Benchmark
+    public byte[] openNewPayment() {
+        return CommonUtils.getOpenNewPaymentMessage(purchaseId, amount, currency, shopId, account, terminalId);
+    }
+
+    @Benchmark
+    public byte[] newPurchaseDataWeb3j() {
+        String value = TypeEncoder.encode(
+                new DynamicStruct(
+                        new Utf8String(purchaseId),
+                        new Uint256(amount),
+                        new Uint256(loyalty),
+                        new Utf8String(currency),
+                        new Bytes32(Numeric.hexStringToByteArray(shopId)),
+                        new Address(account),
+                        new Bytes32(Numeric.hexStringToByteArray(phone)),
+                        new Address(sender),
+                        new Uint256(215115)
+                )
+        );
+        return Hash.sha3(Numeric.hexStringToByteArray(value));
+    }
+
+    @Benchmark
+    public byte[] newPurchaseData() {
+        return CommonUtils.getNewPurchaseDataMessage(purchaseId, amount, loyalty, currency, shopId, account, phone, sender, 215115);
+    }
+
+    @Benchmark
+    public String phoneHashWeb3j() {
+        String value = TypeEncoder.encode(
+                new DynamicStruct(
+                        new Utf8String("BOSagora Phone Number"),
+                        new Utf8String("+82 10-1000-2000")
+                )
+        );
+        return Numeric.toHexString(Hash.sha3(Numeric.hexStringToByteArray(value)));
+    }
+
+    @Benchmark
+    public String phoneHash() {
+        return CommonUtils.getPhoneHash("+82 10-1000-2000");
+    }
+}
@@ -0,0 +1,66 @@
+package org.dms.service.sdk.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single pass parser of Amount with the general parser, and the formatting with cached powers of ten.
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountBenchmark {
+    @Param({"1", "1.45", "1,234.5678", "100000000.000000000000000001"})
+    public String value;
+
+    private Amount amount;
+
+    @Setup
+    public void setup() {
+        amount = Amount.make(value);
+    }
+
+    @Benchmark
+    public Amount makeGeneral() {
+        return Amount.parseGeneral(value, 18);
+    }
+
+    @Benchmark
+    public Amount make() {
+        return Amount.make(value, 18);
+    }
+
+    @Benchmark
+    public String toAmountStringPow() {
+        BigInteger factor = BigInteger.valueOf(10).pow(amount.getDecimals());
+        BigInteger integral = amount.getValue().divide(factor);
+        BigInteger decimal = amount.getValue().subtract(integral.multiply(factor));
+        String integral_string = integral.toString();
+        String decimals_string = decimal.toString();
+        if (decimals_string.length() < amount.getDecimals()) {
+            decimals_string = "0".repeat(Math.max(0, amount.getDecimals() - decimals_string.length())) + decimals_string;
+        }
+        return integral_string + "." + decimals_string;
+    }
+
+    @Benchmark
+    public String toAmountString() {
+        return amount.toAmountString();
+    }
+}
@@ -0,0 +1,48 @@
+package org.dms.service.sdk.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.web3j.crypto.ECKeyPair;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the signer bound to a key with Sign.signPrefixedMessage of web3j.
+ * Run with `./gradlew jmh`.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSignerBenchmark {
+    private final ECKeyPair keyPair = ECKeyPair.create(new BigInteger("70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", 16));
+    private final MessageSigner signer = new MessageSigner(keyPair);
+    private final byte[] message = CommonUtils.getOpenNewPaymentMessage(
+            "P0001000000000123",
+            new BigInteger("100000000000000000000", 10),
+            "krw",
+            "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+            "0x64D111eA9763c93a003cef491941A011B8df5a49",
+            "POS001"
+    );
+
+    @Benchmark
+    public byte[] signWeb3j() {
+        return BatchSigner.signMessage(keyPair, message);
+    }
+
+    @Benchmark
+    public byte[] sign() {
+        return signer.sign(message);
+    }
+}
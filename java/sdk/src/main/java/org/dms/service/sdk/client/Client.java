@@ -2,18 +2,30 @@ package org.dms.service.sdk.client;
 
 import org.dms.service.sdk.data.NetWorkType;
 import org.dms.service.sdk.data.UserBalance;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.PooledHttpTransport;
+import org.dms.service.sdk.utils.BalanceCache;
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.dms.service.sdk.utils.RequestCoalescer;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
- * The client class of decentralized loyalty services
+ * The client class of decentralized loyalty services.
+ * A client is safe to share between threads.
  */
 public class Client {
     /**
@@ -27,13 +39,49 @@ public class Client {
     /**
      * The Chain ID of side chain
      */
-    protected int chainId;
+    protected volatile int chainId;
+    /**
+     * Shares the lookup of the chain ID between the threads that ask at the same time
+     */
+    private final RequestCoalescer<String, Integer> chainIdRequests = new RequestCoalescer<>();
+    /**
+     * The cache of the balances, null when balances are not cached
+     */
+    protected volatile BalanceCache balanceCache = null;
+    /**
+     * The HTTP transport used to communicate with the API servers
+     */
+    protected final IHttpTransport transport;
+    /**
+     * The executor on which asynchronous operations build messages, sign and parse responses
+     */
+    protected volatile Executor executor;
+
+    /**
+     * Parser of the response body used by asynchronous operations
+     * @param <T> Type of the result
+     */
+    @FunctionalInterface
+    protected interface ResponseParser<T> {
+        T parse(@NotNull InputStream input) throws Exception;
+    }
 
     /**
      * Constructor
      * @param network Type of network (mainnet, testnet, localhost)
      */
     public Client(NetWorkType network) {
+        this(network, PooledHttpTransport.getDefault());
+    }
+
+    /**
+     * Constructor
+     * @param network Type of network (mainnet, testnet, localhost)
+     * @param transport The HTTP transport used to communicate with the API servers
+     */
+    public Client(NetWorkType network, @NotNull IHttpTransport transport) {
+        this.transport = transport;
+        this.executor = ForkJoinPool.commonPool();
         if (network == NetWorkType.localhost) {
             relayEndpoint = "http://127.0.0.1:7070";
             saveEndpoint = "http://127.0.0.1:3030";
@@ -45,7 +93,6 @@ public class Client {
             saveEndpoint = "https://save.test.acccoin.io";
         }
         chainId = 0;
-
     }
 
     /**
@@ -56,16 +103,23 @@ public class Client {
      */
     @NotNull
     protected static JSONObject getResponse(@NotNull HttpURLConnection conn) throws Exception {
-        BufferedReader br = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        return getResponse(conn.getInputStream());
+    }
 
-        String inputLine;
-        StringBuilder sb = new StringBuilder();
-        while ((inputLine = br.readLine()) != null) {
-            sb.append(inputLine);
+    /**
+     * Translate HTTP response data into JSON objects and deliver
+     * @param input The stream of the response body. It is closed after reading.
+     * @return JSON objects
+     * @throws Exception Error during HTTP communication
+     */
+    @NotNull
+    protected static JSONObject getResponse(@NotNull InputStream input) throws Exception {
+        String response;
+        try (InputStream in = input) {
+            response = new String(in.readAllBytes(), StandardCharsets.UTF_8);
         }
-        br.close();
 
-        JSONObject jObject = new JSONObject(sb.toString());
+        JSONObject jObject = new JSONObject(response);
         int code = jObject.getInt("code");
         if (code != 0) {
             String errorMessage;
@@ -90,6 +144,16 @@ public class Client {
         return getResponse(conn).getJSONObject("data");
     }
 
+    /**
+     * The data inside the JSON object that was responded is extracted as an object.
+     * @param input The stream of the response body
+     * @return JSON objects
+     * @throws Exception Error during HTTP communication
+     */
+    protected static JSONObject getJSONObjectResponse(@NotNull InputStream input) throws Exception {
+        return getResponse(input).getJSONObject("data");
+    }
+
     /**
      * The data inside the JSON object that was responded is extracted as an array.
      * @param conn HttpURLConnection
@@ -100,6 +164,72 @@ public class Client {
         return getResponse(conn).getJSONArray("data");
     }
 
+    /**
+     * The data inside the JSON object that was responded is extracted as an array.
+     * @param input The stream of the response body
+     * @return JSON objects
+     * @throws Exception Error during HTTP communication
+     */
+    protected static JSONArray getJSONArrayResponse(@NotNull InputStream input) throws Exception {
+        return getResponse(input).getJSONArray("data");
+    }
+
+    /**
+     * The data inside the JSON object that was responded is decoded while the stream is read,
+     * without building the JSON tree of the whole response.
+     * @param input The stream of the response body. It is closed after reading.
+     * @param decoder Decoder of the data
+     * @return The decoded data
+     * @throws Exception Error during HTTP communication
+     */
+    protected static <T> T getDataResponse(@NotNull InputStream input, @NotNull JSONStreamReader.Decoder<T> decoder) throws Exception {
+        Integer code = null;
+        String message = null;
+        boolean hasData = false;
+        T data = null;
+        try (JSONStreamReader reader = new JSONStreamReader(input)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "code":
+                        code = reader.nextInt();
+                        break;
+                    case "data":
+                        if ((code != null && code != 0) || reader.peek() == JSONStreamReader.Token.NULL) {
+                            reader.skipValue();
+                        } else {
+                            data = decoder.decode(reader);
+                            hasData = true;
+                        }
+                        break;
+                    case "error":
+                        if (reader.peek() == JSONStreamReader.Token.OBJECT) {
+                            reader.beginObject();
+                            while (reader.hasNext()) {
+                                if (reader.nextName().equals("message")) message = reader.nextString();
+                                else reader.skipValue();
+                            }
+                            reader.endObject();
+                        } else {
+                            reader.skipValue();
+                        }
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+
+        if (code == null) throw new JSONException("JSONObject[\"code\"] not found.");
+        if (code != 0) {
+            String errorMessage = (message != null) ? String.format("%s (%d)", message, code) : String.format("%d", code);
+            throw new Exception("Internal Error : " + errorMessage);
+        }
+        if (!hasData) throw new JSONException("JSONObject[\"data\"] not found.");
+        return data;
+    }
+
     /**
      * Create an HTTP connection
      * @param uri URL
@@ -117,6 +247,129 @@ public class Client {
         return conn;
     }
 
+    /**
+     * Send a GET request through the transport
+     * @param uri URL
+     * @return The stream of the response body
+     * @throws Exception Error during HTTP communication
+     */
+    protected InputStream get(@NotNull URI uri) throws Exception {
+        return transport.request("GET", uri, null);
+    }
+
+    /**
+     * Send a POST request through the transport
+     * @param uri URL
+     * @param body JSON object to be sent
+     * @return The stream of the response body
+     * @throws Exception Error during HTTP communication
+     */
+    protected InputStream post(@NotNull URI uri, @NotNull JSONObject body) throws Exception {
+        return transport.request("POST", uri, body.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Send a GET request through the transport without blocking the calling thread
+     * @param uri Builds the URL. An error while building it fails the future.
+     * @param parser Parser of the response body, called on the executor
+     * @return The future of the parsed response
+     */
+    protected <T> CompletableFuture<T> getAsync(@NotNull Callable<URI> uri, @NotNull ResponseParser<T> parser) {
+        URI target;
+        try {
+            target = uri.call();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return parseAsync(transport.requestAsync("GET", target, null), parser);
+    }
+
+    /**
+     * Send a POST request through the transport without blocking the calling thread
+     * @param uri Builds the URL. An error while building it fails the future.
+     * @param body JSON object to be sent
+     * @param parser Parser of the response body, called on the executor
+     * @return The future of the parsed response
+     */
+    protected <T> CompletableFuture<T> postAsync(@NotNull Callable<URI> uri, @NotNull JSONObject body, @NotNull ResponseParser<T> parser) {
+        URI target;
+        try {
+            target = uri.call();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return parseAsync(transport.requestAsync("POST", target, body.toString().getBytes(StandardCharsets.UTF_8)), parser);
+    }
+
+    private <T> CompletableFuture<T> parseAsync(@NotNull CompletableFuture<InputStream> response, @NotNull ResponseParser<T> parser) {
+        CompletableFuture<T> parsed = response.thenApplyAsync(input -> {
+            try {
+                return parser.parse(input);
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+        // When the parsed future is cancelled the parser is skipped, so the response body is closed here
+        parsed.whenComplete((value, error) -> {
+            if (error != null) response.thenAccept(Client::closeQuietly);
+        });
+        return parsed;
+    }
+
+    private static void closeQuietly(@NotNull InputStream input) {
+        try {
+            input.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Run a task on the executor. It is used to build and sign messages without blocking the calling thread.
+     * @param task The task to run
+     * @return The future of the result
+     */
+    protected <T> CompletableFuture<T> supplyAsync(@NotNull Callable<T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.call();
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Provide the executor on which asynchronous operations are processed
+     */
+    public Executor getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Change the executor on which asynchronous operations are processed
+     * @param executor The executor, ForkJoinPool.commonPool() is used by default
+     */
+    public void setExecutor(@NotNull Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Provide the cache of the balances
+     * @return BalanceCache, or null if balances are not cached
+     */
+    public BalanceCache getBalanceCache() {
+        return this.balanceCache;
+    }
+
+    /**
+     * Cache the balances read with this client. The cache should also be the listener of a TaskEventCollector,
+     * so the balance of an account is read again after its payments.
+     * @param balanceCache BalanceCache, or null to stop caching
+     */
+    public void setBalanceCache(BalanceCache balanceCache) {
+        this.balanceCache = balanceCache;
+    }
+
     /**
      * Provide the ID of the chain
      * @return chain ID
@@ -124,14 +377,35 @@ public class Client {
      * @throws Exception Error during HTTP communication
      */
     public long getChainId() throws Exception {
-        if (chainId != 0) {
-            return chainId;
+        int id = chainId;
+        if (id != 0) {
+            return id;
         }
         URI uri = new URI(relayEndpoint + "/v1/chain/side/id");
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        chainId = data.getInt("chainId");
-        return chainId;
+        return chainIdRequests.get("chainId", () -> {
+            // Set before the request is removed, so a caller arriving afterward does not send another one
+            int value = getDataResponse(get(uri), JSONStreamReader.field("chainId", JSONStreamReader::nextInt));
+            chainId = value;
+            return value;
+        });
+    }
+
+    /**
+     * Provide the ID of the chain without blocking the calling thread
+     * @return The future of the chain ID
+     */
+    public CompletableFuture<Long> getChainIdAsync() {
+        int id = chainId;
+        if (id != 0) {
+            return CompletableFuture.completedFuture((long) id);
+        }
+        return chainIdRequests.getAsync("chainId", key -> getAsync(() -> new URI(relayEndpoint + "/v1/chain/side/id"),
+                input -> {
+                    int value = getDataResponse(input, JSONStreamReader.field("chainId", JSONStreamReader::nextInt));
+                    chainId = value;
+                    return value;
+                }
+        )).thenApply(value -> (long) value);
     }
 
 
@@ -143,10 +417,38 @@ public class Client {
      * @throws Exception Error during HTTP communication
      */
     public UserBalance getBalancePhone(@NotNull String phoneNumber) throws Exception {
+        BalanceCache cache = this.balanceCache;
+        if (cache != null) {
+            UserBalance cached = cache.getPhone(phoneNumber);
+            if (cached != null) return cached;
+        }
+        long stamp = (cache != null) ? cache.getStamp() : 0;
         URI uri = new URI(relayEndpoint + "/v1/ledger/balance/phone/" + phoneNumber.trim().replace(" ", "%20"));
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return new UserBalance(data.getJSONObject("point"), data.getJSONObject("token"));
+        UserBalance balance = getDataResponse(get(uri), UserBalance::fromJSONReader);
+        if (cache != null) cache.putPhone(phoneNumber, balance, stamp);
+        return balance;
+    }
+
+    /**
+     * Provide the user's points and token balance information without blocking the calling thread
+     * @param phoneNumber User's phone number
+     * @return The future of UserBalance
+     */
+    public CompletableFuture<UserBalance> getBalancePhoneAsync(@NotNull String phoneNumber) {
+        BalanceCache cache = this.balanceCache;
+        if (cache == null) {
+            return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/balance/phone/" + phoneNumber.trim().replace(" ", "%20")),
+                    input -> getDataResponse(input, UserBalance::fromJSONReader));
+        }
+        UserBalance cached = cache.getPhone(phoneNumber);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        long stamp = cache.getStamp();
+        return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/balance/phone/" + phoneNumber.trim().replace(" ", "%20")),
+                input -> getDataResponse(input, UserBalance::fromJSONReader))
+                .thenApply(balance -> {
+                    cache.putPhone(phoneNumber, balance, stamp);
+                    return balance;
+                });
     }
 
     /**
@@ -157,10 +459,38 @@ public class Client {
      * @throws Exception Error during HTTP communication
      */
     public UserBalance getBalancePhoneHash(@NotNull String phoneHash) throws Exception {
+        BalanceCache cache = this.balanceCache;
+        if (cache != null) {
+            UserBalance cached = cache.getPhoneHash(phoneHash);
+            if (cached != null) return cached;
+        }
+        long stamp = (cache != null) ? cache.getStamp() : 0;
         URI uri = new URI(relayEndpoint + "/v1/ledger/balance/phoneHash/" + phoneHash.trim());
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return new UserBalance(data.getJSONObject("point"), data.getJSONObject("token"));
+        UserBalance balance = getDataResponse(get(uri), UserBalance::fromJSONReader);
+        if (cache != null) cache.putPhoneHash(phoneHash, balance, stamp);
+        return balance;
+    }
+
+    /**
+     * Provide the user's points and token balance information without blocking the calling thread
+     * @param phoneHash User's phone number hash
+     * @return The future of UserBalance
+     */
+    public CompletableFuture<UserBalance> getBalancePhoneHashAsync(@NotNull String phoneHash) {
+        BalanceCache cache = this.balanceCache;
+        if (cache == null) {
+            return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/balance/phoneHash/" + phoneHash.trim()),
+                    input -> getDataResponse(input, UserBalance::fromJSONReader));
+        }
+        UserBalance cached = cache.getPhoneHash(phoneHash);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        long stamp = cache.getStamp();
+        return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/balance/phoneHash/" + phoneHash.trim()),
+                input -> getDataResponse(input, UserBalance::fromJSONReader))
+                .thenApply(balance -> {
+                    cache.putPhoneHash(phoneHash, balance, stamp);
+                    return balance;
+                });
     }
 
     /**
@@ -171,10 +501,38 @@ public class Client {
      * @throws Exception Error during HTTP communication
      */
     public UserBalance getBalanceAccount(@NotNull String account) throws Exception {
+        BalanceCache cache = this.balanceCache;
+        if (cache != null) {
+            UserBalance cached = cache.getAccount(account);
+            if (cached != null) return cached;
+        }
+        long stamp = (cache != null) ? cache.getStamp() : 0;
         URI uri = new URI(relayEndpoint + "/v1/ledger/balance/account/" + account.trim());
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return new UserBalance(data.getJSONObject("point"), data.getJSONObject("token"));
+        UserBalance balance = getDataResponse(get(uri), UserBalance::fromJSONReader);
+        if (cache != null) cache.putAccount(account, balance, stamp);
+        return balance;
+    }
+
+    /**
+     * Provide the user's points and token balance information without blocking the calling thread
+     * @param account User's wallet address
+     * @return The future of UserBalance
+     */
+    public CompletableFuture<UserBalance> getBalanceAccountAsync(@NotNull String account) {
+        BalanceCache cache = this.balanceCache;
+        if (cache == null) {
+            return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/balance/account/" + account.trim()),
+                    input -> getDataResponse(input, UserBalance::fromJSONReader));
+        }
+        UserBalance cached = cache.getAccount(account);
+        if (cached != null) return CompletableFuture.completedFuture(cached);
+        long stamp = cache.getStamp();
+        return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/balance/account/" + account.trim()),
+                input -> getDataResponse(input, UserBalance::fromJSONReader))
+                .thenApply(balance -> {
+                    cache.putAccount(account, balance, stamp);
+                    return balance;
+                });
     }
 
     /**
@@ -187,8 +545,16 @@ public class Client {
      */
     public long getLedgerNonceOf(@NotNull String account) throws Exception {
         URI uri = new URI(relayEndpoint + "/v1/ledger/nonce/" + account.trim());
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getInt("nonce");
+        return getDataResponse(get(uri), JSONStreamReader.field("nonce", JSONStreamReader::nextLong));
+    }
+
+    /**
+     * Provide a nonce corresponding to the user's wallet address without blocking the calling thread
+     * @param account User's wallet address
+     * @return The future of the nonce
+     */
+    public CompletableFuture<Long> getLedgerNonceOfAsync(@NotNull String account) {
+        return getAsync(() -> new URI(relayEndpoint + "/v1/ledger/nonce/" + account.trim()),
+                input -> getDataResponse(input, JSONStreamReader.field("nonce", JSONStreamReader::nextLong)));
     }
 }
@@ -3,7 +3,12 @@ package org.dms.service.sdk.client;
 import org.dms.service.sdk.data.NetWorkType;
 import org.dms.service.sdk.data.payment.PaymentInfo;
 import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.TaskEvent;
 import org.dms.service.sdk.utils.CommonUtils;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.PooledHttpTransport;
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.dms.service.sdk.utils.MessageSigner;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -11,11 +16,11 @@ import org.web3j.crypto.Credentials;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.utils.Numeric;
 
-import java.io.OutputStream;
 import java.math.BigInteger;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The client that processes payments using points.
@@ -26,6 +31,10 @@ public class PaymentClient extends Client {
      * Message repeater's wallet for payment
      */
     protected final Credentials credentials;
+    /**
+     * Signer bound to the key of the credentials
+     */
+    protected final MessageSigner signer;
 
     /**
      * Constructor
@@ -33,8 +42,19 @@ public class PaymentClient extends Client {
      * @param privateKey The private key used in the payment
      */
     public PaymentClient(NetWorkType network, String privateKey) {
-        super(network);
+        this(network, privateKey, PooledHttpTransport.getDefault());
+    }
+
+    /**
+     * Constructor
+     * @param network Type of network (mainnet, testnet, localhost)
+     * @param privateKey The private key used in the payment
+     * @param transport The HTTP transport used to communicate with the API servers
+     */
+    public PaymentClient(NetWorkType network, String privateKey, IHttpTransport transport) {
+        super(network, transport);
         this.credentials = Credentials.create(ECKeyPair.create(new BigInteger(Numeric.cleanHexPrefix(privateKey), 16)));
+        this.signer = new MessageSigner(this.credentials.getEcKeyPair());
     }
 
     public String getAddress() {
@@ -49,25 +69,22 @@ public class PaymentClient extends Client {
      */
     public PaymentInfo getPaymentInfo(@NotNull String account, BigInteger amount, String currency) throws Exception {
         URI uri = new URI(String.format("%s/v2/payment/info?account=%s&amount=%s&currency=%s", relayEndpoint, account.trim(), amount.toString(), currency.trim()));
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return new PaymentInfo(
-                data.getString("account"),
-                new BigInteger(data.getString("amount"), 10),
-                data.getString("currency"),
-                new BigInteger(data.getString("balance"), 10),
-                new BigInteger(data.getString("balanceValue"), 10),
-                new BigInteger(data.getString("paidPoint"), 10),
-                new BigInteger(data.getString("paidValue"), 10),
-                new BigInteger(data.getString("feePoint"), 10),
-                new BigInteger(data.getString("feeValue"), 10),
-                new BigInteger(data.getString("totalPoint"), 10),
-                new BigInteger(data.getString("totalValue"), 10)
-        );
+        return getDataResponse(get(uri), PaymentInfo::fromJSONReader);
     }
 
     /**
-     * Start a new payment
+     * It calculates the amount required for payment without blocking the calling thread.
+     * @param account   User's wallet address or temporary address
+     * @param amount    Purchase amount
+     * @param currency  Currency symbol (case letter)
+     */
+    public CompletableFuture<PaymentInfo> getPaymentInfoAsync(@NotNull String account, BigInteger amount, String currency) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/payment/info?account=%s&amount=%s&currency=%s", relayEndpoint, account.trim(), amount.toString(), currency.trim()));
+        return getAsync(uri, input -> getDataResponse(input, PaymentInfo::fromJSONReader));
+    }
+
+    /**
+     * Build the signed request body to start a new payment
      * @param purchaseId    Purchase ID
      * @param account       User's wallet address or temporary address
      * @param amount        Purchase amount
@@ -75,7 +92,7 @@ public class PaymentClient extends Client {
      * @param shopId        Shop ID
      * @param terminalId    Terminal ID
      */
-    public PaymentTaskItem openNewPayment(String purchaseId, String account, BigInteger amount, String currency, String shopId, String terminalId) throws Exception {
+    protected JSONObject makeOpenNewPaymentBody(String purchaseId, String account, BigInteger amount, String currency, String shopId, String terminalId) {
         byte[] message = CommonUtils.getOpenNewPaymentMessage(
                 purchaseId,
                 amount,
@@ -84,9 +101,7 @@ public class PaymentClient extends Client {
                 account,
                 terminalId
         );
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-        URI uri = new URI(String.format("%s/v2/payment/new/open", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("purchaseId", purchaseId);
@@ -96,90 +111,160 @@ public class PaymentClient extends Client {
         body.put("account", account);
         body.put("terminalId", terminalId);
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Start a new payment
+     * @param purchaseId    Purchase ID
+     * @param account       User's wallet address or temporary address
+     * @param amount        Purchase amount
+     * @param currency      Currency symbol (case letter)
+     * @param shopId        Shop ID
+     * @param terminalId    Terminal ID
+     */
+    public PaymentTaskItem openNewPayment(String purchaseId, String account, BigInteger amount, String currency, String shopId, String terminalId) throws Exception {
+        JSONObject body = makeOpenNewPaymentBody(purchaseId, account, amount, currency, shopId, terminalId);
+        URI uri = new URI(String.format("%s/v2/payment/new/open", relayEndpoint));
+        return getDataResponse(post(uri, body), PaymentTaskItem::fromJSONReader);
+    }
 
-        return PaymentTaskItem.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Start a new payment without blocking the calling thread
+     * @param purchaseId    Purchase ID
+     * @param account       User's wallet address or temporary address
+     * @param amount        Purchase amount
+     * @param currency      Currency symbol (case letter)
+     * @param shopId        Shop ID
+     * @param terminalId    Terminal ID
+     */
+    public CompletableFuture<PaymentTaskItem> openNewPaymentAsync(String purchaseId, String account, BigInteger amount, String currency, String shopId, String terminalId) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/payment/new/open", relayEndpoint));
+        return supplyAsync(() -> makeOpenNewPaymentBody(purchaseId, account, amount, currency, shopId, terminalId))
+                .thenCompose(body -> postAsync(uri, body, input -> getDataResponse(input, PaymentTaskItem::fromJSONReader)));
     }
 
     /**
-     * Close the new payment
+     * Build the signed request body to close the new payment
      * @param paymentId Payment ID
      * @param confirm If this value is true, the payment will be terminated normally, otherwise the payment will be canceled.
      */
-    public PaymentTaskItem closeNewPayment(String paymentId, Boolean confirm) throws Exception {
+    protected JSONObject makeCloseNewPaymentBody(String paymentId, Boolean confirm) {
         byte[] message = CommonUtils.getCloseNewPaymentMessage(
                 paymentId,
                 confirm
         );
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-        URI uri = new URI(String.format("%s/v2/payment/new/close", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("paymentId", paymentId);
         body.put("confirm", confirm);
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Close the new payment
+     * @param paymentId Payment ID
+     * @param confirm If this value is true, the payment will be terminated normally, otherwise the payment will be canceled.
+     */
+    public PaymentTaskItem closeNewPayment(String paymentId, Boolean confirm) throws Exception {
+        JSONObject body = makeCloseNewPaymentBody(paymentId, confirm);
+        URI uri = new URI(String.format("%s/v2/payment/new/close", relayEndpoint));
+        return getDataResponse(post(uri, body), PaymentTaskItem::fromJSONReader);
+    }
 
-        return PaymentTaskItem.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Close the new payment without blocking the calling thread
+     * @param paymentId Payment ID
+     * @param confirm If this value is true, the payment will be terminated normally, otherwise the payment will be canceled.
+     */
+    public CompletableFuture<PaymentTaskItem> closeNewPaymentAsync(String paymentId, Boolean confirm) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/payment/new/close", relayEndpoint));
+        return supplyAsync(() -> makeCloseNewPaymentBody(paymentId, confirm))
+                .thenCompose(body -> postAsync(uri, body, input -> getDataResponse(input, PaymentTaskItem::fromJSONReader)));
     }
 
     /**
-     * Start processing cancellation of previously completed new payments
+     * Build the signed request body to start processing cancellation of previously completed new payments
      * @param paymentId  Payment ID
      * @param terminalId Terminal ID
      */
-    public PaymentTaskItem openCancelPayment(String paymentId, String terminalId) throws Exception {
+    protected JSONObject makeOpenCancelPaymentBody(String paymentId, String terminalId) {
         byte[] message = CommonUtils.getOpenCancelPaymentMessage(
                 paymentId,
                 terminalId
         );
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-        URI uri = new URI(String.format("%s/v2/payment/cancel/open", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("paymentId", paymentId);
         body.put("terminalId", terminalId);
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Start processing cancellation of previously completed new payments
+     * @param paymentId  Payment ID
+     * @param terminalId Terminal ID
+     */
+    public PaymentTaskItem openCancelPayment(String paymentId, String terminalId) throws Exception {
+        JSONObject body = makeOpenCancelPaymentBody(paymentId, terminalId);
+        URI uri = new URI(String.format("%s/v2/payment/cancel/open", relayEndpoint));
+        return getDataResponse(post(uri, body), PaymentTaskItem::fromJSONReader);
+    }
 
-        return PaymentTaskItem.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Start processing cancellation of previously completed new payments without blocking the calling thread
+     * @param paymentId  Payment ID
+     * @param terminalId Terminal ID
+     */
+    public CompletableFuture<PaymentTaskItem> openCancelPaymentAsync(String paymentId, String terminalId) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/payment/cancel/open", relayEndpoint));
+        return supplyAsync(() -> makeOpenCancelPaymentBody(paymentId, terminalId))
+                .thenCompose(body -> postAsync(uri, body, input -> getDataResponse(input, PaymentTaskItem::fromJSONReader)));
     }
 
     /**
-     * Close the cancellation payment
+     * Build the signed request body to close the cancellation payment
      * @param paymentId Payment ID
      * @param confirm If this value is true, the payment will be terminated normally, otherwise the payment will be canceled.
      */
-    public PaymentTaskItem closeCancelPayment(String paymentId, Boolean confirm) throws Exception {
+    protected JSONObject makeCloseCancelPaymentBody(String paymentId, Boolean confirm) {
         byte[] message = CommonUtils.getCloseCancelPaymentMessage(
                 paymentId,
                 confirm
         );
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-        URI uri = new URI(String.format("%s/v2/payment/cancel/close", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("paymentId", paymentId);
         body.put("confirm", confirm);
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Close the cancellation payment
+     * @param paymentId Payment ID
+     * @param confirm If this value is true, the payment will be terminated normally, otherwise the payment will be canceled.
+     */
+    public PaymentTaskItem closeCancelPayment(String paymentId, Boolean confirm) throws Exception {
+        JSONObject body = makeCloseCancelPaymentBody(paymentId, confirm);
+        URI uri = new URI(String.format("%s/v2/payment/cancel/close", relayEndpoint));
+        return getDataResponse(post(uri, body), PaymentTaskItem::fromJSONReader);
+    }
 
-        return PaymentTaskItem.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Close the cancellation payment without blocking the calling thread
+     * @param paymentId Payment ID
+     * @param confirm If this value is true, the payment will be terminated normally, otherwise the payment will be canceled.
+     */
+    public CompletableFuture<PaymentTaskItem> closeCancelPaymentAsync(String paymentId, Boolean confirm) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/payment/cancel/close", relayEndpoint));
+        return supplyAsync(() -> makeCloseCancelPaymentBody(paymentId, confirm))
+                .thenCompose(body -> postAsync(uri, body, input -> getDataResponse(input, PaymentTaskItem::fromJSONReader)));
     }
 
     /**
@@ -188,21 +273,53 @@ public class PaymentClient extends Client {
      */
     public PaymentTaskItem getPaymentItem(@NotNull String paymentId) throws Exception {
         URI uri = new URI(String.format("%s/v2/payment/item?paymentId=%s", relayEndpoint, paymentId.trim()));
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
+        return getDataResponse(get(uri), PaymentTaskItem::fromJSONReader);
+    }
 
-        return PaymentTaskItem.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Provide detailed information on the payment without blocking the calling thread
+     * @param paymentId Payment ID
+     */
+    public CompletableFuture<PaymentTaskItem> getPaymentItemAsync(@NotNull String paymentId) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/payment/item?paymentId=%s", relayEndpoint, paymentId.trim()));
+        return getAsync(uri, input -> getDataResponse(input, PaymentTaskItem::fromJSONReader));
     }
 
     public long getLatestTaskSequence() throws Exception {
         URI uri = new URI(relayEndpoint + "/v1/task/sequence/latest");
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getLong("sequence");
+        return getDataResponse(get(uri), JSONStreamReader.field("sequence", JSONStreamReader::nextLong));
+    }
+
+    public CompletableFuture<Long> getLatestTaskSequenceAsync() {
+        Callable<URI> uri = () -> new URI(relayEndpoint + "/v1/task/sequence/latest");
+        return getAsync(uri, input -> getDataResponse(input, JSONStreamReader.field("sequence", JSONStreamReader::nextLong)));
     }
 
     public JSONArray getTasks(long sequence) throws Exception {
         URI uri = new URI(relayEndpoint + "/v1/task/list/" + String.valueOf(sequence));
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        return getJSONArrayResponse(conn);
+        return getJSONArrayResponse(get(uri));
+    }
+
+    public CompletableFuture<JSONArray> getTasksAsync(long sequence) {
+        Callable<URI> uri = () -> new URI(relayEndpoint + "/v1/task/list/" + String.valueOf(sequence));
+        return getAsync(uri, Client::getJSONArrayResponse);
+    }
+
+    /**
+     * Provide the tasks registered after the sequence, decoded while the response is read
+     * @param sequence The last sequence already received
+     */
+    public List<TaskEvent> getTaskEvents(long sequence) throws Exception {
+        URI uri = new URI(relayEndpoint + "/v1/task/list/" + String.valueOf(sequence));
+        return getDataResponse(get(uri), JSONStreamReader.list(TaskEvent::fromJSONReader));
+    }
+
+    /**
+     * Provide the tasks registered after the sequence without blocking the calling thread
+     * @param sequence The last sequence already received
+     */
+    public CompletableFuture<List<TaskEvent>> getTaskEventsAsync(long sequence) {
+        Callable<URI> uri = () -> new URI(relayEndpoint + "/v1/task/list/" + String.valueOf(sequence));
+        return getAsync(uri, input -> getDataResponse(input, JSONStreamReader.list(TaskEvent::fromJSONReader)));
     }
 }
@@ -0,0 +1,356 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.NonceManager;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Provides points to many receivers listed in a file of `receiver,amount` lines.
+ * A receiver is a wallet address or a phone number, and the amount is written in points, like `1_000.5`.
+ * Lines are read one at a time, optionally at a limited rate, and a bounded number of them are signed ahead in parallel.
+ * The relay server checks the nonce of the provider strictly, so the requests are sent one after another in the order
+ * of their nonces. A line signed ahead with a nonce that turned out wrong is signed again before it is sent.
+ * Each result is appended to a journal after the response, and the run fails when the journal can not be written. When the same input is run again with the same journal,
+ * the lines that were already sent are skipped, and the lines that the relay server rejected are sent again.
+ * Delivery is at least once: a line whose request was in flight when the process stopped has no result
+ * and is sent again, so its receiver may be provided twice.
+ * A request that failed without an answer from the relay server, such as a timeout, may have been processed.
+ * Its line is journaled as unknown and is not sent again, check the receiver before sending it by hand.
+ */
+public class PointDistributor {
+    /**
+     * Counts of the processed lines
+     */
+    public static class Result {
+        public long total;
+        public long sent;
+        public long failed;
+        /**
+         * The lines whose request failed without an answer from the relay server
+         */
+        public long unknown;
+        public long skipped;
+        public long elapsed;
+
+        /**
+         * Provide the number of lines sent per second
+         */
+        public double getThroughput() {
+            return (this.elapsed > 0) ? this.sent * 1000.0 / this.elapsed : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("total = %d, sent = %d, failed = %d, unknown = %d, skipped = %d, elapsed = %d ms, throughput = %.1f/s",
+                    this.total, this.sent, this.failed, this.unknown, this.skipped, this.elapsed, this.getThroughput());
+        }
+    }
+
+    private static final String SENT = "S";
+    private static final String FAILED = "F";
+    private static final String UNKNOWN = "U";
+
+    private final ProviderClient client;
+    private final String provider;
+    private final int concurrency;
+    private final long interval;
+
+    /**
+     * A line to send, signed ahead with the nonce it is expected to take
+     */
+    private static final class Line {
+        final int id;
+        final boolean phone;
+        /**
+         * Wallet address or hash of the phone number
+         */
+        final String receiver;
+        final BigInteger amount;
+        long nonce = -1;
+        CompletableFuture<JSONObject> signed;
+        volatile boolean posted;
+
+        Line(int id, boolean phone, String receiver, BigInteger amount) {
+            this.id = id;
+            this.phone = phone;
+            this.receiver = receiver;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * Predicts the nonces of the lines that are read while the previous ones are sent
+     */
+    private final class Sequencer {
+        private final String account = client.getAddress();
+        private final long chainId;
+        /**
+         * The nonce of the next line to send, -1 when it is not known
+         */
+        private long expected = -1;
+        /**
+         * The number of lines read and not sent yet
+         */
+        private int queued;
+
+        Sequencer(long chainId) {
+            this.chainId = chainId;
+        }
+
+        /**
+         * Sign a line ahead on the executor of the client, when its nonce can be predicted
+         */
+        synchronized void prepare(@NotNull Line line) {
+            if (this.expected >= 0) {
+                long nonce = this.expected + this.queued;
+                line.nonce = nonce;
+                line.signed = client.supplyAsync(() -> this.sign(line, nonce));
+            }
+            this.queued++;
+        }
+
+        /**
+         * Send a line with the next nonce, after the previous line was answered.
+         * After a failure the nonce is requested again, since the relay server may not have used it.
+         */
+        CompletableFuture<String> send(@NotNull Line line) {
+            NonceManager nonces = client.getNonceManager();
+            return nonces.nextAsync(this.account).handle((nonce, error) -> {
+                synchronized (this) {
+                    this.queued--;
+                    this.expected = (error == null) ? nonce + 1 : -1;
+                }
+                if (error != null) return CompletableFuture.<String>failedFuture(error);
+                CompletableFuture<JSONObject> body = (line.signed != null && line.nonce == nonce)
+                        ? line.signed
+                        : client.supplyAsync(() -> this.sign(line, nonce));
+                return body.thenCompose(value -> {
+                    line.posted = true;
+                    return client.postProvideAsync(line.phone, value);
+                });
+            }).thenCompose(future -> future).whenComplete((txHash, error) -> {
+                if (error == null) return;
+                nonces.resync(this.account);
+                synchronized (this) {
+                    this.expected = -1;
+                }
+            });
+        }
+
+        private JSONObject sign(@NotNull Line line, long nonce) {
+            return line.phone
+                    ? client.makeProvideToPhoneHashBody(provider, line.receiver, line.amount, nonce, this.chainId)
+                    : client.makeProvideToAddressBody(provider, line.receiver, line.amount, nonce, this.chainId);
+        }
+    }
+
+    /**
+     * Constructor providing the points of the registered wallet with 8 lines signed ahead and no rate limit
+     * @param client The client of the provider
+     */
+    public PointDistributor(@NotNull ProviderClient client) {
+        this(client, client.getAddress(), 8, 0);
+    }
+
+    /**
+     * Constructor
+     * @param client The client of the provider
+     * @param provider Wallet address of the resource provider
+     * @param concurrency Maximum number of lines signed ahead of the request in progress
+     * @param rate Maximum number of requests per second, 0 for no limit
+     */
+    public PointDistributor(@NotNull ProviderClient client, @NotNull String provider, int concurrency, double rate) {
+        if (concurrency < 1 || rate < 0) throw new IllegalArgumentException("Invalid concurrency or rate");
+        this.client = client;
+        this.provider = provider;
+        this.concurrency = concurrency;
+        this.interval = (rate > 0) ? (long) (1_000_000_000L / rate) : 0;
+    }
+
+    /**
+     * Provide points to the receivers of a file
+     * @param input File of `receiver,amount` lines
+     * @param journal File of the results, it is created when missing
+     * @return Counts of the processed lines
+     * @throws Exception Error while reading or writing
+     */
+    @NotNull
+    public Result run(@NotNull Path input, @NotNull Path journal) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            return run(reader.lines().iterator(), journal);
+        }
+    }
+
+    /**
+     * Provide points to the receivers
+     * @param input `receiver,amount` lines. Empty lines and lines starting with `#` are ignored but still counted as lines.
+     * @param journal File of the results, it is created when missing
+     * @return Counts of the processed lines, the summary of the run
+     * @throws Exception Error while writing, or the thread was interrupted. The lines in flight are journaled first.
+     */
+    @NotNull
+    public Result run(@NotNull Iterator<String> input, @NotNull Path journal) throws Exception {
+        BitSet done = loadJournal(journal);
+        // Fails before any line when the relay server can not be reached
+        Sequencer sequencer = new Sequencer(this.client.getChainId());
+        Result result = new Result();
+        Semaphore permits = new Semaphore(this.concurrency);
+        AtomicReference<IOException> journalError = new AtomicReference<>();
+        CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        long start = System.nanoTime();
+        long next = start;
+        try (BufferedWriter writer = Files.newBufferedWriter(journal, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            try {
+                for (int index = 0; input.hasNext() && journalError.get() == null; index++) {
+                    String line = input.next().trim();
+                    if (line.isEmpty() || line.startsWith("#")) continue;
+                    result.total++;
+                    if (done.get(index)) {
+                        result.skipped++;
+                        continue;
+                    }
+
+                    if (this.interval > 0) {
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) LockSupport.parkNanos(wait);
+                        next = Math.max(next, System.nanoTime() - this.interval) + this.interval;
+                    }
+                    permits.acquire();
+
+                    Line parsed;
+                    try {
+                        parsed = this.parse(index, line);
+                    } catch (Exception e) {
+                        // An invalid line fails before a nonce is taken
+                        this.journal(writer, result, journalError, index, null, e, false);
+                        permits.release();
+                        continue;
+                    }
+                    sequencer.prepare(parsed);
+                    tail = tail.thenCompose(ignored -> {
+                        IOException error = journalError.get();
+                        return (error != null) ? CompletableFuture.<String>failedFuture(error) : sequencer.send(parsed);
+                    }).handle((txHash, error) -> {
+                        // The lines after a failed journal write are not sent, so they have no result
+                        if (journalError.get() == null) this.journal(writer, result, journalError, parsed.id, txHash, error, parsed.posted);
+                        permits.release();
+                        return null;
+                    });
+                    if (Thread.interrupted()) throw new InterruptedException();
+                }
+            } finally {
+                // Wait for the requests in flight so that their results are journaled
+                permits.acquireUninterruptibly(this.concurrency);
+                result.elapsed = (System.nanoTime() - start) / 1_000_000L;
+            }
+        }
+        if (journalError.get() != null) throw journalError.get();
+        return result;
+    }
+
+    /**
+     * Read a `receiver,amount` line. The phone number of a receiver is hashed, so an invalid number fails here.
+     */
+    @NotNull
+    private Line parse(int index, @NotNull String line) throws Exception {
+        int separator = line.indexOf(',');
+        if (separator < 0) throw new Exception("Invalid line");
+        String receiver = line.substring(0, separator).trim();
+        BigInteger amount = Amount.make(line.substring(separator + 1).trim()).getValue();
+        if (receiver.startsWith("0x")) return new Line(index, false, receiver, amount);
+        return new Line(index, true, this.client.getPhoneCache().getPhoneHash(receiver), amount);
+    }
+
+    /**
+     * Append the result of a line to the journal, and count it once it is written.
+     * A write that fails is kept to stop the run.
+     */
+    private void journal(@NotNull BufferedWriter writer, @NotNull Result result, @NotNull AtomicReference<IOException> journalError,
+                         int id, String txHash, Throwable error, boolean posted) {
+        synchronized (result) {
+            try {
+                if (error == null) {
+                    writer.write(SENT + "," + id + "," + txHash + "\n");
+                    writer.flush();
+                    result.sent++;
+                } else if (!posted || isRejected(error)) {
+                    writer.write(FAILED + "," + id + "," + getMessage(error) + "\n");
+                    writer.flush();
+                    result.failed++;
+                } else {
+                    writer.write(UNKNOWN + "," + id + "," + getMessage(error) + "\n");
+                    writer.flush();
+                    result.unknown++;
+                }
+            } catch (IOException e) {
+                journalError.compareAndSet(null, e);
+            }
+        }
+    }
+
+    /**
+     * Read the lines that are not sent again, those that were sent or whose result is unknown.
+     * A line that was cut by a crash is ignored.
+     */
+    @NotNull
+    private static BitSet loadJournal(@NotNull Path journal) throws Exception {
+        BitSet done = new BitSet();
+        if (!Files.exists(journal)) return done;
+        try (BufferedReader reader = Files.newBufferedReader(journal, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",", 3);
+                if (fields.length < 3 || !(fields[0].equals(SENT) || fields[0].equals(UNKNOWN)) || fields[2].isEmpty()) continue;
+                try {
+                    done.set(Integer.parseInt(fields[1]));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Check if the relay server answered with an error, so the request was not processed.
+     * An HTTP status of 4xx is a rejection too, except 408 and 429 which may come before or after processing.
+     */
+    private static boolean isRejected(@NotNull Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        String message = error.getMessage();
+        if (message == null) return false;
+        if (message.startsWith("Internal Error : ")) return true;
+        String prefix = "Server returned HTTP response code: ";
+        if (!message.startsWith(prefix) || message.length() < prefix.length() + 3) return false;
+        try {
+            int status = Integer.parseInt(message.substring(prefix.length(), prefix.length() + 3));
+            return status >= 400 && status < 500 && status != 408 && status != 429;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    @NotNull
+    private static String getMessage(@NotNull Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        String message = error.getMessage();
+        return (message != null) ? message.replace('\n', ' ') : error.getClass().getSimpleName();
+    }
+}
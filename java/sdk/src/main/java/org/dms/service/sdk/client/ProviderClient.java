@@ -2,17 +2,24 @@ package org.dms.service.sdk.client;
 
 import org.dms.service.sdk.data.NetWorkType;
 import org.dms.service.sdk.utils.CommonUtils;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.PooledHttpTransport;
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.dms.service.sdk.utils.MessageSigner;
+import org.dms.service.sdk.utils.NonceManager;
+import org.dms.service.sdk.utils.PhoneNumberCache;
+import org.dms.service.sdk.utils.RequestCoalescer;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 import org.web3j.crypto.Credentials;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.utils.Numeric;
 
-import java.io.OutputStream;
 import java.math.BigInteger;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 /**
  * The client that is needed to provide a point to the user.
@@ -23,6 +30,34 @@ public class ProviderClient extends Client {
      * Message repeater's wallet for providing
      */
     protected final Credentials credentials;
+    /**
+     * Signer bound to the key of the credentials
+     */
+    protected final MessageSigner signer;
+    /**
+     * Cache of the international phone numbers and their hashes
+     */
+    protected volatile PhoneNumberCache phoneCache = PhoneNumberCache.getDefault();
+    /**
+     * Shares the lookups of the agents between the threads that ask at the same time
+     */
+    private final RequestCoalescer<String, String> agentRequests = new RequestCoalescer<>();
+    /**
+     * Shares the lookups of the provider status between the threads that ask at the same time
+     */
+    private final RequestCoalescer<String, Boolean> providerStatusRequests = new RequestCoalescer<>();
+    /**
+     * The nonces of the registered wallet(this.wallet), requested once and then incremented locally
+     */
+    protected final NonceManager nonceManager;
+
+    /**
+     * A request signed with a nonce
+     */
+    @FunctionalInterface
+    protected interface SignedRequest<T> {
+        T send(long nonce) throws Exception;
+    }
 
     /**
      * Constructor
@@ -30,55 +65,179 @@ public class ProviderClient extends Client {
      * @param privateKey The private key used in the providing
      */
     public ProviderClient(NetWorkType network, String privateKey) {
-        super(network);
+        this(network, privateKey, PooledHttpTransport.getDefault());
+    }
+
+    /**
+     * Constructor
+     * @param network Type of network (mainnet, testnet, localhost)
+     * @param privateKey The private key used in the providing
+     * @param transport The HTTP transport used to communicate with the API servers
+     */
+    public ProviderClient(NetWorkType network, String privateKey, IHttpTransport transport) {
+        super(network, transport);
         this.credentials = Credentials.create(ECKeyPair.create(new BigInteger(Numeric.cleanHexPrefix(privateKey), 16)));
+        this.signer = new MessageSigner(this.credentials.getEcKeyPair());
+        this.nonceManager = new NonceManager(this::getLedgerNonceOfAsync);
     }
 
     public String getAddress() {
         return this.credentials.getAddress();
     }
 
+    public PhoneNumberCache getPhoneCache() {
+        return this.phoneCache;
+    }
+
+    /**
+     * Change the cache of the phone numbers, the cache shared by all clients is used by default
+     * @param phoneCache PhoneNumberCache
+     */
+    public void setPhoneCache(@NotNull PhoneNumberCache phoneCache) {
+        this.phoneCache = phoneCache;
+    }
+
+    /**
+     * Provide the nonces of the registered wallet(this.wallet)
+     * @return NonceManager
+     */
+    public NonceManager getNonceManager() {
+        return this.nonceManager;
+    }
+
+    /**
+     * Send a request signed with the next nonce of the registered wallet(this.wallet).
+     * If the relay server rejects the nonce, the nonce is requested again and the request is signed and sent once more.
+     * Other errors keep the local nonces, since the nonce may have been used and other requests may be in flight.
+     * @param request Signs and sends the request
+     */
+    protected <T> T sendWithNonce(@NotNull SignedRequest<T> request) throws Exception {
+        String account = this.credentials.getAddress();
+        for (int attempt = 0; ; attempt++) {
+            long nonce = this.nonceManager.next(account);
+            try {
+                return request.send(nonce);
+            } catch (Exception e) {
+                if (!NonceManager.isNonceError(e)) throw e;
+                this.nonceManager.resync(account);
+                if (attempt > 0) throw e;
+            }
+        }
+    }
+
+    /**
+     * Send a request signed with the next nonce of the registered wallet(this.wallet) without blocking the calling thread.
+     * The request should be handed to the transport before the function returns,
+     * so that the requests reach the relay server in the order of their nonces.
+     * @param request Signs and sends the request
+     */
+    protected <T> CompletableFuture<T> sendWithNonceAsync(@NotNull Function<Long, CompletableFuture<T>> request) {
+        return this.sendWithNonceAsync(request, 0);
+    }
+
+    private <T> CompletableFuture<T> sendWithNonceAsync(@NotNull Function<Long, CompletableFuture<T>> request, int attempt) {
+        String account = this.credentials.getAddress();
+        return this.nonceManager.nextAsync(account)
+                .thenCompose(request)
+                .handle((value, error) -> {
+                    if (error == null) return CompletableFuture.completedFuture(value);
+                    if (!NonceManager.isNonceError(error)) return CompletableFuture.<T>failedFuture(error);
+                    this.nonceManager.resync(account);
+                    if (attempt == 0) return this.sendWithNonceAsync(request, attempt + 1);
+                    return CompletableFuture.<T>failedFuture(error);
+                })
+                .thenCompose(future -> future);
+    }
+
+    /**
+     * Build the signed body and post it on the calling thread, returning the hash of the transaction
+     * @param uri Builds the URL
+     * @param body Builds and signs the body
+     */
+    private CompletableFuture<String> postSignedAsync(@NotNull Callable<URI> uri, @NotNull Callable<JSONObject> body) {
+        JSONObject value;
+        try {
+            value = body.call();
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return postAsync(uri, value, input -> getDataResponse(input, JSONStreamReader.field("txHash", JSONStreamReader::nextString)));
+    }
+
+    /**
+     * Post a body signed by makeProvideToAddressBody or makeProvideToPhoneHashBody without blocking the calling thread
+     * @param phone True if the receiver of the body is the hash of a phone number
+     * @param body The signed body
+     */
+    CompletableFuture<String> postProvideAsync(boolean phone, @NotNull JSONObject body) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v1/provider/send/%s", relayEndpoint, phone ? "phoneHash" : "account"));
+        return postSignedAsync(uri, () -> body);
+    }
+
     /**
      * Check if the `account` can provide points
      * @param account Wallet address
      */
     public Boolean isProvider(@NotNull String account) throws Exception {
         URI uri = new URI(relayEndpoint + "/v1/provider/status/" + account.trim());
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getBoolean("enable");
+        return providerStatusRequests.get(account.trim(), () -> getDataResponse(get(uri), JSONStreamReader.field("enable", JSONStreamReader::nextBoolean)));
     }
 
     /**
-     * Register the address of the assistant who directly delivers points for the registered wallet(this.wallet).
-     * The assistant's wallet can be registered and used on the server.
-     * The assistant does not have the authority to deposit and withdraw, only has the authority to provide points.
+     * Check if the `account` can provide points without blocking the calling thread
+     * @param account Wallet address
+     */
+    public CompletableFuture<Boolean> isProviderAsync(@NotNull String account) {
+        Callable<URI> uri = () -> new URI(relayEndpoint + "/v1/provider/status/" + account.trim());
+        return providerStatusRequests.getAsync(account.trim(), key -> getAsync(uri, input -> getDataResponse(input, JSONStreamReader.field("enable", JSONStreamReader::nextBoolean))));
+    }
+
+    /**
+     * Build the signed request body to register the agent
      * @param account Address of wallet for the agent
+     * @param nonce Nonce of the registered wallet(this.wallet)
+     * @param chainId The Chain ID of side chain
      */
-    public String setAgent(String account) throws Exception {
-        long nonce = this.getLedgerNonceOf(this.credentials.getAddress());
+    protected JSONObject makeSetAgentBody(String account, long nonce, long chainId) {
         byte[] message = CommonUtils.getRegisterAssistanceMessage(
                 this.credentials.getAddress(),
                 account,
                 nonce,
-                this.getChainId()
+                chainId
         );
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-
-        URI uri = new URI(String.format("%s/v1/provider/assistant/register", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("provider", this.credentials.getAddress());
         body.put("assistant", account);
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Register the address of the assistant who directly delivers points for the registered wallet(this.wallet).
+     * The assistant's wallet can be registered and used on the server.
+     * The assistant does not have the authority to deposit and withdraw, only has the authority to provide points.
+     * @param account Address of wallet for the agent
+     */
+    public String setAgent(String account) throws Exception {
+        long chainId = this.getChainId();
+        URI uri = new URI(String.format("%s/v1/provider/assistant/register", relayEndpoint));
+        return sendWithNonce(nonce -> {
+            JSONObject body = makeSetAgentBody(account, nonce, chainId);
+            return getDataResponse(post(uri, body), JSONStreamReader.field("txHash", JSONStreamReader::nextString));
+        });
+    }
 
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getString("txHash");
+    /**
+     * Register the address of the assistant without blocking the calling thread.
+     * @param account Address of wallet for the agent
+     */
+    public CompletableFuture<String> setAgentAsync(String account) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v1/provider/assistant/register", relayEndpoint));
+        return this.getChainIdAsync().thenCompose(chainId -> sendWithNonceAsync(nonce ->
+                postSignedAsync(uri, () -> makeSetAgentBody(account, nonce, chainId))
+        ));
     }
 
     /**
@@ -87,9 +246,7 @@ public class ProviderClient extends Client {
      */
     public String getAgent(String provider) throws Exception {
         URI uri = new URI(String.format("%s/v1/provider/assistant/%s", relayEndpoint, provider));
-        HttpURLConnection conn = getHttpURLConnection(uri, "GET");
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getString("assistant");
+        return agentRequests.get(provider, () -> getDataResponse(get(uri), JSONStreamReader.field("assistant", JSONStreamReader::nextString)));
     }
 
     /**
@@ -100,63 +257,137 @@ public class ProviderClient extends Client {
     }
 
     /**
-     * Points are provided to the specified address.
-     * Registered wallets are used for signatures. Registered wallet(this.wallet) may be providers or helpers.
+     * Provide the agent's address without blocking the calling thread
+     * @param provider Provider's wallet address
+     */
+    public CompletableFuture<String> getAgentAsync(String provider) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v1/provider/assistant/%s", relayEndpoint, provider));
+        return agentRequests.getAsync(provider, key -> getAsync(uri, input -> getDataResponse(input, JSONStreamReader.field("assistant", JSONStreamReader::nextString))));
+    }
+
+    /**
+     * Provide the agent's address for the registered wallet(this.wallet) without blocking the calling thread
+     */
+    public CompletableFuture<String> getAgentAsync() {
+        return this.getAgentAsync(this.credentials.getAddress());
+    }
+
+    /**
+     * Build the signed request body to provide points to the specified address
      * @param provider - wallet address of the resource provider
      * @param receiver - wallet address of the person who will receive the points
      * @param amount - amount of points
+     * @param nonce - nonce of the registered wallet(this.wallet)
+     * @param chainId - the Chain ID of side chain
      */
-    public String provideToAddress(String provider, String receiver, BigInteger amount) throws Exception {
-        long nonce = this.getLedgerNonceOf(this.credentials.getAddress());
-        long chainId = this.getChainId();
+    protected JSONObject makeProvideToAddressBody(String provider, String receiver, BigInteger amount, long nonce, long chainId) {
         byte[] message = CommonUtils.getProvidePointToAddressMessage(provider, receiver, amount, nonce, chainId);
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-
-        URI uri = new URI(String.format("%s/v1/provider/send/account", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("provider", provider);
         body.put("receiver", receiver);
         body.put("amount", amount.toString());
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Points are provided to the specified address.
+     * Registered wallets are used for signatures. Registered wallet(this.wallet) may be providers or helpers.
+     * @param provider - wallet address of the resource provider
+     * @param receiver - wallet address of the person who will receive the points
+     * @param amount - amount of points
+     */
+    public String provideToAddress(String provider, String receiver, BigInteger amount) throws Exception {
+        long chainId = this.getChainId();
+        URI uri = new URI(String.format("%s/v1/provider/send/account", relayEndpoint));
+        return sendWithNonce(nonce -> {
+            JSONObject body = makeProvideToAddressBody(provider, receiver, amount, nonce, chainId);
+            return getDataResponse(post(uri, body), JSONStreamReader.field("txHash", JSONStreamReader::nextString));
+        });
+    }
 
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getString("txHash");
+    /**
+     * Points are provided to the specified address without blocking the calling thread.
+     * @param provider - wallet address of the resource provider
+     * @param receiver - wallet address of the person who will receive the points
+     * @param amount - amount of points
+     */
+    public CompletableFuture<String> provideToAddressAsync(String provider, String receiver, BigInteger amount) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v1/provider/send/account", relayEndpoint));
+        return this.getChainIdAsync().thenCompose(chainId -> sendWithNonceAsync(nonce ->
+                postSignedAsync(uri, () -> makeProvideToAddressBody(provider, receiver, amount, nonce, chainId))
+        ));
     }
 
     /**
-     * Points are provided to the specified phone number.
-     * Registered wallets are used for signatures. Registered wallet(this.wallet) may be providers or helpers.
+     * Build the signed request body to provide points to the specified phone number
      * @param provider - wallet address of the resource provider
      * @param receiver - phone number of the person who will receive the points
      * @param amount - amount of points
+     * @param nonce - nonce of the registered wallet(this.wallet)
+     * @param chainId - the Chain ID of side chain
      */
-    public String provideToPhone(String provider, String receiver, BigInteger amount) throws Exception {
-        long nonce = this.getLedgerNonceOf(this.credentials.getAddress());
-        long chainId = this.getChainId();
-        String phoneHash = CommonUtils.getPhoneHash(CommonUtils.getInternationalPhoneNumber(receiver));
-        byte[] message = CommonUtils.getProvidePointToPhoneMessage(provider, phoneHash, amount, nonce, chainId);
-        String signature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
+    protected JSONObject makeProvideToPhoneBody(String provider, String receiver, BigInteger amount, long nonce, long chainId) throws Exception {
+        return makeProvideToPhoneHashBody(provider, this.phoneCache.getPhoneHash(receiver), amount, nonce, chainId);
+    }
 
-        URI uri = new URI(String.format("%s/v1/provider/send/phoneHash", relayEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+    /**
+     * Build the signed request body to provide points to the hash of a phone number
+     * @param provider - wallet address of the resource provider
+     * @param phoneHash - hash of the phone number of the person who will receive the points
+     * @param amount - amount of points
+     * @param nonce - nonce of the registered wallet(this.wallet)
+     * @param chainId - the Chain ID of side chain
+     */
+    protected JSONObject makeProvideToPhoneHashBody(String provider, String phoneHash, BigInteger amount, long nonce, long chainId) {
+        byte[] message = CommonUtils.getProvidePointToPhoneMessage(provider, phoneHash, amount, nonce, chainId);
+        String signature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
         body.put("provider", provider);
         body.put("receiver", phoneHash);
         body.put("amount", amount.toString());
         body.put("signature", signature);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Points are provided to the specified phone number.
+     * Registered wallets are used for signatures. Registered wallet(this.wallet) may be providers or helpers.
+     * @param provider - wallet address of the resource provider
+     * @param receiver - phone number of the person who will receive the points
+     * @param amount - amount of points
+     */
+    public String provideToPhone(String provider, String receiver, BigInteger amount) throws Exception {
+        // An invalid phone number fails before a nonce is taken
+        String phoneHash = this.phoneCache.getPhoneHash(receiver);
+        long chainId = this.getChainId();
+        URI uri = new URI(String.format("%s/v1/provider/send/phoneHash", relayEndpoint));
+        return sendWithNonce(nonce -> {
+            JSONObject body = makeProvideToPhoneHashBody(provider, phoneHash, amount, nonce, chainId);
+            return getDataResponse(post(uri, body), JSONStreamReader.field("txHash", JSONStreamReader::nextString));
+        });
+    }
 
-        JSONObject data = getJSONObjectResponse(conn);
-        return data.getString("txHash");
+    /**
+     * Points are provided to the specified phone number without blocking the calling thread.
+     * @param provider - wallet address of the resource provider
+     * @param receiver - phone number of the person who will receive the points
+     * @param amount - amount of points
+     */
+    public CompletableFuture<String> provideToPhoneAsync(String provider, String receiver, BigInteger amount) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v1/provider/send/phoneHash", relayEndpoint));
+        // An invalid phone number fails before a nonce is taken
+        String phoneHash;
+        try {
+            phoneHash = this.phoneCache.getPhoneHash(receiver);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return this.getChainIdAsync().thenCompose(chainId -> sendWithNonceAsync(nonce ->
+                postSignedAsync(uri, () -> makeProvideToPhoneHashBody(provider, phoneHash, amount, nonce, chainId))
+        ));
     }
 }
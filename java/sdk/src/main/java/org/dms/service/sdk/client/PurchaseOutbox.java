@@ -0,0 +1,599 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.data.purchase.PurchaseDetail;
+import org.dms.service.sdk.data.purchase.ResponseSavePurchase;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A durable outbox of the purchases sent to the save server.
+ * The signed request bodies are appended to a memory-mapped journal before they are sent, so they are kept
+ * when the process dies. The journal is forced to the disk by a background thread at most once per sync interval,
+ * which commits all the entries appended in the meantime together.
+ * A drainer sends the entries with a bounded number of requests at once. An entry is acknowledged in the journal
+ * when the save server responds, and sent again after a delay when the request failed before a response.
+ * The entries of the same purchase are sent one after another, so a cancellation is sent only after its purchase
+ * was answered.
+ * When the outbox is started, the entries that were not acknowledged are sent again.
+ * The journal is compacted when it is full, or cleared when every entry was acknowledged.
+ * The journal is forced to the disk and compacted outside the lock of the outbox, so the entries are appended
+ * and acknowledged in the meantime.
+ */
+public class PurchaseOutbox implements Closeable {
+    static final byte NEW = 1;
+    static final byte CANCEL = 2;
+    private static final byte ACK = 3;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_HEADER_SIZE = 17;
+    private static final long CHECK = 0x0B7B0B7B0B7B0B7BL;
+    private static final long MAX_RETRY_DELAY = 30_000;
+
+    private static final class Entry {
+        final long id;
+        final byte kind;
+        final byte[] payload;
+        final String purchaseId;
+        final CompletableFuture<ResponseSavePurchase> future = new CompletableFuture<>();
+        int attempts;
+
+        Entry(long id, byte kind, byte[] payload, String purchaseId) {
+            this.id = id;
+            this.kind = kind;
+            this.payload = payload;
+            this.purchaseId = purchaseId;
+        }
+    }
+
+    private final SavePurchaseClient client;
+    private final Path path;
+    private final int capacity;
+    private final long syncInterval;
+    private final int concurrency;
+    private final long retryDelay;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long generation;
+    private int position;
+    private long nextId;
+    private boolean dirty;
+    private final LinkedHashMap<Long, Entry> pending = new LinkedHashMap<>();
+    /**
+     * The entries that were not acknowledged, by purchase in the order they were appended.
+     * Only the first entry of a purchase is queued for sending.
+     */
+    private final LinkedHashMap<String, ArrayDeque<Entry>> purchases = new LinkedHashMap<>();
+
+    /**
+     * Held while the journal is compacted, so one compaction runs at a time
+     */
+    private final Object compaction = new Object();
+    private volatile Consumer<IOException> errorHandler = error -> { };
+
+    private final LinkedBlockingQueue<Entry> ready = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private Thread drainer;
+    private ScheduledExecutorService flusher;
+    private volatile boolean running = false;
+    /**
+     * Incremented on each start, so a retry scheduled before the outbox was stopped is dropped
+     */
+    private long epoch;
+
+    /**
+     * Constructor with a journal of 8 MB, a sync interval of 10 ms, 8 requests at once and a retry delay of one second
+     * @param client The client of the save server
+     * @param path The journal file, it is created when missing
+     * @throws IOException Error while opening the file
+     */
+    public PurchaseOutbox(@NotNull SavePurchaseClient client, @NotNull Path path) throws IOException {
+        this(client, path, 8 * 1024 * 1024, 10, 8, 1000);
+    }
+
+    /**
+     * Constructor
+     * @param client The client of the save server
+     * @param path The journal file, it is created when missing
+     * @param capacity The size of the journal, in bytes
+     * @param syncInterval The maximum time between two writes to the disk, in milliseconds
+     * @param concurrency Maximum number of requests at once
+     * @param retryDelay The first delay before a failed request is sent again, in milliseconds. It doubles up to 30 seconds.
+     * @throws IOException Error while opening the file
+     */
+    public PurchaseOutbox(@NotNull SavePurchaseClient client, @NotNull Path path, int capacity, long syncInterval, int concurrency, long retryDelay) throws IOException {
+        if (capacity < 1024 || syncInterval < 1 || concurrency < 1 || retryDelay < 0) throw new IllegalArgumentException("Invalid capacity, sync interval, concurrency or retry delay");
+        this.client = client;
+        this.path = path;
+        this.capacity = capacity;
+        this.syncInterval = syncInterval;
+        this.concurrency = concurrency;
+        this.retryDelay = retryDelay;
+        this.permits = new Semaphore(concurrency);
+        this.open();
+    }
+
+    /**
+     * Map the journal and read the entries that were not acknowledged
+     */
+    private void open() throws IOException {
+        this.channel = FileChannel.open(this.path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int size = (int) Math.max(this.channel.size(), this.capacity);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        this.pending.clear();
+        this.purchases.clear();
+
+        long value = this.buffer.getLong(0);
+        if ((value ^ CHECK) != this.buffer.getLong(8) || value <= 0) {
+            this.generation = 1;
+            this.writeHeader(this.buffer, this.generation);
+            this.buffer.force();
+            this.position = HEADER_SIZE;
+            return;
+        }
+        this.generation = value;
+        this.position = HEADER_SIZE;
+        while (this.position + RECORD_HEADER_SIZE <= size) {
+            int length = this.buffer.getInt(this.position);
+            if (length < RECORD_HEADER_SIZE || length > size - this.position) break;
+            byte kind = this.buffer.get(this.position + 4);
+            long id = this.buffer.getLong(this.position + 5);
+            int check = this.buffer.getInt(this.position + 13);
+            byte[] payload = new byte[length - RECORD_HEADER_SIZE];
+            this.buffer.position(this.position + RECORD_HEADER_SIZE);
+            this.buffer.get(payload);
+            // A record of an older generation, or cut by a crash, ends the journal
+            if (check != checksum(this.generation, kind, id, payload)) break;
+
+            if (kind == ACK) this.pending.remove(id);
+            else this.pending.put(id, new Entry(id, kind, payload, getPurchaseId(payload)));
+            this.nextId = Math.max(this.nextId, id + 1);
+            this.position += length;
+        }
+        for (Entry entry : this.pending.values()) {
+            this.purchases.computeIfAbsent(entry.purchaseId, key -> new ArrayDeque<>()).add(entry);
+        }
+    }
+
+    private static String getPurchaseId(byte[] payload) {
+        try {
+            return getPurchaseId(new JSONObject(new String(payload, StandardCharsets.UTF_8)));
+        } catch (Exception e) {
+            return "";
+        }
+    }
+
+    private static String getPurchaseId(@NotNull JSONObject body) {
+        JSONObject purchase = body.optJSONObject("purchase");
+        return (purchase != null) ? purchase.optString("purchaseId", "") : "";
+    }
+
+    private void writeHeader(@NotNull MappedByteBuffer buffer, long generation) {
+        buffer.putLong(0, generation);
+        buffer.putLong(8, generation ^ CHECK);
+    }
+
+    private static int checksum(long generation, byte kind, long id, byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(ByteBuffer.allocate(17).putLong(generation).put(kind).putLong(id).array());
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Write a record, its length last so that a record cut by a crash is not read
+     * @return The position after the record
+     */
+    private static int writeRecord(@NotNull MappedByteBuffer buffer, int position, long generation, byte kind, long id, byte[] payload) {
+        buffer.put(position + 4, kind);
+        buffer.putLong(position + 5, id);
+        buffer.putInt(position + 13, checksum(generation, kind, id, payload));
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.put(payload);
+        buffer.putInt(position, RECORD_HEADER_SIZE + payload.length);
+        return position + RECORD_HEADER_SIZE + payload.length;
+    }
+
+    /**
+     * Start sending the entries, beginning with those that were not acknowledged
+     */
+    public synchronized void start() {
+        if (this.running) return;
+        this.running = true;
+        this.epoch++;
+        for (ArrayDeque<Entry> entries : this.purchases.values()) this.ready.offer(entries.peekFirst());
+        this.drainer = new Thread(this::drain, "PurchaseOutbox");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PurchaseOutbox");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(() -> {
+            try {
+                this.flush();
+            } catch (UncheckedIOException e) {
+                this.errorHandler.accept(e.getCause());
+            }
+        }, this.syncInterval, this.syncInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Set the handler of the errors of writing the journal that are not thrown to a caller,
+     * such as the failure to write an acknowledgement. An entry whose acknowledgement was not written
+     * is sent again when the outbox is opened again.
+     * @param errorHandler The handler, called on the thread that wrote the journal
+     */
+    public void setErrorHandler(@NotNull Consumer<IOException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    /**
+     * Save purchase data. The purchase is signed on the calling thread, then appended to the journal.
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     * @param totalAmount Total Purchase Amount
+     * @param cacheAmount Amount purchased in cash
+     * @param currency Currency symbol (case letter)
+     * @param shopId Shop ID
+     * @param userAccount User's wallet address
+     * @param userPhone User's phone number
+     * @param details Unit price and accumulated rate of purchased goods
+     * @return The future of the response of the save server
+     * @throws Exception Error while signing, or the journal is full
+     */
+    public CompletableFuture<ResponseSavePurchase> saveNewPurchase(
+            String purchaseId,
+            long timestamp,
+            long waiting,
+            String totalAmount,
+            String cacheAmount,
+            String currency,
+            String shopId,
+            @NotNull String userAccount,
+            @NotNull String userPhone,
+            PurchaseDetail[] details
+    ) throws Exception {
+        JSONObject body = this.client.makeNewPurchaseBody(purchaseId, timestamp, waiting, totalAmount, cacheAmount, currency, shopId, userAccount, userPhone, details, this.client.getChainId());
+        return this.append(NEW, body);
+    }
+
+    /**
+     * Cancellation process for payments that have already been completed.
+     * The cancellation is signed on the calling thread, then appended to the journal.
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     * @return The future of the response of the save server
+     * @throws Exception Error while signing, or the journal is full
+     */
+    public CompletableFuture<ResponseSavePurchase> saveCancelPurchase(
+            String purchaseId,
+            long timestamp,
+            long waiting
+    ) throws Exception {
+        JSONObject body = this.client.makeCancelPurchaseBody(purchaseId, timestamp, waiting, this.client.getChainId());
+        return this.append(CANCEL, body);
+    }
+
+    /**
+     * Append a signed request body to the journal and queue it for sending after the entries of the same purchase
+     */
+    CompletableFuture<ResponseSavePurchase> append(byte kind, @NotNull JSONObject body) throws Exception {
+        byte[] payload = body.toString().getBytes(StandardCharsets.UTF_8);
+        String purchaseId = getPurchaseId(body);
+        for (boolean compacted = false; ; compacted = true) {
+            long generation;
+            synchronized (this) {
+                if (this.channel == null) throw new Exception("Internal Error : The outbox of purchases is closed");
+                if (this.hasRoom(RECORD_HEADER_SIZE + payload.length)) {
+                    Entry entry = new Entry(this.nextId++, kind, payload, purchaseId);
+                    this.position = writeRecord(this.buffer, this.position, this.generation, kind, entry.id, payload);
+                    this.pending.put(entry.id, entry);
+                    this.dirty = true;
+                    // Under the same lock as start, so the entry is queued once
+                    ArrayDeque<Entry> entries = this.purchases.computeIfAbsent(purchaseId, key -> new ArrayDeque<>());
+                    entries.add(entry);
+                    if (this.running && entries.size() == 1) this.ready.offer(entry);
+                    return entry.future;
+                }
+                if (compacted) throw new Exception("Internal Error : The outbox of purchases is full");
+                generation = this.generation;
+            }
+            this.compact(generation);
+        }
+    }
+
+    /**
+     * Mark an entry as answered by the save server, and queue the next entry of the same purchase
+     */
+    void acknowledge(long id) {
+        long generation;
+        synchronized (this) {
+            Entry entry = this.pending.remove(id);
+            if (entry == null) return;
+            ArrayDeque<Entry> entries = this.purchases.get(entry.purchaseId);
+            boolean first = entries.peekFirst() == entry;
+            entries.remove(entry);
+            if (entries.isEmpty()) this.purchases.remove(entry.purchaseId);
+            else if (first && this.running) this.ready.offer(entries.peekFirst());
+
+            if (this.channel == null) return;
+            if (this.pending.isEmpty() && this.position > this.capacity / 4) {
+                this.clear();
+                return;
+            }
+            if (this.hasRoom(RECORD_HEADER_SIZE)) {
+                this.position = writeRecord(this.buffer, this.position, this.generation, ACK, id, new byte[0]);
+                this.dirty = true;
+                return;
+            }
+            generation = this.generation;
+        }
+        // The acknowledged entry is left out of the compacted journal
+        try {
+            this.compact(generation);
+        } catch (IOException e) {
+            this.errorHandler.accept(e);
+        }
+    }
+
+    /**
+     * Check if a record fits in the journal, clearing it when every entry was acknowledged
+     */
+    private boolean hasRoom(int length) {
+        if (this.position + length <= this.buffer.capacity()) return true;
+        if (!this.pending.isEmpty()) return false;
+        this.clear();
+        return this.position + length <= this.buffer.capacity();
+    }
+
+    /**
+     * Start a new generation of an empty journal. The records of the previous generation are no longer read.
+     */
+    private void clear() {
+        this.generation++;
+        this.writeHeader(this.buffer, this.generation);
+        this.position = HEADER_SIZE;
+        this.dirty = true;
+    }
+
+    /**
+     * Write the entries that were not acknowledged to a new journal, which then replaces the current one.
+     * The new journal is written and forced outside the lock of the outbox. The entries appended and acknowledged
+     * in the meantime are copied to it when it replaces the current one.
+     * @param generation The generation of the journal that is full, nothing is done when it was already replaced
+     */
+    private void compact(long generation) throws IOException {
+        synchronized (this.compaction) {
+            List<Entry> entries;
+            int size;
+            synchronized (this) {
+                if (this.channel == null || this.generation != generation) return;
+                entries = new ArrayList<>(this.pending.values());
+                size = this.buffer.capacity();
+            }
+            long next = generation + 1;
+            Path temp = this.path.resolveSibling(this.path.getFileName() + ".tmp");
+            FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                this.writeHeader(buffer, next);
+                int position = HEADER_SIZE;
+                Set<Long> written = new HashSet<>();
+                for (Entry entry : entries) {
+                    position = writeRecord(buffer, position, next, entry.kind, entry.id, entry.payload);
+                    written.add(entry.id);
+                }
+                buffer.force();
+                synchronized (this) {
+                    if (this.channel == null) return;
+                    position = this.catchUp(buffer, position, next, written);
+                    Files.move(temp, this.path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    this.channel.close();
+                    this.channel = channel;
+                    this.buffer = buffer;
+                    this.generation = next;
+                    this.position = position;
+                    this.dirty = true;
+                    channel = null;
+                }
+            } finally {
+                if (channel != null) {
+                    channel.close();
+                    Files.deleteIfExists(temp);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the changes made to the pending entries since they were written to a new journal
+     * @return The position after the records
+     */
+    private int catchUp(@NotNull MappedByteBuffer buffer, int position, long generation, @NotNull Set<Long> written) {
+        for (long id : written) {
+            if (this.pending.containsKey(id)) continue;
+            if (position + RECORD_HEADER_SIZE > buffer.capacity()) return this.rewrite(buffer, generation);
+            position = writeRecord(buffer, position, generation, ACK, id, new byte[0]);
+        }
+        for (Entry entry : this.pending.values()) {
+            if (written.contains(entry.id)) continue;
+            if (position + RECORD_HEADER_SIZE + entry.payload.length > buffer.capacity()) return this.rewrite(buffer, generation);
+            position = writeRecord(buffer, position, generation, entry.kind, entry.id, entry.payload);
+        }
+        return position;
+    }
+
+    /**
+     * Write every pending entry again, they fit since they all are in the current journal of the same size
+     */
+    private int rewrite(@NotNull MappedByteBuffer buffer, long generation) {
+        int position = HEADER_SIZE;
+        for (Entry entry : this.pending.values()) {
+            position = writeRecord(buffer, position, generation, entry.kind, entry.id, entry.payload);
+        }
+        // The records written before are of the same generation, so they are cut off
+        if (position + 4 <= buffer.capacity()) buffer.putInt(position, 0);
+        return position;
+    }
+
+    /**
+     * Write the journal to the disk. The records are appended in the meantime, they are written by the next flush.
+     * @throws UncheckedIOException Error while writing to the disk
+     */
+    public void flush() {
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (!this.dirty || this.channel == null) return;
+            buffer = this.buffer;
+            this.dirty = false;
+        }
+        try {
+            buffer.force();
+        } catch (UncheckedIOException e) {
+            synchronized (this) {
+                this.dirty = true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Provide the number of entries that were not acknowledged
+     */
+    public synchronized int getPending() {
+        return this.pending.size();
+    }
+
+    /**
+     * Send the entries until the outbox is closed
+     */
+    private void drain() {
+        while (this.running) {
+            Entry entry;
+            try {
+                entry = this.ready.poll(100, TimeUnit.MILLISECONDS);
+                if (entry == null) continue;
+                this.permits.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            this.send(entry).whenComplete((value, error) -> {
+                this.permits.release();
+                if (error == null) {
+                    this.acknowledge(entry.id);
+                    entry.future.complete(value);
+                } else if (isRejected(error)) {
+                    // The save server answered, sending it again gives the same answer
+                    this.acknowledge(entry.id);
+                    entry.future.completeExceptionally(error);
+                } else {
+                    // The next entries of the purchase wait for this one
+                    long delay = Math.min(this.retryDelay << Math.min(entry.attempts++, 16), MAX_RETRY_DELAY);
+                    long epoch = this.getEpoch();
+                    CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> this.retry(entry, epoch));
+                }
+            });
+        }
+    }
+
+    private synchronized long getEpoch() {
+        return this.epoch;
+    }
+
+    /**
+     * Queue a failed entry again, unless the outbox was stopped since it failed
+     */
+    private synchronized void retry(@NotNull Entry entry, long epoch) {
+        if (this.running && epoch == this.epoch && this.pending.containsKey(entry.id)) this.ready.offer(entry);
+    }
+
+    private CompletableFuture<ResponseSavePurchase> send(@NotNull Entry entry) {
+        try {
+            JSONObject body = new JSONObject(new String(entry.payload, StandardCharsets.UTF_8));
+            if (entry.kind == CANCEL) return this.client.postCancelPurchaseAsync(body);
+            return this.client.postNewPurchaseAsync(body);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Check if the error is the answer of the save server rather than a failure to reach it
+     */
+    private static boolean isRejected(@NotNull Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        String message = error.getMessage();
+        return message != null && message.startsWith("Internal Error : ");
+    }
+
+    /**
+     * Stop sending and close the journal. The entries that were not acknowledged are sent when the outbox is started again.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread drainer;
+        synchronized (this) {
+            this.running = false;
+            drainer = this.drainer;
+            this.drainer = null;
+        }
+        if (drainer != null) {
+            try {
+                drainer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            this.flusher.shutdown();
+            this.permits.acquireUninterruptibly(this.concurrency);
+            this.permits.release(this.concurrency);
+        }
+        FileChannel channel;
+        MappedByteBuffer buffer;
+        synchronized (this) {
+            if (this.channel == null) return;
+            channel = this.channel;
+            buffer = this.buffer;
+            this.channel = null;
+            for (Entry entry : this.pending.values()) {
+                entry.future.completeExceptionally(new Exception("Internal Error : The outbox of purchases is closed"));
+            }
+        }
+        this.ready.clear();
+        try {
+            buffer.force();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.data.purchase.PurchaseDetail;
+import org.dms.service.sdk.data.purchase.ResponseSavePurchase;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Saves purchases without blocking the calling thread.
+ * Purchases are accepted into a bounded queue, prepared and signed on a pool of workers,
+ * and sent with a bounded number of requests at once. When the queue is full, the purchase is refused at once.
+ */
+public class PurchaseSubmitter implements Closeable {
+    private interface BodyMaker {
+        JSONObject make(long chainId) throws Exception;
+    }
+
+    private static final class Task {
+        final BodyMaker maker;
+        final Function<JSONObject, CompletableFuture<ResponseSavePurchase>> sender;
+        final CompletableFuture<ResponseSavePurchase> future = new CompletableFuture<>();
+
+        Task(BodyMaker maker, Function<JSONObject, CompletableFuture<ResponseSavePurchase>> sender) {
+            this.maker = maker;
+            this.sender = sender;
+        }
+    }
+
+    private final SavePurchaseClient client;
+    private final ArrayBlockingQueue<Task> queue;
+    private final ExecutorService executor;
+    private final Semaphore permits;
+    private final int concurrency;
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor with a queue of 1024 purchases, one worker per available processor and 16 requests at once
+     * @param client The client of the save server
+     */
+    public PurchaseSubmitter(@NotNull SavePurchaseClient client) {
+        this(client, 1024, Runtime.getRuntime().availableProcessors(), 16);
+    }
+
+    /**
+     * Constructor
+     * @param client The client of the save server
+     * @param capacity Maximum number of purchases waiting in the queue
+     * @param workers Number of threads preparing and signing the purchases
+     * @param concurrency Maximum number of requests at once
+     */
+    public PurchaseSubmitter(@NotNull SavePurchaseClient client, int capacity, int workers, int concurrency) {
+        if (capacity < 1 || workers < 1 || concurrency < 1) throw new IllegalArgumentException("Invalid capacity, workers or concurrency");
+        this.client = client;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.permits = new Semaphore(concurrency);
+        this.concurrency = concurrency;
+        this.executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "PurchaseSubmitter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int idx = 0; idx < workers; idx++) this.executor.execute(this::work);
+    }
+
+    /**
+     * Save purchase data
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     * @param totalAmount Total Purchase Amount
+     * @param cacheAmount Amount purchased in cash
+     * @param currency Currency symbol (case letter)
+     * @param shopId Shop ID
+     * @param userAccount User's wallet address
+     * @param userPhone User's phone number
+     * @param details Unit price and accumulated rate of purchased goods
+     * @return The future of the response, failed at once with a RejectedExecutionException when the queue is full or the submitter is closed
+     */
+    public CompletableFuture<ResponseSavePurchase> submitNewPurchase(
+            String purchaseId,
+            long timestamp,
+            long waiting,
+            String totalAmount,
+            String cacheAmount,
+            String currency,
+            String shopId,
+            @NotNull String userAccount,
+            @NotNull String userPhone,
+            PurchaseDetail[] details
+    ) {
+        return this.submit(new Task(
+                chainId -> this.client.makeNewPurchaseBody(purchaseId, timestamp, waiting, totalAmount, cacheAmount, currency, shopId, userAccount, userPhone, details, chainId),
+                this.client::postNewPurchaseAsync
+        ));
+    }
+
+    /**
+     * Cancellation process for payments that have already been completed
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     * @return The future of the response, failed at once with a RejectedExecutionException when the queue is full or the submitter is closed
+     */
+    public CompletableFuture<ResponseSavePurchase> submitCancelPurchase(
+            String purchaseId,
+            long timestamp,
+            long waiting
+    ) {
+        return this.submit(new Task(
+                chainId -> this.client.makeCancelPurchaseBody(purchaseId, timestamp, waiting, chainId),
+                this.client::postCancelPurchaseAsync
+        ));
+    }
+
+    private CompletableFuture<ResponseSavePurchase> submit(@NotNull Task task) {
+        if (this.closed) return CompletableFuture.failedFuture(new RejectedExecutionException("The submitter of purchases is closed"));
+        if (!this.queue.offer(task)) return CompletableFuture.failedFuture(new RejectedExecutionException("The queue of purchases is full"));
+        return task.future;
+    }
+
+    /**
+     * Provide the number of purchases waiting in the queue
+     */
+    public int getPending() {
+        return this.queue.size();
+    }
+
+    /**
+     * Take the purchases from the queue until the submitter is closed and the queue is empty
+     */
+    private void work() {
+        while (true) {
+            Task task;
+            try {
+                task = this.queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (task == null) {
+                if (this.closed) return;
+                continue;
+            }
+            if (task.future.isDone()) continue;
+
+            JSONObject body;
+            try {
+                body = task.maker.make(this.client.getChainId());
+            } catch (Exception e) {
+                task.future.completeExceptionally(e);
+                continue;
+            }
+
+            this.permits.acquireUninterruptibly();
+            CompletableFuture<ResponseSavePurchase> response;
+            try {
+                response = task.sender.apply(body);
+            } catch (Exception e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((value, error) -> {
+                this.permits.release();
+                if (error == null) task.future.complete(value);
+                else task.future.completeExceptionally(error);
+            });
+        }
+    }
+
+    /**
+     * Stop accepting purchases and wait until the purchases in the queue are sent
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+        this.executor.shutdown();
+        try {
+            this.executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // A purchase accepted while the workers were stopping
+        Task task;
+        while ((task = this.queue.poll()) != null) {
+            task.future.completeExceptionally(new RejectedExecutionException("The submitter of purchases is closed"));
+        }
+        this.permits.acquireUninterruptibly(this.concurrency);
+        this.permits.release(this.concurrency);
+    }
+}
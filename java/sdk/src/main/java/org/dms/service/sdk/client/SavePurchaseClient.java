@@ -4,6 +4,10 @@ import org.dms.service.sdk.data.NetWorkType;
 import org.dms.service.sdk.data.purchase.*;
 import org.dms.service.sdk.utils.Amount;
 import org.dms.service.sdk.utils.CommonUtils;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.PooledHttpTransport;
+import org.dms.service.sdk.utils.MessageSigner;
+import org.dms.service.sdk.utils.PhoneNumberCache;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -12,12 +16,11 @@ import org.web3j.crypto.Credentials;
 import org.web3j.crypto.ECKeyPair;
 import org.web3j.utils.Numeric;
 
-import java.io.OutputStream;
 import java.math.BigInteger;
-import java.net.HttpURLConnection;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The client that delivers purchase data to the loyalty system to store purchase data in IPFS.
@@ -28,11 +31,19 @@ public class SavePurchaseClient extends Client {
      * Message repeater's wallet for saving purchases
      */
     protected final Credentials credentials;
+    /**
+     * Signer bound to the key of the credentials
+     */
+    protected final MessageSigner signer;
 
     /**
      * wallet address of asset owner
      */
     protected final String assetAddress;
+    /**
+     * Cache of the international phone numbers and their hashes
+     */
+    protected volatile PhoneNumberCache phoneCache = PhoneNumberCache.getDefault();
 
     /**
      * Constructor
@@ -41,8 +52,20 @@ public class SavePurchaseClient extends Client {
      * @param assetAddress The wallet address of asset owner
      */
     public SavePurchaseClient(NetWorkType network, String privateKey, String assetAddress) {
-        super(network);
+        this(network, privateKey, assetAddress, PooledHttpTransport.getDefault());
+    }
+
+    /**
+     * Constructor
+     * @param network Type of network (mainnet, testnet, localhost)
+     * @param privateKey The private key used in the saving purchases
+     * @param assetAddress The wallet address of asset owner
+     * @param transport The HTTP transport used to communicate with the API servers
+     */
+    public SavePurchaseClient(NetWorkType network, String privateKey, String assetAddress, IHttpTransport transport) {
+        super(network, transport);
         this.credentials = Credentials.create(ECKeyPair.create(new BigInteger(Numeric.cleanHexPrefix(privateKey), 16)));
+        this.signer = new MessageSigner(this.credentials.getEcKeyPair());
         this.assetAddress = assetAddress;
     }
 
@@ -50,6 +73,18 @@ public class SavePurchaseClient extends Client {
         return this.credentials.getAddress();
     }
 
+    public PhoneNumberCache getPhoneCache() {
+        return this.phoneCache;
+    }
+
+    /**
+     * Change the cache of the phone numbers, the cache shared by all clients is used by default
+     * @param phoneCache PhoneNumberCache
+     */
+    public void setPhoneCache(@NotNull PhoneNumberCache phoneCache) {
+        this.phoneCache = phoneCache;
+    }
+
     private BigInteger getLoyaltyInTransaction(
         BigInteger cashAmount,
         @NotNull BigInteger totalAmount,
@@ -65,7 +100,7 @@ public class SavePurchaseClient extends Client {
     }
 
     /**
-     * Save purchase data
+     * Build the signed request body to save purchase data
      * @param purchaseId PurchaseId ID
      * @param timestamp Purchase Time
      * @param waiting Wait time (in seconds) for points to be provided
@@ -76,8 +111,9 @@ public class SavePurchaseClient extends Client {
      * @param userAccount User's wallet address
      * @param userPhone User's phone number
      * @param details Unit price and accumulated rate of purchased goods
+     * @param chainId The Chain ID of side chain
      */
-    public ResponseSavePurchase saveNewPurchase(
+    protected JSONObject makeNewPurchaseBody(
             String purchaseId,
             long timestamp,
             long waiting,
@@ -87,13 +123,17 @@ public class SavePurchaseClient extends Client {
             String shopId,
             @NotNull String userAccount,
             @NotNull String userPhone,
-            PurchaseDetail[] details
-    ) throws Exception  {
+            PurchaseDetail[] details,
+            long chainId
+    ) throws Exception {
         String adjustedUserAccount = userAccount.trim().isEmpty() ? Address.DEFAULT.toString() : userAccount.trim();
 
         String adjustedUserPhone = userPhone.trim();
+        String phoneHash;
         if (!adjustedUserPhone.isEmpty()) {
-            adjustedUserPhone = CommonUtils.getInternationalPhoneNumber(adjustedUserPhone);
+            phoneHash = this.phoneCache.getPhoneHash(adjustedUserPhone);
+        } else {
+            phoneHash = CommonUtils.getPhoneHash(adjustedUserPhone);
         }
 
         SaveNewPurchase adjustedPurchase = new SaveNewPurchase(
@@ -103,7 +143,7 @@ public class SavePurchaseClient extends Client {
                 currency,
                 shopId,
                 adjustedUserAccount,
-                CommonUtils.getPhoneHash(adjustedUserPhone),
+                phoneHash,
                 this.assetAddress,
                 ""
         );
@@ -126,12 +166,9 @@ public class SavePurchaseClient extends Client {
                 adjustedPurchase.userAccount,
                 adjustedPurchase.userPhoneHash,
                 adjustedPurchase.sender,
-                this.getChainId()
+                chainId
         );
-        adjustedPurchase.purchaseSignature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
-
-        URI uri = new URI(String.format("%s/v2/tx/purchase/new", saveEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
+        adjustedPurchase.purchaseSignature = this.signer.signMessage(message);
 
         JSONObject body = new JSONObject();
 
@@ -162,25 +199,91 @@ public class SavePurchaseClient extends Client {
             detailsObj.put(elemObj);
         }
         body.put("details", detailsObj);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Save purchase data
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     * @param totalAmount Total Purchase Amount
+     * @param cacheAmount Amount purchased in cash
+     * @param currency Currency symbol (case letter)
+     * @param shopId Shop ID
+     * @param userAccount User's wallet address
+     * @param userPhone User's phone number
+     * @param details Unit price and accumulated rate of purchased goods
+     */
+    public ResponseSavePurchase saveNewPurchase(
+            String purchaseId,
+            long timestamp,
+            long waiting,
+            String totalAmount,
+            String cacheAmount,
+            String currency,
+            String shopId,
+            @NotNull String userAccount,
+            @NotNull String userPhone,
+            PurchaseDetail[] details
+    ) throws Exception  {
+        JSONObject body = makeNewPurchaseBody(purchaseId, timestamp, waiting, totalAmount, cacheAmount, currency, shopId, userAccount, userPhone, details, this.getChainId());
+        URI uri = new URI(String.format("%s/v2/tx/purchase/new", saveEndpoint));
+        return getDataResponse(post(uri, body), ResponseSavePurchase::fromJSONReader);
+    }
 
-        return ResponseSavePurchase.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Save purchase data without blocking the calling thread
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     * @param totalAmount Total Purchase Amount
+     * @param cacheAmount Amount purchased in cash
+     * @param currency Currency symbol (case letter)
+     * @param shopId Shop ID
+     * @param userAccount User's wallet address
+     * @param userPhone User's phone number
+     * @param details Unit price and accumulated rate of purchased goods
+     */
+    public CompletableFuture<ResponseSavePurchase> saveNewPurchaseAsync(
+            String purchaseId,
+            long timestamp,
+            long waiting,
+            String totalAmount,
+            String cacheAmount,
+            String currency,
+            String shopId,
+            @NotNull String userAccount,
+            @NotNull String userPhone,
+            PurchaseDetail[] details
+    ) {
+        return this.getChainIdAsync()
+                .thenCompose(chainId -> supplyAsync(() -> makeNewPurchaseBody(purchaseId, timestamp, waiting, totalAmount, cacheAmount, currency, shopId, userAccount, userPhone, details, chainId)))
+                .thenCompose(this::postNewPurchaseAsync);
     }
 
     /**
-     * Cancellation process for payments that have already been completed
+     * Send the signed request body of a purchase without blocking the calling thread
+     * @param body The body made by makeNewPurchaseBody
+     */
+    protected CompletableFuture<ResponseSavePurchase> postNewPurchaseAsync(@NotNull JSONObject body) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/tx/purchase/new", saveEndpoint));
+        return postAsync(uri, body, input -> getDataResponse(input, ResponseSavePurchase::fromJSONReader));
+    }
+
+    /**
+     * Build the signed request body of the cancellation process
      * @param purchaseId PurchaseId ID
      * @param timestamp Purchase Time
      * @param waiting Wait time (in seconds) for points to be provided
+     * @param chainId The Chain ID of side chain
      */
-    public ResponseSavePurchase saveCancelPurchase(
+    protected JSONObject makeCancelPurchaseBody(
             String purchaseId,
             long timestamp,
-            long waiting
-    ) throws Exception {
+            long waiting,
+            long chainId
+    ) {
         SaveCancelPurchase adjustedPurchase = new SaveCancelPurchase(
                 purchaseId,
                 this.assetAddress,
@@ -189,14 +292,11 @@ public class SavePurchaseClient extends Client {
         byte[] message = CommonUtils.getCancelPurchaseDataMessage(
                 adjustedPurchase.purchaseId,
                 adjustedPurchase.sender,
-                this.getChainId()
+                chainId
         );
-        adjustedPurchase.purchaseSignature = CommonUtils.signMessage(this.credentials.getEcKeyPair(), message);
+        adjustedPurchase.purchaseSignature = this.signer.signMessage(message);
         SaveCancelOthers adjustedOthers = new SaveCancelOthers(timestamp, waiting);
 
-        URI uri = new URI(String.format("%s/v2/tx/purchase/cancel", saveEndpoint));
-        HttpURLConnection conn = getHttpURLConnection(uri, "POST");
-
         JSONObject body = new JSONObject();
 
         JSONObject purchaseObj = new JSONObject();
@@ -209,11 +309,47 @@ public class SavePurchaseClient extends Client {
         othersObj.put("timestamp", String.valueOf(adjustedOthers.timestamp));
         othersObj.put("waiting", String.valueOf(adjustedOthers.waiting));
         body.put("others", othersObj);
+        return body;
+    }
 
-        try (OutputStream output = conn.getOutputStream()) {
-            output.write(body.toString().getBytes(StandardCharsets.UTF_8));
-        }
+    /**
+     * Cancellation process for payments that have already been completed
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     */
+    public ResponseSavePurchase saveCancelPurchase(
+            String purchaseId,
+            long timestamp,
+            long waiting
+    ) throws Exception {
+        JSONObject body = makeCancelPurchaseBody(purchaseId, timestamp, waiting, this.getChainId());
+        URI uri = new URI(String.format("%s/v2/tx/purchase/cancel", saveEndpoint));
+        return getDataResponse(post(uri, body), ResponseSavePurchase::fromJSONReader);
+    }
+
+    /**
+     * Cancellation process for payments that have already been completed, without blocking the calling thread
+     * @param purchaseId PurchaseId ID
+     * @param timestamp Purchase Time
+     * @param waiting Wait time (in seconds) for points to be provided
+     */
+    public CompletableFuture<ResponseSavePurchase> saveCancelPurchaseAsync(
+            String purchaseId,
+            long timestamp,
+            long waiting
+    ) {
+        return this.getChainIdAsync()
+                .thenCompose(chainId -> supplyAsync(() -> makeCancelPurchaseBody(purchaseId, timestamp, waiting, chainId)))
+                .thenCompose(this::postCancelPurchaseAsync);
+    }
 
-        return ResponseSavePurchase.fromJSONObject(getJSONObjectResponse(conn));
+    /**
+     * Send the signed request body of a cancellation without blocking the calling thread
+     * @param body The body made by makeCancelPurchaseBody
+     */
+    protected CompletableFuture<ResponseSavePurchase> postCancelPurchaseAsync(@NotNull JSONObject body) {
+        Callable<URI> uri = () -> new URI(String.format("%s/v2/tx/purchase/cancel", saveEndpoint));
+        return postAsync(uri, body, input -> getDataResponse(input, ResponseSavePurchase::fromJSONReader));
     }
 }
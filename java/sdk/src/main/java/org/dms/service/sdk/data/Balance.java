@@ -1,5 +1,10 @@
 package org.dms.service.sdk.data;
 
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
+
+import java.io.IOException;
 import java.math.BigInteger;
 
 /**
@@ -24,4 +29,26 @@ public class Balance {
         this.balance = balance;
         this.value = value;
     }
+
+    @NotNull
+    public static Balance fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        BigInteger balance = null;
+        BigInteger value = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "balance":
+                    balance = reader.nextBigInteger();
+                    break;
+                case "value":
+                    value = reader.nextBigInteger();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (balance == null || value == null) throw new JSONException("Balance is incomplete");
+        return new Balance(balance, value);
+    }
 }
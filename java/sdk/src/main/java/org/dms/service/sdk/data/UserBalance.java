@@ -1,7 +1,12 @@
 package org.dms.service.sdk.data;
 
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * Balance data for points and tokens
  */
@@ -24,4 +29,36 @@ public class UserBalance {
         this.point = new Balance(point.getBigInteger("balance"), point.getBigInteger("value"));
         this.token = new Balance(token.getBigInteger("balance"), token.getBigInteger("value"));
     }
+
+    /**
+     * Constructor
+     * @param point Balance of Point
+     * @param token Balance of Token
+     */
+    public UserBalance (Balance point, Balance token) {
+        this.point = point;
+        this.token = token;
+    }
+
+    @NotNull
+    public static UserBalance fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        Balance point = null;
+        Balance token = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "point":
+                    point = Balance.fromJSONReader(reader);
+                    break;
+                case "token":
+                    token = Balance.fromJSONReader(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (point == null || token == null) throw new JSONException("UserBalance is incomplete");
+        return new UserBalance(point, token);
+    }
 }
@@ -1,5 +1,12 @@
 package org.dms.service.sdk.data.payment;
 
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
 import java.math.BigInteger;
 
 /**
@@ -83,4 +90,106 @@ public class PaymentInfo {
         this.totalPoint = totalPoint;
         this.totalValue = totalValue;
     }
+
+    @NotNull
+    @Contract("_ -> new")
+    public static PaymentInfo fromJSONObject(JSONObject data) {
+        return new PaymentInfo(
+                data.getString("account"),
+                new BigInteger(data.getString("amount"), 10),
+                data.getString("currency"),
+                new BigInteger(data.getString("balance"), 10),
+                new BigInteger(data.getString("balanceValue"), 10),
+                new BigInteger(data.getString("paidPoint"), 10),
+                new BigInteger(data.getString("paidValue"), 10),
+                new BigInteger(data.getString("feePoint"), 10),
+                new BigInteger(data.getString("feeValue"), 10),
+                new BigInteger(data.getString("totalPoint"), 10),
+                new BigInteger(data.getString("totalValue"), 10)
+        );
+    }
+
+    @NotNull
+    public static PaymentInfo fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        String account = null;
+        BigInteger amount = null;
+        String currency = null;
+        BigInteger balance = null;
+        BigInteger balanceValue = null;
+        BigInteger paidPoint = null;
+        BigInteger paidValue = null;
+        BigInteger feePoint = null;
+        BigInteger feeValue = null;
+        BigInteger totalPoint = null;
+        BigInteger totalValue = null;
+        int seen = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "account":
+                    account = reader.nextString();
+                    seen |= 1;
+                    break;
+                case "amount":
+                    amount = reader.nextBigInteger();
+                    seen |= 2;
+                    break;
+                case "currency":
+                    currency = reader.nextString();
+                    seen |= 4;
+                    break;
+                case "balance":
+                    balance = reader.nextBigInteger();
+                    seen |= 8;
+                    break;
+                case "balanceValue":
+                    balanceValue = reader.nextBigInteger();
+                    seen |= 16;
+                    break;
+                case "paidPoint":
+                    paidPoint = reader.nextBigInteger();
+                    seen |= 32;
+                    break;
+                case "paidValue":
+                    paidValue = reader.nextBigInteger();
+                    seen |= 64;
+                    break;
+                case "feePoint":
+                    feePoint = reader.nextBigInteger();
+                    seen |= 128;
+                    break;
+                case "feeValue":
+                    feeValue = reader.nextBigInteger();
+                    seen |= 256;
+                    break;
+                case "totalPoint":
+                    totalPoint = reader.nextBigInteger();
+                    seen |= 512;
+                    break;
+                case "totalValue":
+                    totalValue = reader.nextBigInteger();
+                    seen |= 1024;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (seen != 2047) throw new JSONException("PaymentInfo is incomplete");
+
+        return new PaymentInfo(
+                account,
+                amount,
+                currency,
+                balance,
+                balanceValue,
+                paidPoint,
+                paidValue,
+                feePoint,
+                feeValue,
+                totalPoint,
+                totalValue
+        );
+    }
 }
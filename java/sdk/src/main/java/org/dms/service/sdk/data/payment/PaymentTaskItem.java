@@ -1,9 +1,12 @@
 package org.dms.service.sdk.data.payment;
 
+import org.dms.service.sdk.utils.JSONStreamReader;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.math.BigInteger;
 
 /**
@@ -78,6 +81,108 @@ public class PaymentTaskItem {
         );
     }
 
+    @NotNull
+    public static PaymentTaskItem fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        String paymentId = null;
+        String purchaseId = null;
+        BigInteger amount = null;
+        String currency = null;
+        String shopId = null;
+        String account = null;
+        BigInteger paidPoint = null;
+        BigInteger paidValue = null;
+        BigInteger feePoint = null;
+        BigInteger feeValue = null;
+        BigInteger totalPoint = null;
+        BigInteger totalValue = null;
+        String terminalId = null;
+        int paymentStatus = 0;
+        int seen = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "paymentId":
+                    paymentId = reader.nextString();
+                    seen |= 1;
+                    break;
+                case "purchaseId":
+                    purchaseId = reader.nextString();
+                    seen |= 2;
+                    break;
+                case "amount":
+                    amount = reader.nextBigInteger();
+                    seen |= 4;
+                    break;
+                case "currency":
+                    currency = reader.nextString();
+                    seen |= 8;
+                    break;
+                case "shopId":
+                    shopId = reader.nextString();
+                    seen |= 16;
+                    break;
+                case "account":
+                    account = reader.nextString();
+                    seen |= 32;
+                    break;
+                case "paidPoint":
+                    paidPoint = reader.nextBigInteger();
+                    seen |= 64;
+                    break;
+                case "paidValue":
+                    paidValue = reader.nextBigInteger();
+                    seen |= 128;
+                    break;
+                case "feePoint":
+                    feePoint = reader.nextBigInteger();
+                    seen |= 256;
+                    break;
+                case "feeValue":
+                    feeValue = reader.nextBigInteger();
+                    seen |= 512;
+                    break;
+                case "totalPoint":
+                    totalPoint = reader.nextBigInteger();
+                    seen |= 1024;
+                    break;
+                case "totalValue":
+                    totalValue = reader.nextBigInteger();
+                    seen |= 2048;
+                    break;
+                case "terminalId":
+                    terminalId = reader.nextString();
+                    seen |= 4096;
+                    break;
+                case "paymentStatus":
+                    paymentStatus = reader.nextInt();
+                    seen |= 8192;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (seen != 16383) throw new JSONException("PaymentTaskItem is incomplete");
+
+        return new PaymentTaskItem(
+                paymentId,
+                purchaseId,
+                amount,
+                currency,
+                shopId,
+                account,
+                paidPoint,
+                paidValue,
+                feePoint,
+                feeValue,
+                totalPoint,
+                totalValue,
+                terminalId,
+                paymentStatus
+        );
+    }
+
     public PaymentTaskItem cloneTaskItem() {
         return new PaymentTaskItem(
                 this.paymentId,
@@ -1,9 +1,13 @@
 package org.dms.service.sdk.data.payment;
 
+import org.dms.service.sdk.utils.JSONStreamReader;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 /**
  * Data generated during store information modification
  */
@@ -52,6 +56,72 @@ public class ShopTaskItem {
         );
     }
 
+    @NotNull
+    public static ShopTaskItem fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        String taskId = null;
+        String shopId = null;
+        String name = null;
+        String currency = null;
+        int status = 0;
+        String account = null;
+        String terminalId = null;
+        int taskStatus = 0;
+        int seen = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "taskId":
+                    taskId = reader.nextString();
+                    seen |= 1;
+                    break;
+                case "shopId":
+                    shopId = reader.nextString();
+                    seen |= 2;
+                    break;
+                case "name":
+                    name = reader.nextString();
+                    seen |= 4;
+                    break;
+                case "currency":
+                    currency = reader.nextString();
+                    seen |= 8;
+                    break;
+                case "status":
+                    status = reader.nextInt();
+                    seen |= 16;
+                    break;
+                case "account":
+                    account = reader.nextString();
+                    seen |= 32;
+                    break;
+                case "terminalId":
+                    terminalId = reader.nextString();
+                    seen |= 64;
+                    break;
+                case "taskStatus":
+                    taskStatus = reader.nextInt();
+                    seen |= 128;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (seen != 255) throw new JSONException("ShopTaskItem is incomplete");
+
+        return new ShopTaskItem(
+                taskId,
+                shopId,
+                name,
+                currency,
+                status,
+                account,
+                terminalId,
+                taskStatus
+        );
+    }
+
     public ShopTaskItem cloneTaskItem() {
         return new ShopTaskItem(
             this.taskId,
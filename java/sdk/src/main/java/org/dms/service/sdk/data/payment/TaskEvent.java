@@ -0,0 +1,123 @@
+package org.dms.service.sdk.data.payment;
+
+import org.dms.service.sdk.utils.JSONStreamReader;
+import org.jetbrains.annotations.Contract;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Objects;
+
+/**
+ * Task delivered by the relay server, carrying either a payment or a shop item
+ */
+public class TaskEvent {
+    public String type;
+    public int code;
+    public String message;
+    public long sequence;
+    /**
+     * Item of the payment. It is set when the type is pay_new or pay_cancel
+     */
+    public PaymentTaskItem payment;
+    /**
+     * Item of the shop. It is set for all other types
+     */
+    public ShopTaskItem shop;
+
+    public TaskEvent(
+            String type,
+            int code,
+            String message,
+            long sequence,
+            PaymentTaskItem payment,
+            ShopTaskItem shop
+    ) {
+        this.type = type;
+        this.code = code;
+        this.message = message;
+        this.sequence = sequence;
+        this.payment = payment;
+        this.shop = shop;
+    }
+
+    public static boolean isPaymentType(String type) {
+        return Objects.equals(type, "pay_new") || Objects.equals(type, "pay_cancel");
+    }
+
+    public boolean isPaymentEvent() {
+        return isPaymentType(this.type);
+    }
+
+    @NotNull
+    @Contract("_ -> new")
+    public static TaskEvent fromJSONObject(JSONObject task) {
+        String type = task.getString("type");
+        JSONObject data = task.getJSONObject("data");
+        boolean isPayment = isPaymentType(type);
+        return new TaskEvent(
+                type,
+                task.getInt("code"),
+                task.getString("message"),
+                task.getLong("sequence"),
+                isPayment ? PaymentTaskItem.fromJSONObject(data) : null,
+                isPayment ? null : ShopTaskItem.fromJSONObject(data)
+        );
+    }
+
+    @NotNull
+    public static TaskEvent fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        String type = null;
+        int code = 0;
+        String message = null;
+        long sequence = 0;
+        PaymentTaskItem payment = null;
+        ShopTaskItem shop = null;
+        // Used only when the data arrives before the type
+        JSONObject pending = null;
+        int seen = 0;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type":
+                    type = reader.nextString();
+                    seen |= 1;
+                    break;
+                case "code":
+                    code = reader.nextInt();
+                    seen |= 2;
+                    break;
+                case "message":
+                    message = reader.nextString();
+                    seen |= 4;
+                    break;
+                case "sequence":
+                    sequence = reader.nextLong();
+                    seen |= 8;
+                    break;
+                case "data":
+                    if ((seen & 1) == 0) {
+                        pending = reader.nextJSONObject();
+                    } else if (isPaymentType(type)) {
+                        payment = PaymentTaskItem.fromJSONReader(reader);
+                    } else {
+                        shop = ShopTaskItem.fromJSONReader(reader);
+                    }
+                    seen |= 16;
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (seen != 31) throw new JSONException("TaskEvent is incomplete");
+
+        if (pending != null) {
+            if (isPaymentType(type)) payment = PaymentTaskItem.fromJSONObject(pending);
+            else shop = ShopTaskItem.fromJSONObject(pending);
+        }
+        return new TaskEvent(type, code, message, sequence, payment, shop);
+    }
+}
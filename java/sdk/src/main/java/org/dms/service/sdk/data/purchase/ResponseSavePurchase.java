@@ -1,9 +1,12 @@
 package org.dms.service.sdk.data.purchase;
 
+import org.dms.service.sdk.utils.JSONStreamReader;
 import org.jetbrains.annotations.Contract;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 
+import java.io.IOException;
+
 public class ResponseSavePurchase {
     public int type;
     public String sequence;
@@ -28,4 +31,35 @@ public class ResponseSavePurchase {
             return new ResponseSavePurchase(0, "0", "");
         }
     }
+
+    @NotNull
+    public static ResponseSavePurchase fromJSONReader(@NotNull JSONStreamReader reader) throws IOException {
+        ResponseSavePurchase response = new ResponseSavePurchase(0, "0", "");
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("tx") && reader.peek() == JSONStreamReader.Token.OBJECT) {
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    switch (reader.nextName()) {
+                        case "type":
+                            response.type = reader.nextInt();
+                            break;
+                        case "sequence":
+                            response.sequence = reader.nextString();
+                            break;
+                        case "purchaseId":
+                            response.purchaseId = reader.nextString();
+                            break;
+                        default:
+                            reader.skipValue();
+                    }
+                }
+                reader.endObject();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return response;
+    }
 }
@@ -0,0 +1,73 @@
+package org.dms.service.sdk.event;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides how long to wait before the next poll.
+ * The next poll starts immediately after a page with data, and the interval grows exponentially
+ * from the floor to the ceiling while polls come back empty. Jitter spreads the polls of many clients.
+ */
+public class AdaptivePolling {
+    private final long floor;
+    private final long ceiling;
+    private final double multiplier;
+    private final double jitter;
+
+    private long interval;
+
+    /**
+     * Constructor with a floor of 100 ms, a ceiling of 2000 ms, doubling and 20% jitter
+     */
+    public AdaptivePolling() {
+        this(100, 2000, 2.0, 0.2);
+    }
+
+    /**
+     * Constructor
+     * @param floor The first interval after a poll without data, in milliseconds, 1 or more so an idle relay is not polled in a loop
+     * @param ceiling The largest interval, in milliseconds
+     * @param multiplier Growth of the interval after each poll without data
+     * @param jitter Random variation of the interval, as a fraction of it (0.0 to 1.0)
+     */
+    public AdaptivePolling(long floor, long ceiling, double multiplier, double jitter) {
+        if (floor < 1 || ceiling < floor) throw new IllegalArgumentException("Invalid floor or ceiling");
+        if (multiplier < 1.0) throw new IllegalArgumentException("multiplier must be 1.0 or more");
+        if (jitter < 0.0 || jitter > 1.0) throw new IllegalArgumentException("jitter must be between 0.0 and 1.0");
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.multiplier = multiplier;
+        this.jitter = jitter;
+        this.interval = 0;
+    }
+
+    public long getFloor() {
+        return this.floor;
+    }
+
+    public long getCeiling() {
+        return this.ceiling;
+    }
+
+    /**
+     * Provide the time to wait before the next poll
+     * @param received True if the last poll returned data
+     * @return The delay in milliseconds
+     */
+    public synchronized long nextDelay(boolean received) {
+        if (received) {
+            this.interval = 0;
+            return 0;
+        }
+        this.interval = (this.interval == 0) ? this.floor : Math.min(this.ceiling, (long) (this.interval * this.multiplier));
+        if (this.jitter == 0.0) return this.interval;
+        double factor = 1.0 - this.jitter + ThreadLocalRandom.current().nextDouble() * 2.0 * this.jitter;
+        return Math.max(this.floor, Math.min(this.ceiling, (long) (this.interval * factor)));
+    }
+
+    /**
+     * Start again from the floor
+     */
+    public synchronized void reset() {
+        this.interval = 0;
+    }
+}
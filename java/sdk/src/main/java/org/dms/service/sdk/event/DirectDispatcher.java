@@ -0,0 +1,39 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delivers each event on the polling thread of the collector, before the next one is handed over
+ */
+public class DirectDispatcher implements ITaskEventDispatcher {
+    private final ITaskEventListener listener;
+    private volatile long completed = -1;
+
+    /**
+     * Constructor
+     * @param listener The listener of the events
+     */
+    public DirectDispatcher(@NotNull ITaskEventListener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void start() {
+    }
+
+    @Override
+    public void dispatch(@NotNull TaskEvent event) {
+        ITaskEventDispatcher.deliver(this.listener, event);
+        if (event.sequence > this.completed) this.completed = event.sequence;
+    }
+
+    @Override
+    public long getCompletedSequence() {
+        return this.completed;
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,13 @@
+package org.dms.service.sdk.event;
+
+/**
+ * Listener that is told when a batch of events has been delivered,
+ * for example to commit the events to a database together
+ */
+public interface ITaskEventBatchListener extends ITaskEventListener {
+    /**
+     * Called after the last event of a batch
+     * @param sequence The sequence of the last event of the batch
+     */
+    void onEndOfBatch(long sequence);
+}
@@ -0,0 +1,66 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delivers the task events received by the collector to the listeners.
+ * The collector calls dispatch from its polling thread only.
+ */
+public interface ITaskEventDispatcher {
+    /**
+     * Prepare the delivery, called when the collector starts
+     */
+    void start();
+
+    /**
+     * Check if the dispatcher can take more events. The collector does not poll while it is not ready.
+     */
+    default boolean isReady() {
+        return true;
+    }
+
+    /**
+     * Hand over an event. It may wait while the dispatcher is full.
+     * @param event The event received from the relay server
+     * @throws InterruptedException If the thread was interrupted while waiting
+     */
+    void dispatch(@NotNull TaskEvent event) throws InterruptedException;
+
+    /**
+     * Provide the highest sequence such that every event dispatched with a sequence up to it was delivered.
+     * It is called from the thread that dispatches.
+     * @return The sequence, or -1 if nothing was delivered
+     */
+    long getCompletedSequence();
+
+    /**
+     * Deliver the events that are still pending and stop, called when the collector stops
+     */
+    void close();
+
+    /**
+     * Call the listener method that matches the type of the event
+     * @param listener The listener
+     * @param event The event
+     */
+    static void deliver(@NotNull ITaskEventListener listener, @NotNull TaskEvent event) {
+        if (event.isPaymentEvent()) {
+            listener.onNewPaymentEvent(
+                    event.type,
+                    event.code,
+                    event.message,
+                    event.sequence,
+                    event.payment
+            );
+        } else {
+            listener.onNewShopEvent(
+                    event.type,
+                    event.code,
+                    event.message,
+                    event.sequence,
+                    event.shop
+            );
+        }
+    }
+}
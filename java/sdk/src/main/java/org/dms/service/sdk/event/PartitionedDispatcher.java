@@ -0,0 +1,151 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Delivers the events on several worker threads. Events with the same key always go to the same worker,
+ * so they are delivered in order, while events of different keys are delivered in parallel.
+ * The key is the payment id of payment events and the shop id of shop events, unless a key function is given.
+ * The listener is called from all the workers at the same time and must be thread-safe.
+ */
+public class PartitionedDispatcher implements ITaskEventDispatcher {
+    private final RingBufferDispatcher[] workers;
+    private final Function<TaskEvent, String> keyFunction;
+    private long dispatched = -1;
+
+    /**
+     * Constructor with one worker per processor
+     * @param listener The listener of the events
+     */
+    public PartitionedDispatcher(@NotNull ITaskEventListener listener) {
+        this(listener, Runtime.getRuntime().availableProcessors(), PartitionedDispatcher::getDefaultKey);
+    }
+
+    /**
+     * Constructor with 1024 slots per worker that park while waiting
+     * @param listener The listener of the events
+     * @param workers The number of worker threads
+     * @param keyFunction Provides the key of an event
+     */
+    public PartitionedDispatcher(@NotNull ITaskEventListener listener, int workers, @NotNull Function<TaskEvent, String> keyFunction) {
+        this(listener, workers, 1024, WaitStrategy.PARK, keyFunction);
+    }
+
+    /**
+     * Constructor
+     * @param listener The listener of the events. If it is an ITaskEventBatchListener, each worker tells the end of its batches.
+     * @param workers The number of worker threads
+     * @param capacity The number of slots of each worker, a power of two
+     * @param waitStrategy How the workers and the producer wait for each other
+     * @param keyFunction Provides the key of an event
+     */
+    public PartitionedDispatcher(
+            @NotNull ITaskEventListener listener,
+            int workers,
+            int capacity,
+            @NotNull WaitStrategy waitStrategy,
+            @NotNull Function<TaskEvent, String> keyFunction
+    ) {
+        if (workers <= 0) throw new IllegalArgumentException("workers must be positive");
+        this.workers = new RingBufferDispatcher[workers];
+        for (int idx = 0; idx < workers; idx++) {
+            this.workers[idx] = new RingBufferDispatcher(listener, capacity, waitStrategy);
+        }
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * The payment id of payment events, the shop id of shop events
+     */
+    public static String getDefaultKey(@NotNull TaskEvent event) {
+        if (event.payment != null) return event.payment.paymentId;
+        if (event.shop != null) return event.shop.shopId;
+        return event.type;
+    }
+
+    public int getWorkers() {
+        return this.workers.length;
+    }
+
+    /**
+     * Provide the worker of a key
+     */
+    int getPartition(String key) {
+        if (key == null) return 0;
+        int hash = key.hashCode();
+        hash ^= (hash >>> 16);
+        return (hash & 0x7fffffff) % this.workers.length;
+    }
+
+    @Override
+    public void start() {
+        for (RingBufferDispatcher worker : this.workers) worker.start();
+    }
+
+    @Override
+    public void dispatch(@NotNull TaskEvent event) throws InterruptedException {
+        this.workers[getPartition(this.keyFunction.apply(event))].dispatch(event);
+        if (event.sequence > this.dispatched) this.dispatched = event.sequence;
+    }
+
+    /**
+     * The workers complete their events independently. Each worker holds the sequence below
+     * the lowest event it has not delivered yet, or whose listener failed. It must be called by the producer.
+     */
+    @Override
+    public long getCompletedSequence() {
+        long completed = this.dispatched;
+        for (RingBufferDispatcher worker : this.workers) {
+            completed = Math.min(completed, worker.getPendingFloor());
+        }
+        return completed;
+    }
+
+    /**
+     * Provide the number of events and batches whose listener failed, in all the workers
+     */
+    public long getFailedCount() {
+        long count = 0;
+        for (RingBufferDispatcher worker : this.workers) count += worker.getFailedCount();
+        return count;
+    }
+
+    /**
+     * Provide the sequences of the events whose listener failed and that were not acknowledged, in all the workers
+     */
+    public List<Long> getFailedSequences() {
+        List<Long> sequences = new ArrayList<>();
+        for (RingBufferDispatcher worker : this.workers) sequences.addAll(worker.getFailedSequences());
+        Collections.sort(sequences);
+        return sequences;
+    }
+
+    /**
+     * Deliver the events whose listener failed again, each on its worker
+     */
+    public void retryFailed() {
+        for (RingBufferDispatcher worker : this.workers) worker.retryFailed();
+    }
+
+    /**
+     * Give up an event whose listener failed, so the checkpoint moves above it
+     * @param sequence The sequence of the event
+     * @return False if no event of the sequence failed
+     */
+    public boolean acknowledgeFailed(long sequence) {
+        boolean found = false;
+        for (RingBufferDispatcher worker : this.workers) found |= worker.acknowledgeFailed(sequence);
+        return found;
+    }
+
+    @Override
+    public void close() {
+        for (RingBufferDispatcher worker : this.workers) worker.close();
+    }
+}
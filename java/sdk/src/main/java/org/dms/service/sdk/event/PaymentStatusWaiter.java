@@ -0,0 +1,126 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Completes futures when a payment reaches one of the expected statuses.
+ * It is the listener of a TaskEventCollector shared by all the terminals, so waiting for a payment
+ * does not poll the relay server. Only when the status is not seen in time, the payment is requested once.
+ * Register the wait before the action that changes the status, so the event can not be missed.
+ */
+public class PaymentStatusWaiter implements ITaskEventListener {
+    private static final class Waiter {
+        final Set<Integer> statuses;
+        final CompletableFuture<PaymentTaskItem> future;
+
+        Waiter(Set<Integer> statuses) {
+            this.statuses = statuses;
+            this.future = new CompletableFuture<>();
+        }
+    }
+
+    private final PaymentClient client;
+    private final ITaskEventListener listener;
+    private final ConcurrentHashMap<String, List<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param client The client used for the request after a timeout
+     */
+    public PaymentStatusWaiter(@NotNull PaymentClient client) {
+        this(client, null);
+    }
+
+    /**
+     * Constructor
+     * @param client The client used for the request after a timeout
+     * @param listener The listener that also receives all the events, it may be null
+     */
+    public PaymentStatusWaiter(@NotNull PaymentClient client, ITaskEventListener listener) {
+        this.client = client;
+        this.listener = listener;
+    }
+
+    /**
+     * Wait until the payment has one of the statuses
+     * @param paymentId The payment ID
+     * @param statuses The expected values of paymentStatus
+     * @param timeout The time to wait for the event, in milliseconds
+     * @return The future of the payment. After the timeout it fails with a TimeoutException
+     * if the payment still has none of the statuses.
+     */
+    public CompletableFuture<PaymentTaskItem> awaitPaymentStatus(@NotNull String paymentId, @NotNull Set<Integer> statuses, long timeout) {
+        Waiter waiter = new Waiter(Set.copyOf(statuses));
+        this.waiters.compute(paymentId, (key, list) -> {
+            if (list == null) list = new ArrayList<>(1);
+            list.add(waiter);
+            return list;
+        });
+        waiter.future.whenComplete((item, error) -> this.remove(paymentId, waiter));
+        CompletableFuture.delayedExecutor(timeout, TimeUnit.MILLISECONDS).execute(() -> this.onTimeout(paymentId, waiter));
+        return waiter.future;
+    }
+
+    /**
+     * Provide the number of payments that are waited for
+     */
+    public int getPendingPayments() {
+        return this.waiters.size();
+    }
+
+    private void remove(String paymentId, Waiter waiter) {
+        this.waiters.computeIfPresent(paymentId, (key, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private void onTimeout(String paymentId, Waiter waiter) {
+        if (waiter.future.isDone()) return;
+        this.remove(paymentId, waiter);
+        this.client.getPaymentItemAsync(paymentId).whenComplete((item, error) -> {
+            if (error != null) {
+                waiter.future.completeExceptionally(error);
+            } else if (waiter.statuses.contains(item.paymentStatus)) {
+                waiter.future.complete(item);
+            } else {
+                waiter.future.completeExceptionally(new TimeoutException(
+                        String.format("The payment %s has the status %d", paymentId, item.paymentStatus)
+                ));
+            }
+        });
+    }
+
+    @Override
+    public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+        if (paymentTaskItem != null && paymentTaskItem.paymentId != null) {
+            List<Waiter> completed = new ArrayList<>();
+            this.waiters.computeIfPresent(paymentTaskItem.paymentId, (key, list) -> {
+                list.removeIf(waiter -> {
+                    if (!waiter.statuses.contains(paymentTaskItem.paymentStatus)) return false;
+                    completed.add(waiter);
+                    return true;
+                });
+                return list.isEmpty() ? null : list;
+            });
+            for (Waiter waiter : completed) waiter.future.complete(paymentTaskItem);
+        }
+        if (this.listener != null) this.listener.onNewPaymentEvent(type, code, message, sequence, paymentTaskItem);
+    }
+
+    @Override
+    public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+        if (this.listener != null) this.listener.onNewShopEvent(type, code, message, sequence, shopTaskItem);
+    }
+}
@@ -0,0 +1,253 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands the events over to a consumer thread through a preallocated ring buffer.
+ * The polling thread is the only producer, so publishing an event is a plain write to a slot
+ * followed by an ordered write of the cursor. The consumer takes every event that is available at once
+ * and tells a batch listener when the batch is delivered. The events of a batch are completed at the end of the batch.
+ * When the buffer is full the producer waits, so a slow listener slows down the polling instead of filling the memory.
+ * An event whose listener failed, even with an Error, is kept and not completed, so the checkpoint stays below it.
+ * It is delivered again on the consumer thread after retryFailed, or given up with acknowledgeFailed.
+ * Otherwise it is delivered again when the collector is started again.
+ */
+public class RingBufferDispatcher implements ITaskEventDispatcher, Runnable {
+    private static final class Slot {
+        TaskEvent event;
+    }
+
+    private final ITaskEventListener listener;
+    private final WaitStrategy waitStrategy;
+    private final Slot[] slots;
+    private final int mask;
+
+    /**
+     * The sequence of the last slot published by the producer
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+    /**
+     * The sequence of the last slot delivered by the consumer
+     */
+    private final AtomicLong consumed = new AtomicLong(-1);
+    /**
+     * The events whose listener failed, by sequence
+     */
+    private final ConcurrentSkipListMap<Long, TaskEvent> failed = new ConcurrentSkipListMap<>();
+    private final AtomicLong failedCount = new AtomicLong();
+    private volatile boolean retry;
+
+    /**
+     * The sequence of the event in each slot, kept by the producer
+     */
+    private final long[] sequences;
+    private long dispatched = -1;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Constructor with 1024 slots that parks while waiting
+     * @param listener The listener of the events
+     */
+    public RingBufferDispatcher(@NotNull ITaskEventListener listener) {
+        this(listener, 1024, WaitStrategy.PARK);
+    }
+
+    /**
+     * Constructor
+     * @param listener The listener of the events. If it is an ITaskEventBatchListener, it is told the end of each batch.
+     * @param capacity The number of slots, a power of two
+     * @param waitStrategy How the producer and the consumer wait for each other
+     */
+    public RingBufferDispatcher(@NotNull ITaskEventListener listener, int capacity, @NotNull WaitStrategy waitStrategy) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two");
+        this.listener = listener;
+        this.waitStrategy = waitStrategy;
+        this.slots = new Slot[capacity];
+        this.sequences = new long[capacity];
+        for (int idx = 0; idx < capacity; idx++) this.slots[idx] = new Slot();
+        this.mask = capacity - 1;
+    }
+
+    public int getCapacity() {
+        return this.slots.length;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (this.thread != null) return;
+        this.running = true;
+        this.thread = new Thread(this, "RingBufferDispatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    @Override
+    public void dispatch(@NotNull TaskEvent event) throws InterruptedException {
+        long next = this.cursor.get() + 1;
+        int counter = 0;
+        while (next - this.consumed.get() > this.slots.length) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            this.waitStrategy.idle(counter++);
+        }
+        this.slots[(int) next & this.mask].event = event;
+        this.sequences[(int) next & this.mask] = event.sequence;
+        if (event.sequence > this.dispatched) this.dispatched = event.sequence;
+        this.cursor.lazySet(next);
+    }
+
+    /**
+     * Events that were refetched may be dispatched after higher sequences,
+     * so the completed sequence is held below the lowest sequence that is not delivered yet.
+     * It must be called by the producer.
+     */
+    @Override
+    public long getCompletedSequence() {
+        return Math.min(this.dispatched, this.getPendingFloor());
+    }
+
+    /**
+     * Provide the sequence below the lowest one that is not delivered yet or whose listener failed,
+     * or Long.MAX_VALUE if all were delivered.
+     * It must be called by the producer.
+     */
+    long getPendingFloor() {
+        Map.Entry<Long, TaskEvent> lowest = this.failed.firstEntry();
+        long floor = (lowest != null) ? lowest.getKey() - 1 : Long.MAX_VALUE;
+        long cursor = this.cursor.get();
+        for (long next = this.consumed.get() + 1; next <= cursor; next++) {
+            floor = Math.min(floor, this.sequences[(int) next & this.mask] - 1);
+        }
+        return floor;
+    }
+
+    /**
+     * Provide the number of events and batches whose listener failed
+     */
+    public long getFailedCount() {
+        return this.failedCount.get();
+    }
+
+    /**
+     * Provide the sequences of the events whose listener failed and that were not acknowledged
+     */
+    public List<Long> getFailedSequences() {
+        return new ArrayList<>(this.failed.keySet());
+    }
+
+    /**
+     * Deliver the events whose listener failed again, on the consumer thread.
+     * They are completed when their listener succeeds.
+     */
+    public void retryFailed() {
+        this.retry = true;
+    }
+
+    /**
+     * Give up an event whose listener failed, so the checkpoint moves above it
+     * @param sequence The sequence of the event
+     * @return False if no event of the sequence failed
+     */
+    public boolean acknowledgeFailed(long sequence) {
+        return this.failed.remove(sequence) != null;
+    }
+
+    /**
+     * Call the listener, keeping the event when it failed
+     * @return False if the listener failed
+     */
+    private boolean deliver(@NotNull TaskEvent event) {
+        try {
+            ITaskEventDispatcher.deliver(this.listener, event);
+            return true;
+        } catch (Throwable e) {
+            this.failedCount.incrementAndGet();
+            this.failed.put(event.sequence, event);
+            return false;
+        }
+    }
+
+    /**
+     * Tell a batch listener the end of a batch
+     * @return False if the listener failed
+     */
+    private boolean endOfBatch(long sequence) {
+        if (!(this.listener instanceof ITaskEventBatchListener)) return true;
+        try {
+            ((ITaskEventBatchListener) this.listener).onEndOfBatch(sequence);
+            return true;
+        } catch (Throwable e) {
+            this.failedCount.incrementAndGet();
+            return false;
+        }
+    }
+
+    /**
+     * Deliver the failed events again as one batch
+     */
+    private void redeliver() {
+        this.retry = false;
+        List<TaskEvent> delivered = new ArrayList<>();
+        for (TaskEvent event : this.failed.values()) {
+            if (this.deliver(event)) delivered.add(event);
+        }
+        if (delivered.isEmpty() || !this.endOfBatch(delivered.get(delivered.size() - 1).sequence)) return;
+        for (TaskEvent event : delivered) this.failed.remove(event.sequence, event);
+    }
+
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = this.thread;
+            this.thread = null;
+        }
+        if (thread == null) return;
+        this.running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void run() {
+        int counter = 0;
+        long next = this.consumed.get() + 1;
+        boolean batched = this.listener instanceof ITaskEventBatchListener;
+        List<TaskEvent> batch = new ArrayList<>();
+        while (true) {
+            if (this.retry) this.redeliver();
+            long available = this.cursor.get();
+            if (available < next) {
+                // The cursor is read again after the stop, so the last events are not left behind
+                if (!this.running && this.cursor.get() < next && !this.retry) break;
+                this.waitStrategy.idle(counter++);
+                continue;
+            }
+            counter = 0;
+            long last = -1;
+            for (long seq = next; seq <= available; seq++) {
+                Slot slot = this.slots[(int) seq & this.mask];
+                TaskEvent event = slot.event;
+                slot.event = null;
+                if (this.deliver(event) && batched) batch.add(event);
+                last = Math.max(last, event.sequence);
+            }
+            if (!this.endOfBatch(last)) {
+                // The batch is not finished, so none of its events is completed
+                for (TaskEvent event : batch) this.failed.put(event.sequence, event);
+            }
+            batch.clear();
+            this.consumed.lazySet(available);
+            next = available + 1;
+        }
+    }
+}
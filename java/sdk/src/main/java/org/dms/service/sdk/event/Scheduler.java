@@ -1,24 +1,56 @@
 package org.dms.service.sdk.event;
 
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+
 enum ScheduleState {
     NONE, STARTING, RUNNING, STOPPING, STOPPED
 }
 
 public abstract class Scheduler implements Runnable {
     private Thread thread;
-    private Boolean done;
-    private ScheduleState state;
+    private volatile boolean done;
+    private volatile ScheduleState state;
+    private final Object signal = new Object();
+    private SchedulerEngine engine;
+    private ScheduledFuture<?> pending;
+    private CountDownLatch finished;
+    private boolean started;
+    private boolean stepping;
+    private long generation;
 
     public Scheduler() {
         this.state = ScheduleState.NONE;
     }
 
     public void start() {
-        if (this.thread == null) {
-            this.state = ScheduleState.STARTING;
-            this.done = false;
-            this.thread = new Thread(this);
-            this.thread.start();
+        synchronized (this.signal) {
+            if (this.thread == null && this.engine == null) {
+                this.state = ScheduleState.STARTING;
+                this.done = false;
+                this.thread = new Thread(this);
+                this.thread.start();
+            }
+        }
+    }
+
+    /**
+     * Start on a shared engine instead of a thread of its own.
+     * onWork holds a thread of the engine until it returns, including while it waits for the network.
+     * @param engine The engine
+     */
+    public void start(@NotNull SchedulerEngine engine) {
+        synchronized (this.signal) {
+            if (this.thread == null && this.engine == null) {
+                this.state = ScheduleState.STARTING;
+                this.done = false;
+                this.engine = engine;
+                this.started = false;
+                this.finished = new CountDownLatch(1);
+                this.pending = engine.schedule(this.nextStep(), 0);
+            }
         }
     }
 
@@ -26,14 +58,105 @@ public abstract class Scheduler implements Runnable {
         try {
             this.state = ScheduleState.STOPPING;
             this.done = true;
-            this.thread.join();
+            SchedulerEngine engine;
+            boolean waiting = false;
+            synchronized (this.signal) {
+                this.signal.notifyAll();
+                engine = this.engine;
+                // A step that is already running finishes by itself
+                if (engine != null && !this.stepping && this.pending != null) {
+                    this.generation++;
+                    this.pending.cancel(false);
+                    this.pending = null;
+                    waiting = true;
+                }
+            }
+            if (engine == null) {
+                this.thread.join();
+                return;
+            }
+            if (waiting) this.finish();
+            this.finished.await();
+            synchronized (this.signal) {
+                this.engine = null;
+            }
         } catch (Exception ignore) {
         }
     }
 
+    /**
+     * Provide the next turn. A turn that was replaced or cancelled does nothing when it runs.
+     */
+    private Runnable nextStep() {
+        long generation = ++this.generation;
+        return () -> this.step(generation);
+    }
+
+    /**
+     * One turn on the engine: start if needed, work once and schedule the next turn.
+     * A turn that fails with an Error, or that can not be scheduled again, finishes the scheduler.
+     */
+    private void step(long generation) {
+        synchronized (this.signal) {
+            if (generation != this.generation) return;
+            this.stepping = true;
+        }
+        boolean failed = true;
+        try {
+            if (!this.started) {
+                this.started = true;
+                this.startSafely();
+                if (this.state == ScheduleState.STARTING) this.state = ScheduleState.RUNNING;
+            }
+            if (!this.done) {
+                try {
+                    this.onWork();
+                } catch (Exception e) {
+                    System.out.println("Failed to execute a scheduler");
+                }
+            }
+            failed = false;
+        } finally {
+            boolean finish = false;
+            synchronized (this.signal) {
+                this.stepping = false;
+                if (failed) this.done = true;
+                if (!this.done) {
+                    try {
+                        this.pending = this.engine.schedule(this.nextStep(), this.getWorkInterval());
+                    } catch (RuntimeException e) {
+                        this.done = true;
+                    }
+                }
+                if (this.done) {
+                    this.pending = null;
+                    finish = true;
+                }
+            }
+            if (finish) this.finish();
+        }
+    }
+
+    private void startSafely() {
+        try {
+            this.onStart();
+        } catch (Exception e) {
+            System.out.println("Failed to start a scheduler");
+        }
+    }
+
+    private void finish() {
+        this.state = ScheduleState.STOPPED;
+        try {
+            if (this.started) this.onStop();
+        } finally {
+            this.finished.countDown();
+        }
+    }
+
     public void run() {
 
-        this.onStart();
+        this.startSafely();
 
         while (!this.done) {
             if (this.state == ScheduleState.STOPPED) break;
@@ -45,7 +168,12 @@ public abstract class Scheduler implements Runnable {
             }
 
             try {
-                Thread.sleep(100);
+                long interval = this.getWorkInterval();
+                if (interval > 0) {
+                    synchronized (this.signal) {
+                        if (!this.done) this.signal.wait(interval);
+                    }
+                }
             } catch (Exception ignore) {
             }
 
@@ -57,6 +185,20 @@ public abstract class Scheduler implements Runnable {
         this.onStop();
     }
 
+    /**
+     * Check if the scheduler was asked to stop
+     */
+    protected boolean isStopping() {
+        return this.done;
+    }
+
+    /**
+     * Provide the time to wait after onWork, in milliseconds. The wait ends early when the scheduler is stopped.
+     */
+    protected long getWorkInterval() {
+        return 100;
+    }
+
     public abstract void onStart();
     public abstract void onWork();
     public abstract void onStop();
@@ -0,0 +1,88 @@
+package org.dms.service.sdk.event;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many schedulers on a small pool of threads.
+ * A scheduler started on the engine does not own a thread. Each call of onWork is a task,
+ * and the next one is scheduled after the work interval, so a scheduler holds a thread only while it works
+ * and all schedulers take turns on the pool.
+ * The onWork of a collector blocks on its requests to the relay server, so a thread is held for the time of
+ * the requests rather than for the time of the computation. The number of threads is the number of schedulers
+ * that may wait for the relay server at once, and is sized for that rather than for the processors.
+ */
+public class SchedulerEngine {
+    /**
+     * The threads of the shared engine per processor, as its threads mostly wait for the network
+     */
+    static final int BLOCKING_FACTOR = 4;
+    /**
+     * The minimum number of threads of the shared engine
+     */
+    static final int MIN_THREADS = 8;
+
+    private static volatile SchedulerEngine defaultEngine;
+
+    private final ScheduledExecutorService executor;
+    private final int threads;
+
+    /**
+     * Constructor
+     * @param threads The number of threads of the pool, that is the number of schedulers that work at once.
+     *                It should cover the schedulers that may wait for the network at the same time.
+     */
+    public SchedulerEngine(int threads) {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive");
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "SchedulerEngine-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Provide the engine shared in the process, with four threads per processor and at least eight threads
+     */
+    public static SchedulerEngine getDefault() {
+        SchedulerEngine engine = defaultEngine;
+        if (engine == null) {
+            synchronized (SchedulerEngine.class) {
+                engine = defaultEngine;
+                if (engine == null) {
+                    engine = new SchedulerEngine(Math.max(MIN_THREADS, Runtime.getRuntime().availableProcessors() * BLOCKING_FACTOR));
+                    defaultEngine = engine;
+                }
+            }
+        }
+        return engine;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Start a scheduler on this engine
+     * @param scheduler The scheduler
+     */
+    public void start(Scheduler scheduler) {
+        scheduler.start(this);
+    }
+
+    ScheduledFuture<?> schedule(Runnable task, long delay) {
+        return this.executor.schedule(task, Math.max(0, delay), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the threads. The schedulers should be stopped before.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+    }
+}
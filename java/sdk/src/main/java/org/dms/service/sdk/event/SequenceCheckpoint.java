@@ -0,0 +1,102 @@
+package org.dms.service.sdk.event;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The last acknowledged task sequence, kept in a small memory-mapped file.
+ * Each save is a write to mapped memory. It is forced to the disk at most once per sync interval,
+ * and when the checkpoint is flushed or closed.
+ * Two slots are written alternately with a check value, so a torn write never loses the previous sequence.
+ */
+public class SequenceCheckpoint implements Closeable {
+    private static final int SLOT_SIZE = 16;
+    private static final long CHECK = 0x5E9C5E9C5E9C5E9CL;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final long syncInterval;
+
+    private long sequence;
+    private int slot;
+    private boolean dirty;
+    private long lastSync;
+
+    /**
+     * Constructor with a sync interval of one second
+     * @param path The checkpoint file, it is created when missing
+     * @throws IOException Error while opening the file
+     */
+    public SequenceCheckpoint(@NotNull Path path) throws IOException {
+        this(path, 1000);
+    }
+
+    /**
+     * Constructor
+     * @param path The checkpoint file, it is created when missing
+     * @param syncInterval The minimum time between two writes to the disk, in milliseconds
+     * @throws IOException Error while opening the file
+     */
+    public SequenceCheckpoint(@NotNull Path path, long syncInterval) throws IOException {
+        this.syncInterval = syncInterval;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, SLOT_SIZE * 2);
+        this.sequence = -1;
+        this.slot = 0;
+        for (int idx = 0; idx < 2; idx++) {
+            long value = this.buffer.getLong(idx * SLOT_SIZE);
+            long check = this.buffer.getLong(idx * SLOT_SIZE + 8);
+            if ((value ^ CHECK) == check && value > this.sequence) {
+                this.sequence = value;
+                this.slot = idx;
+            }
+        }
+        this.lastSync = System.nanoTime();
+    }
+
+    /**
+     * Provide the saved sequence
+     * @return The sequence, or -1 if nothing was saved
+     */
+    public synchronized long load() {
+        return this.sequence;
+    }
+
+    /**
+     * Save the sequence. A sequence lower than the saved one is ignored.
+     * @param sequence The last acknowledged sequence
+     */
+    public synchronized void save(long sequence) {
+        if (sequence <= this.sequence) return;
+        this.sequence = sequence;
+        this.slot ^= 1;
+        this.buffer.putLong(this.slot * SLOT_SIZE, sequence);
+        this.buffer.putLong(this.slot * SLOT_SIZE + 8, sequence ^ CHECK);
+        this.dirty = true;
+        if (System.nanoTime() - this.lastSync >= this.syncInterval * 1_000_000L) {
+            flush();
+        }
+    }
+
+    /**
+     * Write the saved sequence to the disk
+     */
+    public synchronized void flush() {
+        if (!this.dirty) return;
+        this.buffer.force();
+        this.dirty = false;
+        this.lastSync = System.nanoTime();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        this.channel.close();
+    }
+}
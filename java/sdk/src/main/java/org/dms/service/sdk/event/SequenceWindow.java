@@ -0,0 +1,120 @@
+package org.dms.service.sdk.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The task sequences received above a base, kept as a bitmap.
+ * Every sequence up to the base was received or given up. The base moves forward as soon as
+ * the sequence after it is received, so the bitmap only covers the sequences that arrived out of order.
+ */
+public class SequenceWindow {
+    private final long[] bits;
+    private final int mask;
+    private long base;
+    private long highest;
+
+    /**
+     * Constructor
+     * @param base The last sequence already received
+     * @param capacity The number of sequences the window can hold above the base, a power of two
+     */
+    public SequenceWindow(long base, int capacity) {
+        if (capacity < 64 || Integer.bitCount(capacity) != 1) throw new IllegalArgumentException("capacity must be a power of two of 64 or more");
+        this.bits = new long[capacity >>> 6];
+        this.mask = capacity - 1;
+        this.base = base;
+        this.highest = base;
+    }
+
+    public synchronized long getBase() {
+        return this.base;
+    }
+
+    public synchronized long getHighest() {
+        return this.highest;
+    }
+
+    /**
+     * Record a received sequence. When it is too far above the base, the window slides
+     * and the sequences that were not received below it are given up.
+     * @param sequence The sequence
+     * @return False if the sequence was already received
+     */
+    public synchronized boolean mark(long sequence) {
+        if (sequence <= this.base || this.isSet(sequence)) return false;
+        if (sequence - this.base > this.bits.length * 64L) {
+            this.skipTo(sequence - this.bits.length * 64L);
+        }
+        int idx = (int) (sequence & this.mask);
+        this.bits[idx >>> 6] |= 1L << idx;
+        if (sequence > this.highest) this.highest = sequence;
+        this.advance();
+        return true;
+    }
+
+    /**
+     * Provide the ranges of sequences that are missing below the highest sequence received
+     * @return The ranges as pairs of the first and the last missing sequence
+     */
+    public synchronized List<long[]> getGaps() {
+        List<long[]> gaps = new ArrayList<>();
+        long start = -1;
+        for (long sequence = this.base + 1; sequence <= this.highest; sequence++) {
+            if (!this.isSet(sequence)) {
+                if (start < 0) start = sequence;
+            } else if (start >= 0) {
+                gaps.add(new long[]{start, sequence - 1});
+                start = -1;
+            }
+        }
+        return gaps;
+    }
+
+    /**
+     * Give up the sequences up to the target that were not received
+     * @param target The new base
+     * @return The number of sequences given up
+     */
+    public synchronized long skipTo(long target) {
+        if (target <= this.base) return 0;
+        long skipped = 0;
+        if (target >= this.highest) {
+            long received = 0;
+            for (long word : this.bits) received += Long.bitCount(word);
+            Arrays.fill(this.bits, 0L);
+            skipped = target - this.base - received;
+            this.base = target;
+            this.highest = target;
+            return skipped;
+        }
+        while (this.base < target) {
+            long sequence = this.base + 1;
+            if (this.isSet(sequence)) this.clear(sequence);
+            else skipped++;
+            this.base = sequence;
+        }
+        if (this.highest < this.base) this.highest = this.base;
+        this.advance();
+        return skipped;
+    }
+
+    private boolean isSet(long sequence) {
+        if (sequence <= this.base || sequence - this.base > this.bits.length * 64L) return false;
+        int idx = (int) (sequence & this.mask);
+        return (this.bits[idx >>> 6] & (1L << idx)) != 0;
+    }
+
+    private void clear(long sequence) {
+        int idx = (int) (sequence & this.mask);
+        this.bits[idx >>> 6] &= ~(1L << idx);
+    }
+
+    private void advance() {
+        while (this.base < this.highest && this.isSet(this.base + 1)) {
+            this.clear(this.base + 1);
+            this.base++;
+        }
+    }
+}
@@ -1,74 +1,374 @@
 package org.dms.service.sdk.event;
 
 import org.dms.service.sdk.client.PaymentClient;
-import org.dms.service.sdk.data.payment.PaymentTaskItem;
-import org.dms.service.sdk.data.payment.ShopTaskItem;
-import org.json.JSONArray;
-import org.json.JSONObject;
+import org.dms.service.sdk.data.payment.TaskEvent;
 
-import java.util.Objects;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class TaskEventCollector extends Scheduler {
 
     private PaymentClient client = null;
-    private ITaskEventListener listener = null;
+    private final ITaskEventDispatcher dispatcher;
     private long sequence = 0;
+    private final AdaptivePolling polling;
+    private final SequenceCheckpoint checkpoint;
+    private boolean received = false;
+
+    private static final int WINDOW_SIZE = 4096;
+    private SequenceWindow window = null;
+    /**
+     * The events received above a gap, or not dispatched yet because an earlier dispatch failed
+     */
+    private final TreeMap<Long, TaskEvent> held = new TreeMap<>();
+    private long countedGapsTo;
+    private long stalledBase;
+    private int stalledPolls;
+    private boolean refetchFailed;
+    private volatile int gapPolls = 3;
+    private final AtomicLong gapCount = new AtomicLong();
+    private final AtomicLong refetchCount = new AtomicLong();
+    private final AtomicLong duplicateCount = new AtomicLong();
+    private final AtomicLong lostCount = new AtomicLong();
+
+    private volatile long catchUpThreshold = 1000;
+    private volatile int catchUpParallelism = 4;
+    private volatile int pageSize = 100;
 
     public TaskEventCollector(PaymentClient client, ITaskEventListener listener) {
+        this(client, listener, new AdaptivePolling());
+    }
+
+    /**
+     * Constructor
+     * @param client The client of the relay server
+     * @param listener The listener of the events
+     * @param polling The strategy of the interval between polls
+     */
+    public TaskEventCollector(PaymentClient client, ITaskEventListener listener, AdaptivePolling polling) {
+        this(client, listener, polling, null);
+    }
+
+    /**
+     * Constructor
+     * @param client The client of the relay server
+     * @param listener The listener of the events
+     * @param polling The strategy of the interval between polls
+     * @param checkpoint The checkpoint of the last acknowledged sequence. When it is null, collecting starts from the latest sequence.
+     */
+    public TaskEventCollector(PaymentClient client, ITaskEventListener listener, AdaptivePolling polling, SequenceCheckpoint checkpoint) {
+        this(client, new DirectDispatcher(listener), polling, checkpoint);
+    }
+
+    /**
+     * Constructor
+     * @param client The client of the relay server
+     * @param dispatcher The delivery of the events to the listeners
+     * @param polling The strategy of the interval between polls
+     * @param checkpoint The checkpoint of the last acknowledged sequence. When it is null, collecting starts from the latest sequence.
+     */
+    public TaskEventCollector(PaymentClient client, ITaskEventDispatcher dispatcher, AdaptivePolling polling, SequenceCheckpoint checkpoint) {
         this.client = client;
-        this.listener = listener;
+        this.dispatcher = dispatcher;
+        this.polling = polling;
+        this.checkpoint = checkpoint;
     }
 
     public void onStart() {
         System.out.println("TaskEventCollector:onStart");
+        this.dispatcher.start();
+        this.window = null;
+        this.held.clear();
+        this.stalledPolls = 0;
         try {
-            this.sequence = this.client.getLatestTaskSequence();
-            System.out.printf("Received sequence = %d\n", this.sequence);
+            long saved = (this.checkpoint != null) ? this.checkpoint.load() : -1;
+            if (saved >= 0) {
+                this.sequence = saved;
+                System.out.printf("Resumed sequence = %d\n", this.sequence);
+                this.window = new SequenceWindow(this.sequence, WINDOW_SIZE);
+                this.countedGapsTo = this.sequence;
+                this.catchUp();
+            } else {
+                this.sequence = this.client.getLatestTaskSequence();
+                System.out.printf("Received sequence = %d\n", this.sequence);
+            }
         } catch (Exception ignored) {
 
         }
+        if (this.window == null) {
+            this.window = new SequenceWindow(this.sequence, WINDOW_SIZE);
+            this.countedGapsTo = this.sequence;
+        }
+        this.stalledBase = this.window.getBase();
+    }
+
+    /**
+     * Deliver the events that were registered while the collector was not running.
+     * Pages are requested back to back until the latest sequence at the start is reached.
+     * While the backlog is larger than the catch-up threshold, several pages are requested at once.
+     */
+    private void catchUp() throws Exception {
+        long latest = this.client.getLatestTaskSequence();
+        while (this.sequence < latest && !this.isStopping() && this.dispatcher.isReady()) {
+            if (this.catchUpParallelism > 1 && latest - this.sequence > this.catchUpThreshold) {
+                this.fetchParallel(latest);
+                continue;
+            }
+            List<TaskEvent> tasks = this.client.getTaskEvents(this.sequence);
+            if (tasks.isEmpty()) break;
+            this.dispatch(tasks);
+        }
+    }
+
+    /**
+     * Request the pages up to the latest sequence with a bounded number of requests at once,
+     * and dispatch them in the order of the sequences as they complete.
+     * A page that is shorter than expected leaves a gap, which is refetched as usual.
+     */
+    private void fetchParallel(long latest) throws Exception {
+        ArrayDeque<CompletableFuture<List<TaskEvent>>> pages = new ArrayDeque<>();
+        long next = this.sequence;
+        try {
+            while (!this.isStopping()) {
+                while (pages.size() < this.catchUpParallelism && next < latest && this.dispatcher.isReady()) {
+                    pages.add(this.client.getTaskEventsAsync(next));
+                    next += this.pageSize;
+                }
+                CompletableFuture<List<TaskEvent>> page = pages.poll();
+                if (page == null) break;
+                this.dispatch(page.join());
+            }
+        } finally {
+            for (CompletableFuture<List<TaskEvent>> page : pages) page.cancel(false);
+        }
+    }
+
+    /**
+     * Set when the collector requests several pages at once
+     * @param threshold The number of sequences behind the latest one above which the catch-up starts
+     * @param parallelism The maximum number of pages requested at once, 1 to disable
+     */
+    public void setCatchUp(long threshold, int parallelism) {
+        if (threshold < 0 || parallelism < 1) throw new IllegalArgumentException("Invalid catch-up threshold or parallelism");
+        this.catchUpThreshold = threshold;
+        this.catchUpParallelism = parallelism;
+    }
+
+    public long getCatchUpThreshold() {
+        return this.catchUpThreshold;
+    }
+
+    public int getCatchUpParallelism() {
+        return this.catchUpParallelism;
+    }
+
+    /**
+     * Set the number of tasks in a full page, the limit of `/v1/task/list` of the relay server.
+     * A full page makes the collector catch up, and the pages requested at once are this far apart.
+     * @param pageSize The maximum number of tasks responded by the relay server, 100 by default
+     */
+    public void setPageSize(int pageSize) {
+        if (pageSize < 1) throw new IllegalArgumentException("Invalid page size");
+        this.pageSize = pageSize;
+    }
+
+    public int getPageSize() {
+        return this.pageSize;
+    }
+
+    /**
+     * Set the number of polls a gap stays open before its sequences are given up.
+     * The events above a gap are held until it is filled or given up. A poll whose refetch failed is not counted.
+     * @param polls The number of polls, 3 by default
+     */
+    public void setGapPolls(int polls) {
+        if (polls < 1) throw new IllegalArgumentException("Invalid number of polls");
+        this.gapPolls = polls;
+    }
+
+    public int getGapPolls() {
+        return this.gapPolls;
     }
 
     public void onWork() {
+        this.received = false;
+        // Wait with the usual back-off while the dispatcher has no room
+        if (!this.dispatcher.isReady()) return;
         try {
-            JSONArray tasks = this.client.getTasks(this.sequence);
-            for (int idx = 0; idx < tasks.length(); idx++) {
-                JSONObject task = tasks.getJSONObject(idx);
-                String dataType = task.getString("type");
-                int code = task.getInt("code");
-                String message = task.getString("message");
-                long sequence = task.getLong("sequence");
-                if (sequence > this.sequence) this.sequence = sequence;
-                System.out.printf("Received sequence = %d\n", this.sequence);
+            this.refetchFailed = false;
+            List<TaskEvent> tasks = this.client.getTaskEvents(this.sequence);
+            this.received = !tasks.isEmpty();
+            this.dispatch(tasks);
+            // A full page means the collector may be far behind
+            if (this.received && tasks.size() >= this.pageSize) this.catchUp();
+            this.expireGap();
+            if (!this.received && this.checkpoint != null) {
+                this.acknowledge();
+                this.checkpoint.flush();
+            }
+        } catch (Exception ignored) {
+
+        }
+    }
+
+    /**
+     * Deliver the new events of a page in the order of the sequences.
+     * The gaps are refetched first, and the events above a gap that is still open are held,
+     * so an event is never delivered after a later one.
+     */
+    private void dispatch(List<TaskEvent> tasks) throws Exception {
+        for (TaskEvent task : tasks) {
+            if (!this.window.mark(task.sequence)) {
+                this.duplicateCount.incrementAndGet();
+                continue;
+            }
+            if (task.sequence > this.sequence) this.sequence = task.sequence;
+            this.held.put(task.sequence, task);
+        }
+        this.backfill();
+        this.deliver();
+        this.acknowledge();
+    }
 
-                JSONObject data = task.getJSONObject("data");
-                if (Objects.equals(dataType, "pay_new") || Objects.equals(dataType, "pay_cancel")) {
-                    PaymentTaskItem payment = PaymentTaskItem.fromJSONObject(data);
-                    this.listener.onNewPaymentEvent(
-                            dataType,
-                            code,
-                            message,
-                            sequence,
-                            payment
-                    );
-                } else {
-                    ShopTaskItem shop = ShopTaskItem.fromJSONObject(data);
-                    this.listener.onNewShopEvent(
-                            dataType,
-                            code,
-                            message,
-                            sequence,
-                            shop
-                    );
+    /**
+     * Dispatch the held events up to the base of the window, in the order of the sequences.
+     * An event is taken off before it is dispatched, so when a dispatch fails the next events are dispatched on the next poll.
+     */
+    private void deliver() throws Exception {
+        long base = this.window.getBase();
+        while (!this.held.isEmpty() && this.held.firstKey() <= base) {
+            TaskEvent task = this.held.pollFirstEntry().getValue();
+            System.out.printf("Received sequence = %d\n", task.sequence);
+            this.dispatcher.dispatch(task);
+        }
+    }
+
+    /**
+     * Request again the sequences missing below the highest one received, one request per gap in parallel.
+     * The events found are held until they are delivered.
+     */
+    private void backfill() {
+        List<long[]> gaps = this.window.getGaps();
+        if (gaps.isEmpty()) return;
+        for (long[] gap : gaps) {
+            if (gap[0] > this.countedGapsTo) this.gapCount.incrementAndGet();
+        }
+        this.countedGapsTo = this.window.getHighest();
+
+        List<CompletableFuture<List<TaskEvent>>> futures = new ArrayList<>(gaps.size());
+        for (long[] gap : gaps) futures.add(this.refetch(gap[0], gap[1]));
+        for (CompletableFuture<List<TaskEvent>> future : futures) {
+            try {
+                for (TaskEvent task : future.join()) {
+                    if (!this.window.mark(task.sequence)) continue;
+                    System.out.printf("Refetched sequence = %d\n", task.sequence);
+                    this.held.put(task.sequence, task);
                 }
+            } catch (Exception e) {
+                this.refetchFailed = true;
+                System.out.println("Failed to refetch task events");
             }
-            Thread.sleep(2000);
-        } catch (Exception ignored) {
+        }
+    }
 
+    /**
+     * Give up the lowest gap when it stayed open for the number of polls, and deliver the events held above it.
+     * A poll whose refetch failed is not counted.
+     */
+    private void expireGap() throws Exception {
+        long base = this.window.getBase();
+        if (base != this.stalledBase || this.window.getHighest() == base) {
+            this.stalledBase = base;
+            this.stalledPolls = 0;
+            return;
         }
+        if (this.refetchFailed || ++this.stalledPolls < this.gapPolls) return;
+
+        List<long[]> gaps = this.window.getGaps();
+        long lost = this.window.skipTo(gaps.get(0)[1]);
+        this.lostCount.addAndGet(lost);
+        System.out.printf("Missing %d task sequences below %d\n", lost, this.window.getBase());
+        this.stalledBase = this.window.getBase();
+        this.stalledPolls = 0;
+        this.deliver();
+        this.acknowledge();
+    }
+
+    /**
+     * Request the events of a range of sequences, page after page until the range is covered
+     */
+    private CompletableFuture<List<TaskEvent>> refetch(long from, long to) {
+        this.refetchCount.incrementAndGet();
+        return this.client.getTaskEventsAsync(from - 1).thenCompose(tasks -> {
+            List<TaskEvent> found = new ArrayList<>();
+            long last = from - 1;
+            for (TaskEvent task : tasks) {
+                if (task.sequence >= from && task.sequence <= to) found.add(task);
+                if (task.sequence > last) last = task.sequence;
+            }
+            if (tasks.isEmpty() || last >= to) return CompletableFuture.completedFuture(found);
+            return this.refetch(last + 1, to).thenApply(more -> {
+                found.addAll(more);
+                return found;
+            });
+        });
+    }
+
+    /**
+     * Provide the number of gaps found in the received sequences
+     */
+    public long getGapCount() {
+        return this.gapCount.get();
+    }
+
+    /**
+     * Provide the number of requests made to fill the gaps
+     */
+    public long getRefetchCount() {
+        return this.refetchCount.get();
+    }
+
+    /**
+     * Provide the number of events received more than once and not delivered again
+     */
+    public long getDuplicateCount() {
+        return this.duplicateCount.get();
+    }
+
+    /**
+     * Provide the number of sequences given up after their gap stayed open for the number of polls
+     */
+    public long getLostCount() {
+        return this.lostCount.get();
+    }
+
+    /**
+     * Save the sequence up to which the events were delivered
+     */
+    private void acknowledge() {
+        if (this.checkpoint == null) return;
+        long completed = this.dispatcher.getCompletedSequence();
+        if (completed >= 0) this.checkpoint.save(completed);
+    }
+
+    /**
+     * Poll again immediately after a page with events, otherwise back off
+     */
+    @Override
+    protected long getWorkInterval() {
+        return this.polling.nextDelay(this.received);
     }
 
     public void onStop() {
         System.out.println("TaskEventCollector:onStop");
+        this.dispatcher.close();
+        if (this.checkpoint != null) {
+            this.acknowledge();
+            this.checkpoint.flush();
+        }
     }
 }
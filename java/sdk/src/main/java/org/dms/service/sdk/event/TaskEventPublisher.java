@@ -0,0 +1,169 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the events of a TaskEventCollector to reactive subscribers.
+ * The collector only polls while every subscriber has requested more events than are waiting for it,
+ * so a slow subscriber pauses the polling instead of filling the memory. The events buffered beyond the demand
+ * are those of the pages requested since the demand was last checked: one page, or as many pages as the catch-up
+ * parallelism of the collector while it catches up, and the events refetched for the gaps.
+ * Events are delivered on the thread of the collector, or on the thread of the subscriber when it requests more.
+ * A subscriber whose onNext throws is cancelled.
+ * The subscribers are completed when the collector stops.
+ */
+public class TaskEventPublisher implements Flow.Publisher<TaskEvent>, ITaskEventDispatcher {
+    private final CopyOnWriteArrayList<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean closed = false;
+    private long dispatched = -1;
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super TaskEvent> subscriber) {
+        // Added before onSubscribe, so a subscriber that cancels in onSubscribe is removed
+        EventSubscription subscription = new EventSubscription(subscriber);
+        this.subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.subscribed = true;
+        if (this.closed) {
+            this.subscriptions.remove(subscription);
+            subscription.complete();
+            return;
+        }
+        subscription.drain();
+    }
+
+    public int getSubscribers() {
+        return this.subscriptions.size();
+    }
+
+    @Override
+    public void start() {
+    }
+
+    /**
+     * Ready when there is at least one subscriber and every subscriber has demand left
+     */
+    @Override
+    public boolean isReady() {
+        if (this.subscriptions.isEmpty()) return false;
+        for (EventSubscription subscription : this.subscriptions) {
+            if (subscription.requested.get() <= subscription.buffered.get()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public void dispatch(@NotNull TaskEvent event) {
+        for (EventSubscription subscription : this.subscriptions) {
+            subscription.offer(event);
+        }
+        if (event.sequence > this.dispatched) this.dispatched = event.sequence;
+    }
+
+    /**
+     * The sequence below the lowest event that is waiting for a subscriber
+     */
+    @Override
+    public long getCompletedSequence() {
+        long completed = this.dispatched;
+        for (EventSubscription subscription : this.subscriptions) {
+            for (TaskEvent event : subscription.queue) {
+                completed = Math.min(completed, event.sequence - 1);
+            }
+        }
+        return completed;
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        for (EventSubscription subscription : this.subscriptions) {
+            subscription.complete();
+        }
+        this.subscriptions.clear();
+    }
+
+    private final class EventSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super TaskEvent> subscriber;
+        private final ConcurrentLinkedQueue<TaskEvent> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger buffered = new AtomicInteger();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile boolean completed = false;
+        /**
+         * Set when onSubscribe returned, nothing else is delivered before
+         */
+        private volatile boolean subscribed = false;
+        private boolean terminated = false;
+
+        EventSubscription(Flow.Subscriber<? super TaskEvent> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(TaskEvent event) {
+            if (this.cancelled) return;
+            this.queue.offer(event);
+            this.buffered.incrementAndGet();
+            this.drain();
+        }
+
+        void complete() {
+            this.completed = true;
+            this.drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.cancel();
+                this.subscriber.onError(new IllegalArgumentException("The number of requested events must be positive"));
+                return;
+            }
+            this.requested.getAndUpdate(value -> (value + n < 0) ? Long.MAX_VALUE : value + n);
+            this.drain();
+        }
+
+        @Override
+        public void cancel() {
+            this.cancelled = true;
+            subscriptions.remove(this);
+            this.queue.clear();
+        }
+
+        /**
+         * Deliver the events for which there is demand. Only one thread delivers at a time.
+         */
+        private void drain() {
+            if (!this.subscribed || this.wip.getAndIncrement() != 0) return;
+            do {
+                try {
+                    while (!this.cancelled && !this.terminated && this.requested.get() > 0) {
+                        TaskEvent event = this.queue.peek();
+                        if (event == null) break;
+                        this.subscriber.onNext(event);
+                        this.queue.poll();
+                        this.buffered.decrementAndGet();
+                        this.requested.getAndUpdate(value -> (value == Long.MAX_VALUE) ? value : value - 1);
+                    }
+                    if (!this.cancelled && !this.terminated && this.completed && this.queue.isEmpty()) {
+                        this.terminated = true;
+                        this.subscriber.onComplete();
+                    }
+                } catch (Throwable e) {
+                    // The subscriber broke the protocol, nothing else is delivered to it
+                    this.cancel();
+                    this.wip.set(0);
+                    return;
+                }
+            } while (this.wip.decrementAndGet() != 0);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.dms.service.sdk.event;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits for the ring buffer to have data or free space
+ */
+public enum WaitStrategy {
+    /**
+     * Spin on the CPU. Lowest latency, but a core is kept busy.
+     */
+    BUSY_SPIN {
+        @Override
+        void idle(int counter) {
+            Thread.onSpinWait();
+        }
+    },
+    /**
+     * Spin for a while, then give the CPU to other threads
+     */
+    YIELD {
+        @Override
+        void idle(int counter) {
+            if (counter < 100) Thread.onSpinWait();
+            else Thread.yield();
+        }
+    },
+    /**
+     * Spin and yield for a while, then sleep briefly. Least CPU while idle.
+     */
+    PARK {
+        @Override
+        void idle(int counter) {
+            if (counter < 100) Thread.onSpinWait();
+            else if (counter < 200) Thread.yield();
+            else LockSupport.parkNanos(100_000);
+        }
+    };
+
+    /**
+     * Wait once
+     * @param counter Number of times the thread has waited for the same condition
+     */
+    abstract void idle(int counter);
+}
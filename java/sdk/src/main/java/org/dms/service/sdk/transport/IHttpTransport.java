@@ -0,0 +1,32 @@
+package org.dms.service.sdk.transport;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The transport through which the clients exchange HTTP requests with the API servers.
+ * Implementations must be safe to use from multiple threads.
+ */
+public interface IHttpTransport {
+    /**
+     * Send a request and wait for the response
+     * @param method GET or POST
+     * @param uri URL
+     * @param body Body of the request, null if there is no body
+     * @return The stream of the response body. It must be closed by the caller.
+     * @throws Exception Error during HTTP communication
+     */
+    InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception;
+
+    /**
+     * Send a request without blocking the calling thread
+     * @param method GET or POST
+     * @param uri URL
+     * @param body Body of the request, null if there is no body
+     * @return The stream of the response body. It must be closed by the caller.
+     */
+    CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body);
+}
@@ -0,0 +1,325 @@
+package org.dms.service.sdk.transport;
+
+import org.dms.service.sdk.utils.CommonUtils;
+import org.dms.service.sdk.utils.MessageSigner;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.web3j.utils.Numeric;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * The transport that answers the requests of the clients in the same process, instead of the relay and save servers.
+ * It serves the `/v1/*` and `/v2/*` routes used by the SDK with an in-memory ledger,
+ * so that encoding, signing and parsing of the SDK can be measured on a machine without network access.
+ * Like the relay, the requests of providers must be signed with the current nonce of the signer, otherwise they are rejected.
+ * Other signatures are not verified.
+ */
+public class InMemoryHttpTransport implements IHttpTransport {
+    private static final int PAYMENT_OPENED_NEW = 11;
+    private static final int PAYMENT_APPROVED_NEW = 15;
+    private static final int PAYMENT_DENIED_NEW = 16;
+    private static final int PAYMENT_CLOSED_NEW = 18;
+    private static final int PAYMENT_FAILED_NEW = 19;
+    private static final int PAYMENT_OPENED_CANCEL = 51;
+    private static final int PAYMENT_APPROVED_CANCEL = 55;
+    private static final int PAYMENT_DENIED_CANCEL = 56;
+    private static final int PAYMENT_CLOSED_CANCEL = 58;
+    private static final int PAYMENT_FAILED_CANCEL = 59;
+
+    private final long chainId;
+    private final int taskPageSize;
+
+    private final AtomicLong idSequence = new AtomicLong(0);
+    private final AtomicLong purchaseSequence = new AtomicLong(0);
+    private final Map<String, BigInteger[]> balances = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> nonces = new ConcurrentHashMap<>();
+    private final Map<String, String> assistants = new ConcurrentHashMap<>();
+    private final Map<String, JSONObject> payments = new ConcurrentHashMap<>();
+    private final ArrayList<JSONObject> tasks = new ArrayList<>();
+
+    /**
+     * Constructor with the chain ID of the test net
+     */
+    public InMemoryHttpTransport() {
+        this(215115, 100);
+    }
+
+    /**
+     * Constructor
+     * @param chainId The Chain ID of side chain that is responded
+     * @param taskPageSize Maximum number of tasks responded by `/v1/task/list`
+     */
+    public InMemoryHttpTransport(long chainId, int taskPageSize) {
+        this.chainId = chainId;
+        this.taskPageSize = taskPageSize;
+    }
+
+    /**
+     * Set the balance responded for the account, phone number or phone hash
+     * @param key Wallet address, phone number or phone hash
+     * @param point Balance of point
+     * @param token Balance of token
+     */
+    public void setBalance(@NotNull String key, BigInteger point, BigInteger token) {
+        balances.put(key.trim().toLowerCase(), new BigInteger[]{point, token});
+    }
+
+    /**
+     * Add a task of the store to the task list, as the relay does when the information of a store is changed
+     * @param type Type of the task
+     * @param shop Data of the task
+     * @return Sequence of the task
+     */
+    public long addShopTask(@NotNull String type, @NotNull JSONObject shop) {
+        return addTask(type, shop);
+    }
+
+    @Override
+    public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+        JSONObject response = new JSONObject();
+        try {
+            JSONObject request = (body == null || body.length == 0) ? new JSONObject() : new JSONObject(new String(body, StandardCharsets.UTF_8));
+            Object data = route(method, uri.getPath(), getQuery(uri), request);
+            response.put("code", 0);
+            response.put("data", data);
+        } catch (RelayError e) {
+            JSONObject error = new JSONObject();
+            error.put("message", e.getMessage());
+            response.put("code", e.code);
+            response.put("error", error);
+        }
+        return new ByteArrayInputStream(response.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+        try {
+            return CompletableFuture.completedFuture(request(method, uri, body));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private Object route(String method, String path, Map<String, String> query, JSONObject body) throws RelayError {
+        boolean isGet = method.equalsIgnoreCase("GET");
+        if (isGet && path.equals("/v1/chain/side/id")) {
+            return new JSONObject().put("chainId", chainId);
+        } else if (isGet && path.startsWith("/v1/ledger/balance/")) {
+            return getBalance(path.substring(path.lastIndexOf('/') + 1));
+        } else if (isGet && path.startsWith("/v1/ledger/nonce/")) {
+            return new JSONObject().put("nonce", getNonce(path.substring("/v1/ledger/nonce/".length())).get());
+        } else if (isGet && path.equals("/v1/task/sequence/latest")) {
+            synchronized (tasks) {
+                return new JSONObject().put("sequence", (long) tasks.size());
+            }
+        } else if (isGet && path.startsWith("/v1/task/list/")) {
+            return getTasks(Long.parseLong(path.substring("/v1/task/list/".length())));
+        } else if (isGet && path.startsWith("/v1/provider/status/")) {
+            return new JSONObject().put("enable", true);
+        } else if (isGet && path.startsWith("/v1/provider/assistant/")) {
+            String provider = path.substring("/v1/provider/assistant/".length()).toLowerCase();
+            return new JSONObject().put("provider", provider).put("assistant", assistants.getOrDefault(provider, "0x0000000000000000000000000000000000000000"));
+        } else if (!isGet && path.equals("/v1/provider/assistant/register")) {
+            String provider = body.getString("provider");
+            String assistant = body.getString("assistant");
+            useNonce(body.getString("signature"), nonce -> CommonUtils.getRegisterAssistanceMessage(provider, assistant, nonce, chainId), provider);
+            assistants.put(provider.toLowerCase(), assistant);
+            return new JSONObject().put("txHash", nextId());
+        } else if (!isGet && (path.equals("/v1/provider/send/account") || path.equals("/v1/provider/send/phoneHash"))) {
+            String provider = body.getString("provider");
+            String signed = body.getString("receiver");
+            BigInteger amount = new BigInteger(body.getString("amount"));
+            boolean phone = path.endsWith("phoneHash");
+            useNonce(body.getString("signature"), nonce -> phone
+                    ? CommonUtils.getProvidePointToPhoneMessage(provider, signed, amount, nonce, chainId)
+                    : CommonUtils.getProvidePointToAddressMessage(provider, signed, amount, nonce, chainId),
+                    provider, assistants.get(provider.toLowerCase()));
+            String receiver = signed.toLowerCase();
+            balances.merge(receiver, new BigInteger[]{amount, BigInteger.ZERO}, (a, b) -> new BigInteger[]{a[0].add(b[0]), a[1]});
+            return new JSONObject().put("provider", body.getString("provider")).put("receiver", receiver).put("amount", amount.toString()).put("txHash", nextId());
+        } else if (isGet && path.equals("/v2/payment/info")) {
+            return getPaymentInfo(query);
+        } else if (!isGet && path.equals("/v2/payment/account/temporary")) {
+            return new JSONObject().put("temporaryAccount", String.format("0x%040x", idSequence.incrementAndGet()));
+        } else if (!isGet && path.equals("/v2/payment/new/open")) {
+            return openNewPayment(body);
+        } else if (!isGet && path.equals("/v2/payment/new/approval")) {
+            return updatePayment(body.getString("paymentId"), "pay_new", body.getBoolean("approval") ? PAYMENT_APPROVED_NEW : PAYMENT_DENIED_NEW);
+        } else if (!isGet && path.equals("/v2/payment/new/close")) {
+            return updatePayment(body.getString("paymentId"), "pay_new", body.getBoolean("confirm") ? PAYMENT_CLOSED_NEW : PAYMENT_FAILED_NEW);
+        } else if (!isGet && path.equals("/v2/payment/cancel/open")) {
+            return updatePayment(body.getString("paymentId"), "pay_cancel", PAYMENT_OPENED_CANCEL);
+        } else if (!isGet && path.equals("/v2/payment/cancel/approval")) {
+            return updatePayment(body.getString("paymentId"), "pay_cancel", body.getBoolean("approval") ? PAYMENT_APPROVED_CANCEL : PAYMENT_DENIED_CANCEL);
+        } else if (!isGet && path.equals("/v2/payment/cancel/close")) {
+            return updatePayment(body.getString("paymentId"), "pay_cancel", body.getBoolean("confirm") ? PAYMENT_CLOSED_CANCEL : PAYMENT_FAILED_CANCEL);
+        } else if (isGet && path.equals("/v2/payment/item")) {
+            return getPayment(query.getOrDefault("paymentId", ""));
+        } else if (!isGet && (path.equals("/v2/tx/purchase/new") || path.equals("/v2/tx/purchase/cancel"))) {
+            JSONObject tx = new JSONObject();
+            tx.put("type", path.endsWith("new") ? 0 : 1);
+            tx.put("sequence", String.valueOf(purchaseSequence.incrementAndGet()));
+            tx.put("purchaseId", body.getJSONObject("purchase").getString("purchaseId"));
+            return new JSONObject().put("tx", tx);
+        }
+        throw new RelayError(404, "Not found : " + path);
+    }
+
+    private JSONObject getBalance(String key) {
+        BigInteger[] balance = balances.getOrDefault(key.trim().toLowerCase(), new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO});
+        JSONObject point = new JSONObject().put("balance", balance[0].toString()).put("value", balance[0].toString());
+        JSONObject token = new JSONObject().put("balance", balance[1].toString()).put("value", balance[1].toString());
+        return new JSONObject().put("point", point).put("token", token);
+    }
+
+    private AtomicLong getNonce(String account) {
+        return nonces.computeIfAbsent(account.trim().toLowerCase(), k -> new AtomicLong(0));
+    }
+
+    /**
+     * Check that one of the signers signed the message with its current nonce, and increment that nonce
+     * @param signature The signature of the request
+     * @param message Builds the message signed with a nonce
+     * @param signers The wallets that may sign the request, null is skipped
+     */
+    private void useNonce(String signature, LongFunction<byte[]> message, String... signers) throws RelayError {
+        byte[] value = Numeric.hexStringToByteArray(signature);
+        for (String signer : signers) {
+            if (signer == null) continue;
+            AtomicLong nonce = getNonce(signer);
+            synchronized (nonce) {
+                if (signer.equalsIgnoreCase(MessageSigner.recoverAddress(message.apply(nonce.get()), value))) {
+                    nonce.incrementAndGet();
+                    return;
+                }
+            }
+        }
+        throw new RelayError(1501, "Invalid signature or nonce");
+    }
+
+    private JSONObject getPaymentInfo(Map<String, String> query) {
+        BigInteger amount = new BigInteger(query.getOrDefault("amount", "0"));
+        BigInteger fee = amount.multiply(BigInteger.valueOf(5)).divide(BigInteger.valueOf(100));
+        BigInteger[] balance = balances.getOrDefault(query.getOrDefault("account", "").toLowerCase(), new BigInteger[]{BigInteger.ZERO, BigInteger.ZERO});
+        JSONObject data = new JSONObject();
+        data.put("account", query.getOrDefault("account", ""));
+        data.put("amount", amount.toString());
+        data.put("currency", query.getOrDefault("currency", ""));
+        data.put("balance", balance[0].toString());
+        data.put("balanceValue", balance[0].toString());
+        data.put("paidPoint", amount.toString());
+        data.put("paidValue", amount.toString());
+        data.put("feePoint", fee.toString());
+        data.put("feeValue", fee.toString());
+        data.put("totalPoint", amount.add(fee).toString());
+        data.put("totalValue", amount.add(fee).toString());
+        return data;
+    }
+
+    private JSONObject openNewPayment(JSONObject body) {
+        BigInteger amount = new BigInteger(body.getString("amount"));
+        BigInteger fee = amount.multiply(BigInteger.valueOf(5)).divide(BigInteger.valueOf(100));
+        JSONObject payment = new JSONObject();
+        payment.put("paymentId", nextId());
+        payment.put("purchaseId", body.getString("purchaseId"));
+        payment.put("amount", amount.toString());
+        payment.put("currency", body.getString("currency"));
+        payment.put("shopId", body.getString("shopId"));
+        payment.put("account", body.getString("account"));
+        payment.put("paidPoint", amount.toString());
+        payment.put("paidValue", amount.toString());
+        payment.put("feePoint", fee.toString());
+        payment.put("feeValue", fee.toString());
+        payment.put("totalPoint", amount.add(fee).toString());
+        payment.put("totalValue", amount.add(fee).toString());
+        payment.put("terminalId", body.getString("terminalId"));
+        payment.put("paymentStatus", PAYMENT_OPENED_NEW);
+        payments.put(payment.getString("paymentId"), payment);
+        addTask("pay_new", payment);
+        return payment;
+    }
+
+    private JSONObject updatePayment(String paymentId, String type, int status) throws RelayError {
+        JSONObject payment = payments.get(paymentId);
+        if (payment == null) throw new RelayError(2004, "Payment ID is not exist");
+        JSONObject updated;
+        synchronized (payment) {
+            payment.put("paymentStatus", status);
+            updated = new JSONObject(payment.toString());
+        }
+        addTask(type, updated);
+        return updated;
+    }
+
+    private JSONObject getPayment(String paymentId) throws RelayError {
+        JSONObject payment = payments.get(paymentId.trim());
+        if (payment == null) throw new RelayError(2004, "Payment ID is not exist");
+        synchronized (payment) {
+            return new JSONObject(payment.toString());
+        }
+    }
+
+    private long addTask(String type, JSONObject data) {
+        synchronized (tasks) {
+            long sequence = tasks.size() + 1;
+            JSONObject task = new JSONObject();
+            task.put("sequence", sequence);
+            task.put("type", type);
+            task.put("code", 0);
+            task.put("message", "Success");
+            task.put("data", new JSONObject(data.toString()));
+            tasks.add(task);
+            return sequence;
+        }
+    }
+
+    private JSONArray getTasks(long sequence) {
+        JSONArray list = new JSONArray();
+        synchronized (tasks) {
+            for (long idx = Math.max(0, sequence); idx < tasks.size() && list.length() < taskPageSize; idx++) {
+                list.put(tasks.get((int) idx));
+            }
+        }
+        return list;
+    }
+
+    private String nextId() {
+        return String.format("0x%064x", idSequence.incrementAndGet());
+    }
+
+    @NotNull
+    private static Map<String, String> getQuery(@NotNull URI uri) {
+        Map<String, String> query = new HashMap<>();
+        String raw = uri.getRawQuery();
+        if (raw == null) return query;
+        for (String pair : raw.split("&")) {
+            int idx = pair.indexOf('=');
+            if (idx < 0) continue;
+            query.put(URLDecoder.decode(pair.substring(0, idx), StandardCharsets.UTF_8), URLDecoder.decode(pair.substring(idx + 1), StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static class RelayError extends Exception {
+        final int code;
+
+        RelayError(int code, String message) {
+            super(message);
+            this.code = code;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package org.dms.service.sdk.transport;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The HTTP transport that shares one pooled java.net.http.HttpClient.
+ * Connections are kept alive between calls and HTTPS endpoints are multiplexed over HTTP/2.
+ * The size of the connection pool and the keep-alive time are settings of the process, see configurePool.
+ */
+public class PooledHttpTransport implements IHttpTransport {
+    private static volatile PooledHttpTransport defaultTransport;
+    private static boolean poolInUse = false;
+
+    private final HttpClient httpClient;
+    private final TransportOptions options;
+
+    private final ArrayDeque<CompletableFuture<Void>> waiters;
+    private int available;
+
+    /**
+     * Constructor with default settings
+     */
+    public PooledHttpTransport() {
+        this(new TransportOptions());
+    }
+
+    /**
+     * Constructor
+     * @param options Settings of the transport
+     */
+    public PooledHttpTransport(@NotNull TransportOptions options) {
+        synchronized (PooledHttpTransport.class) {
+            poolInUse = true;
+        }
+        this.options = options;
+        this.available = Math.max(1, options.maxRequests);
+        this.waiters = new ArrayDeque<>();
+        this.httpClient = HttpClient.newBuilder()
+                .version(options.http2 ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(options.connectTimeout))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Provide the transport shared by all clients that were created without a transport
+     * @return PooledHttpTransport
+     */
+    public static PooledHttpTransport getDefault() {
+        PooledHttpTransport transport = defaultTransport;
+        if (transport == null) {
+            synchronized (PooledHttpTransport.class) {
+                transport = defaultTransport;
+                if (transport == null) {
+                    transport = new PooledHttpTransport();
+                    defaultTransport = transport;
+                }
+            }
+        }
+        return transport;
+    }
+
+    /**
+     * Set the connection pool of java.net.http. It is shared by every HttpClient of the process,
+     * and its settings are read once, so it must be configured before the first transport is created.
+     * @param poolSize Maximum number of idle connections kept in the pool, 0 for no limit
+     * @param idleTimeout Time (in seconds) an idle connection is kept in the pool before it is closed
+     * @throws IllegalStateException If a transport was already created
+     */
+    public static synchronized void configurePool(int poolSize, long idleTimeout) {
+        if (poolSize < 0 || idleTimeout < 1) throw new IllegalArgumentException("Invalid pool size or idle timeout");
+        if (poolInUse) throw new IllegalStateException("The connection pool is already in use");
+        System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(poolSize));
+        System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(idleTimeout));
+    }
+
+    public TransportOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * Send a request and wait for the response
+     * @param method GET or POST
+     * @param uri URL
+     * @param body Body of the request, null if there is no body
+     * @return The stream of the response body. It must be closed by the caller.
+     * @throws Exception Error during HTTP communication
+     */
+    @Override
+    public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+        try {
+            return requestAsync(method, uri, body).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Send a request without blocking the calling thread
+     * @param method GET or POST
+     * @param uri URL
+     * @param body Body of the request, null if there is no body
+     * @return The stream of the response body. It must be closed by the caller.
+     */
+    @Override
+    public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json; charset=utf-8")
+                .timeout(Duration.ofMillis(options.readTimeout))
+                .method(method, (body == null) ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofByteArray(body));
+        // Plain HTTP would be upgraded with h2c, which local servers often do not support
+        if ("http".equalsIgnoreCase(uri.getScheme())) {
+            builder.version(HttpClient.Version.HTTP_1_1);
+        }
+        HttpRequest request = builder.build();
+
+        CompletableFuture<InputStream> result = new CompletableFuture<>();
+        acquire()
+                .thenCompose(ignored -> httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream()))
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        release();
+                        result.completeExceptionally((error instanceof CompletionException && error.getCause() != null) ? error.getCause() : error);
+                        return;
+                    }
+                    if (response.statusCode() >= 400) {
+                        try {
+                            response.body().close();
+                        } catch (IOException ignored) {
+                        }
+                        release();
+                        result.completeExceptionally(new IOException(String.format("Server returned HTTP response code: %d for URL: %s", response.statusCode(), uri)));
+                        return;
+                    }
+                    // The caller may have cancelled or timed out the request in the meantime
+                    InputStream input = new ReleasingInputStream(response.body());
+                    if (!result.complete(input)) {
+                        try {
+                            input.close();
+                        } catch (IOException ignored) {
+                        }
+                    }
+                });
+        return result;
+    }
+
+    /**
+     * Wait until a request may start.
+     * The number of requests in progress at the same time does not exceed the maximum number of requests.
+     */
+    private CompletableFuture<Void> acquire() {
+        synchronized (this.waiters) {
+            if (this.available > 0) {
+                this.available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            this.waiters.add(waiter);
+            return waiter;
+        }
+    }
+
+    private void release() {
+        CompletableFuture<Void> waiter;
+        synchronized (this.waiters) {
+            waiter = this.waiters.poll();
+            if (waiter == null) {
+                this.available++;
+                return;
+            }
+        }
+        waiter.complete(null);
+    }
+
+    /**
+     * Lets the next request start when the response body is closed
+     */
+    private class ReleasingInputStream extends FilterInputStream {
+        private final AtomicBoolean released = new AtomicBoolean(false);
+
+        ReleasingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                if (released.compareAndSet(false, true)) release();
+            }
+        }
+    }
+}
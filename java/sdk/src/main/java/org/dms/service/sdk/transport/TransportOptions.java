@@ -0,0 +1,46 @@
+package org.dms.service.sdk.transport;
+
+/**
+ * Settings of the HTTP transport shared by the clients.
+ * The size of the connection pool and the idle timeout are settings of the whole process,
+ * see PooledHttpTransport.configurePool.
+ */
+public class TransportOptions {
+    /**
+     * Maximum number of requests in progress at the same time. Further requests wait until one completes.
+     */
+    public int maxRequests;
+    /**
+     * Time (in milliseconds) allowed to establish a connection
+     */
+    public long connectTimeout;
+    /**
+     * Time (in milliseconds) allowed to wait for a response
+     */
+    public long readTimeout;
+    /**
+     * If this value is true, HTTP/2 is used for HTTPS endpoints
+     */
+    public boolean http2;
+
+    /**
+     * Constructor with default settings
+     */
+    public TransportOptions() {
+        this(64, 5000, 5000, true);
+    }
+
+    /**
+     * Constructor
+     * @param maxRequests Maximum number of requests in progress at the same time
+     * @param connectTimeout Time (in milliseconds) allowed to establish a connection
+     * @param readTimeout Time (in milliseconds) allowed to wait for a response
+     * @param http2 If this value is true, HTTP/2 is used for HTTPS endpoints
+     */
+    public TransportOptions(int maxRequests, long connectTimeout, long readTimeout, boolean http2) {
+        this.maxRequests = maxRequests;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+        this.http2 = http2;
+    }
+}
@@ -0,0 +1,276 @@
+package org.dms.service.sdk.utils;
+
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.jetbrains.annotations.NotNull;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Writer of the ABI encoding of a tuple. The result is the same as TypeEncoder.encode of a DynamicStruct,
+ * but heads and tails are written straight into a reusable buffer and hashed in place,
+ * without creating web3j types and hex strings.
+ * An instance is not thread-safe. Use get() to obtain the instance of the current thread.
+ */
+public class ABIEncoder {
+    private static final int WORD = 32;
+    private static final ThreadLocal<ABIEncoder> instances = ThreadLocal.withInitial(ABIEncoder::new);
+
+    private final KeccakDigest digest;
+    private byte[] buffer;
+    /**
+     * Position of the next head slot
+     */
+    private int head;
+    /**
+     * End of the heads, where the first tail starts
+     */
+    private int headEnd;
+    /**
+     * End of the encoded data
+     */
+    private int tail;
+
+    /**
+     * Constructor
+     */
+    public ABIEncoder() {
+        this(1024);
+    }
+
+    /**
+     * Constructor
+     * @param capacity Initial size of the buffer, it grows when required
+     */
+    public ABIEncoder(int capacity) {
+        this.buffer = new byte[Math.max(capacity, WORD)];
+        this.digest = new KeccakDigest(256);
+    }
+
+    /**
+     * Provide the encoder of the current thread
+     */
+    @NotNull
+    public static ABIEncoder get() {
+        return instances.get();
+    }
+
+    /**
+     * Start encoding a tuple
+     * @param count Number of values in the tuple
+     */
+    @NotNull
+    public ABIEncoder begin(int count) {
+        this.headEnd = count * WORD;
+        ensureCapacity(this.headEnd);
+        this.head = 0;
+        this.tail = this.headEnd;
+        return this;
+    }
+
+    /**
+     * Append an address
+     * @param value Hexadecimal address, with or without 0x
+     */
+    @NotNull
+    public ABIEncoder address(@NotNull String value) {
+        int offset = nextSlot();
+        writeHex(value, offset);
+        for (int idx = offset; idx < offset + 12; idx++) {
+            if (buffer[idx] != 0) throw new IllegalArgumentException("Address is too large: " + value);
+        }
+        return this;
+    }
+
+    /**
+     * Append an unsigned integer of 256 bits
+     * @param value Non-negative value
+     */
+    @NotNull
+    public ABIEncoder uint256(long value) {
+        if (value < 0) throw new IllegalArgumentException("Value must be non-negative");
+        int offset = nextSlot();
+        writeLong(value, offset);
+        return this;
+    }
+
+    /**
+     * Append an unsigned integer of 256 bits
+     * @param value Non-negative value that fits in 256 bits
+     */
+    @NotNull
+    public ABIEncoder uint256(@NotNull BigInteger value) {
+        if (value.signum() < 0 || value.bitLength() > 256) throw new IllegalArgumentException("Value must be non-negative and fit in 256 bits");
+        int offset = nextSlot();
+        if (value.bitLength() < 64) {
+            writeLong(value.longValue(), offset);
+        } else {
+            byte[] bytes = value.toByteArray();
+            // toByteArray may add a leading zero for the sign
+            int start = (bytes.length > WORD) ? 1 : 0;
+            int length = bytes.length - start;
+            Arrays.fill(buffer, offset, offset + WORD - length, (byte) 0);
+            System.arraycopy(bytes, start, buffer, offset + WORD - length, length);
+        }
+        return this;
+    }
+
+    /**
+     * Append a fixed array of 32 bytes
+     * @param value Hexadecimal value of 32 bytes, with or without 0x
+     */
+    @NotNull
+    public ABIEncoder bytes32(@NotNull String value) {
+        int digits = value.length() - hexStart(value);
+        if (digits != 63 && digits != 64) throw new IllegalArgumentException("Value must be 32 bytes: " + value);
+        writeHex(value, nextSlot());
+        return this;
+    }
+
+    /**
+     * Append a fixed array of 32 bytes
+     * @param value Value of 32 bytes
+     */
+    @NotNull
+    public ABIEncoder bytes32(@NotNull byte[] value) {
+        if (value.length != WORD) throw new IllegalArgumentException("Value must be 32 bytes");
+        System.arraycopy(value, 0, buffer, nextSlot(), WORD);
+        return this;
+    }
+
+    /**
+     * Append a string. The head holds the offset and the tail holds the length and the UTF-8 bytes.
+     * @param value String
+     */
+    @NotNull
+    public ABIEncoder string(@NotNull String value) {
+        int offset = nextSlot();
+        writeLong(this.tail, offset);
+
+        int start = this.tail + WORD;
+        ensureCapacity(start + value.length() * 3 + WORD);
+        int end = writeUtf8(value, start);
+        int padded = start + ((end - start + WORD - 1) / WORD) * WORD;
+        Arrays.fill(buffer, end, padded, (byte) 0);
+        writeLong(end - start, this.tail);
+        this.tail = padded;
+        return this;
+    }
+
+    /**
+     * Provide the length of the encoded data
+     */
+    public int length() {
+        return this.tail;
+    }
+
+    /**
+     * Provide a copy of the encoded data
+     */
+    @NotNull
+    public byte[] toByteArray() {
+        checkComplete();
+        return Arrays.copyOf(buffer, this.tail);
+    }
+
+    /**
+     * Provide the Keccak-256 hash of the encoded data
+     */
+    @NotNull
+    public byte[] hash() {
+        byte[] out = new byte[WORD];
+        hash(out, 0);
+        return out;
+    }
+
+    /**
+     * Write the Keccak-256 hash of the encoded data
+     * @param out Destination of the hash
+     * @param offset Position in the destination
+     */
+    public void hash(@NotNull byte[] out, int offset) {
+        checkComplete();
+        digest.update(buffer, 0, this.tail);
+        digest.doFinal(out, offset);
+    }
+
+    private int nextSlot() {
+        if (this.head >= this.headEnd) throw new IllegalStateException("More values than declared in begin()");
+        int offset = this.head;
+        this.head += WORD;
+        return offset;
+    }
+
+    private void checkComplete() {
+        if (this.head != this.headEnd) throw new IllegalStateException("Fewer values than declared in begin()");
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(required, buffer.length * 2));
+        }
+    }
+
+    private void writeLong(long value, int offset) {
+        Arrays.fill(buffer, offset, offset + WORD - 8, (byte) 0);
+        for (int idx = offset + WORD - 1; idx >= offset + WORD - 8; idx--) {
+            buffer[idx] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static int hexStart(@NotNull String value) {
+        return (value.length() > 1 && value.charAt(0) == '0' && (value.charAt(1) == 'x' || value.charAt(1) == 'X')) ? 2 : 0;
+    }
+
+    /**
+     * Write a hexadecimal value right aligned in the slot. Leading zeros beyond the slot are allowed.
+     */
+    private void writeHex(@NotNull String value, int offset) {
+        int start = hexStart(value);
+        if (start == value.length()) throw new IllegalArgumentException("Empty hexadecimal value");
+        Arrays.fill(buffer, offset, offset + WORD, (byte) 0);
+        int nibble = 0;
+        for (int idx = value.length() - 1; idx >= start; idx--, nibble++) {
+            int digit = Character.digit(value.charAt(idx), 16);
+            if (digit < 0) throw new IllegalArgumentException("Invalid hexadecimal value: " + value);
+            if (nibble >= WORD * 2) {
+                if (digit != 0) throw new IllegalArgumentException("Value is too large: " + value);
+                continue;
+            }
+            int pos = offset + WORD - 1 - (nibble >> 1);
+            buffer[pos] |= (byte) ((nibble & 1) == 0 ? digit : digit << 4);
+        }
+    }
+
+    /**
+     * Same as String.getBytes(UTF_8), unpaired surrogates are replaced with '?'
+     */
+    private int writeUtf8(@NotNull String value, int pos) {
+        int length = value.length();
+        for (int idx = 0; idx < length; idx++) {
+            char c = value.charAt(idx);
+            if (c < 0x80) {
+                buffer[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[pos++] = (byte) (0xC0 | (c >> 6));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && idx + 1 < length && Character.isLowSurrogate(value.charAt(idx + 1))) {
+                    int cp = Character.toCodePoint(c, value.charAt(++idx));
+                    buffer[pos++] = (byte) (0xF0 | (cp >> 18));
+                    buffer[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    buffer[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    buffer[pos++] = (byte) '?';
+                }
+            } else {
+                buffer[pos++] = (byte) (0xE0 | (c >> 12));
+                buffer[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return pos;
+    }
+}
@@ -6,10 +6,28 @@ import org.jetbrains.annotations.NotNull;
 import java.math.BigInteger;
 
 public class Amount {
+    /**
+     * Powers of ten that fit in a long, 10^0 to 10^18
+     */
+    private static final long[] LONG_POWERS = new long[19];
+    private static final BigInteger[] POWERS = new BigInteger[78];
+
+    static {
+        long power = 1;
+        for (int idx = 0; idx < LONG_POWERS.length; idx++) {
+            LONG_POWERS[idx] = power;
+            power *= 10;
+        }
+        BigInteger value = BigInteger.ONE;
+        for (int idx = 0; idx < POWERS.length; idx++) {
+            POWERS[idx] = value;
+            value = value.multiply(BigInteger.TEN);
+        }
+    }
+
     private final BigInteger _value;
     private final int _decimals;
 
-
     public Amount(BigInteger value) {
         this(value, 18);
     }
@@ -30,6 +48,65 @@ public class Amount {
     @NotNull
     @Contract("_, _ -> new")
     public static Amount make(String value, int decimals) {
+        if (value.isEmpty()) return new Amount(BigInteger.valueOf(0), decimals);
+        Amount amount = parsePlain(value, decimals);
+        return (amount != null) ? amount : parseGeneral(value, decimals);
+    }
+
+    /**
+     * Parse plain input of ASCII digits, separators and at most one decimal point in a single pass.
+     * The integral and fractional digits are accumulated as long values and scaled with cached powers of ten.
+     * @return The amount, or null if the input must be handled by parseGeneral
+     */
+    private static Amount parsePlain(@NotNull String value, int decimals) {
+        if (decimals < 0 || decimals >= LONG_POWERS.length) return null;
+        long integral = 0;
+        int integralDigits = 0;
+        long fraction = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        boolean hasFraction = false;
+        for (int idx = 0; idx < value.length(); idx++) {
+            char c = value.charAt(idx);
+            if (c >= '0' && c <= '9') {
+                if (!point) {
+                    // More digits may not fit in a long
+                    if (integralDigits == LONG_POWERS.length - 1) return null;
+                    integral = integral * 10 + (c - '0');
+                    integralDigits++;
+                } else {
+                    hasFraction = true;
+                    // Digits beyond the decimals are truncated
+                    if (fractionDigits < decimals) {
+                        fraction = fraction * 10 + (c - '0');
+                        fractionDigits++;
+                    }
+                }
+            } else if (c == '.') {
+                if (point) return null;
+                point = true;
+            } else if (c != ',' && c != '_') {
+                return null;
+            }
+        }
+        if (integralDigits == 0 || (hasFraction && decimals == 0)) return null;
+
+        long scaledFraction = fraction * LONG_POWERS[decimals - fractionDigits];
+        BigInteger result;
+        if (integral <= (Long.MAX_VALUE - scaledFraction) / LONG_POWERS[decimals]) {
+            result = BigInteger.valueOf(integral * LONG_POWERS[decimals] + scaledFraction);
+        } else {
+            result = BigInteger.valueOf(integral).multiply(powerOfTen(decimals)).add(BigInteger.valueOf(scaledFraction));
+        }
+        // Without the fractional part the default decimals are used, the same as parseGeneral
+        return hasFraction ? new Amount(result, decimals) : new Amount(result);
+    }
+
+    /**
+     * Parse any input accepted by BigInteger for the integral and fractional parts
+     */
+    @NotNull
+    static Amount parseGeneral(String value, int decimals) {
         if (value.isEmpty()) return new Amount(BigInteger.valueOf(0), decimals);
         value = value.replace(",", "").replace("_", "");
         String Zero = "0".repeat(Math.max(0, decimals));
@@ -58,14 +135,29 @@ public class Amount {
     }
 
     public String toAmountString() {
-        BigInteger factor = BigInteger.valueOf(10).pow(this._decimals);
-        BigInteger integral = this._value.divide(factor);
-        BigInteger decimal = this._value.subtract(integral.multiply(factor));
-        String integral_string = integral.toString();
-        String decimals_string = decimal.toString();
-        if (decimals_string.length() < this._decimals) {
-            decimals_string = "0".repeat(Math.max(0, this._decimals - decimals_string.length())) + decimals_string;
+        String integral_string;
+        String decimals_string;
+        if (this._decimals >= 0 && this._decimals < LONG_POWERS.length && this._value.bitLength() < 64) {
+            long value = this._value.longValue();
+            long factor = LONG_POWERS[this._decimals];
+            integral_string = Long.toString(value / factor);
+            decimals_string = Long.toString(value % factor);
+        } else {
+            BigInteger[] values = this._value.divideAndRemainder(powerOfTen(this._decimals));
+            integral_string = values[0].toString();
+            decimals_string = values[1].toString();
         }
-        return integral_string + "." + decimals_string;
+        StringBuilder sb = new StringBuilder(integral_string.length() + Math.max(this._decimals, decimals_string.length()) + 1);
+        sb.append(integral_string).append('.');
+        for (int idx = decimals_string.length(); idx < this._decimals; idx++) {
+            sb.append('0');
+        }
+        return sb.append(decimals_string).toString();
+    }
+
+    @NotNull
+    private static BigInteger powerOfTen(int exponent) {
+        if (exponent >= 0 && exponent < POWERS.length) return POWERS[exponent];
+        return BigInteger.TEN.pow(exponent);
     }
 }
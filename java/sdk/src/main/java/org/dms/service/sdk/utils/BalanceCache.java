@@ -0,0 +1,151 @@
+package org.dms.service.sdk.utils;
+
+import org.dms.service.sdk.data.UserBalance;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.dms.service.sdk.event.ITaskEventListener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the balances read by a client, by wallet address and by phone number hash.
+ * Phone numbers are normalized to their hash, so a number entered in different ways shares one entry.
+ * Use it as the listener of a TaskEventCollector to drop the balance of an account when a payment of it is reported.
+ * The relay does not tell which phone number belongs to an account, so the balances read by phone number
+ * are all dropped on each payment event.
+ */
+public class BalanceCache implements ITaskEventListener {
+    private final LruCache<String, UserBalance> accounts;
+    private final LruCache<String, UserBalance> phones;
+    private final PhoneNumberCache phoneCache;
+    /**
+     * Incremented on each invalidation. A balance that was requested before an invalidation is not stored.
+     * The stamp is checked and the balance stored under the lock of the cache, which the invalidation also holds.
+     */
+    private final AtomicLong stamp = new AtomicLong();
+
+    /**
+     * Constructor with 10000 entries kept for 30 seconds
+     */
+    public BalanceCache() {
+        this(10000, 30 * 1000L);
+    }
+
+    /**
+     * Constructor
+     * @param maxSize Maximum number of accounts and of phone numbers
+     * @param timeToLive Time to live of an entry in milliseconds
+     */
+    public BalanceCache(int maxSize, long timeToLive) {
+        this(maxSize, timeToLive, PhoneNumberCache.getDefault());
+    }
+
+    /**
+     * Constructor
+     * @param maxSize Maximum number of accounts and of phone numbers
+     * @param timeToLive Time to live of an entry in milliseconds
+     * @param phoneCache The cache used to normalize phone numbers
+     */
+    public BalanceCache(int maxSize, long timeToLive, @NotNull PhoneNumberCache phoneCache) {
+        this.accounts = new LruCache<>(maxSize, timeToLive);
+        this.phones = new LruCache<>(maxSize, timeToLive);
+        this.phoneCache = phoneCache;
+    }
+
+    private static String getAccountKey(@NotNull String account) {
+        return account.trim().toLowerCase();
+    }
+
+    private static String getPhoneHashKey(@NotNull String phoneHash) {
+        return phoneHash.trim().toLowerCase();
+    }
+
+    /**
+     * Provide the key of a phone number, or null if it is not valid
+     */
+    private String getPhoneKey(@NotNull String phoneNumber) {
+        try {
+            return getPhoneHashKey(this.phoneCache.getPhoneHash(phoneNumber));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Provide the value to pass to a put method, taken before the balance is requested
+     */
+    public long getStamp() {
+        return this.stamp.get();
+    }
+
+    public UserBalance getAccount(@NotNull String account) {
+        return this.accounts.get(getAccountKey(account));
+    }
+
+    public void putAccount(@NotNull String account, @NotNull UserBalance balance, long stamp) {
+        this.put(this.accounts, getAccountKey(account), balance, stamp);
+    }
+
+    public UserBalance getPhoneHash(@NotNull String phoneHash) {
+        return this.phones.get(getPhoneHashKey(phoneHash));
+    }
+
+    public void putPhoneHash(@NotNull String phoneHash, @NotNull UserBalance balance, long stamp) {
+        this.put(this.phones, getPhoneHashKey(phoneHash), balance, stamp);
+    }
+
+    public UserBalance getPhone(@NotNull String phoneNumber) {
+        String key = getPhoneKey(phoneNumber);
+        return (key != null) ? this.phones.get(key) : null;
+    }
+
+    public void putPhone(@NotNull String phoneNumber, @NotNull UserBalance balance, long stamp) {
+        String key = getPhoneKey(phoneNumber);
+        if (key != null) this.put(this.phones, key, balance, stamp);
+    }
+
+    private synchronized void put(LruCache<String, UserBalance> cache, String key, UserBalance balance, long stamp) {
+        if (stamp == this.stamp.get()) cache.put(key, balance);
+    }
+
+    /**
+     * Drop the balance of the account, and the balances read by phone number
+     * @param account Wallet address
+     */
+    public synchronized void invalidateAccount(@NotNull String account) {
+        this.stamp.incrementAndGet();
+        this.accounts.invalidate(getAccountKey(account));
+        this.phones.clear();
+    }
+
+    public synchronized void clear() {
+        this.stamp.incrementAndGet();
+        this.accounts.clear();
+        this.phones.clear();
+    }
+
+    public int size() {
+        return this.accounts.size() + this.phones.size();
+    }
+
+    public long getHitCount() {
+        return this.accounts.getHitCount() + this.phones.getHitCount();
+    }
+
+    public long getMissCount() {
+        return this.accounts.getMissCount() + this.phones.getMissCount();
+    }
+
+    @Override
+    public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+        if (TaskEvent.isPaymentType(type) && paymentTaskItem != null && paymentTaskItem.account != null) {
+            this.invalidateAccount(paymentTaskItem.account);
+        }
+    }
+
+    @Override
+    public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+    }
+}
@@ -0,0 +1,161 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.crypto.Sign;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.UnaryOperator;
+
+/**
+ * Signs many messages with one key in parallel on a fork-join pool.
+ * Each result is the 65 bytes of r, s and v, in the same order as the messages.
+ */
+public class BatchSigner {
+    private static volatile BatchSigner defaultSigner;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor. A pool with one thread per available processor is created.
+     */
+    public BatchSigner() {
+        this(new ForkJoinPool(Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Constructor
+     * @param pool The pool on which messages are signed
+     */
+    public BatchSigner(@NotNull ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Provide the signer shared by the application
+     * @return BatchSigner
+     */
+    public static BatchSigner getDefault() {
+        BatchSigner signer = defaultSigner;
+        if (signer == null) {
+            synchronized (BatchSigner.class) {
+                signer = defaultSigner;
+                if (signer == null) {
+                    signer = new BatchSigner();
+                    defaultSigner = signer;
+                }
+            }
+        }
+        return signer;
+    }
+
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Sign one message on the calling thread
+     * @param keyPair Key pair of the signer
+     * @param message Hash of the message, it is signed with the Ethereum prefix
+     * @return The 65 bytes of r, s and v
+     */
+    @NotNull
+    public static byte[] signMessage(@NotNull ECKeyPair keyPair, @NotNull byte[] message) {
+        Sign.SignatureData signature = Sign.signPrefixedMessage(message, keyPair);
+        byte[] value = new byte[65];
+        System.arraycopy(signature.getR(), 0, value, 0, 32);
+        System.arraycopy(signature.getS(), 0, value, 32, 32);
+        System.arraycopy(signature.getV(), 0, value, 64, 1);
+        return value;
+    }
+
+    /**
+     * Sign the messages in parallel
+     * @param keyPair Key pair of the signer
+     * @param messages Hashes of the messages
+     * @return The signatures in the same order as the messages
+     */
+    @NotNull
+    public byte[][] signMessages(@NotNull ECKeyPair keyPair, @NotNull byte[][] messages) {
+        return signMessages(message -> signMessage(keyPair, message), messages);
+    }
+
+    /**
+     * Sign the messages in parallel with the precomputed signer of a key
+     * @param signer Signer bound to the key
+     * @param messages Hashes of the messages
+     * @return The signatures in the same order as the messages
+     */
+    @NotNull
+    public byte[][] signMessages(@NotNull MessageSigner signer, @NotNull byte[][] messages) {
+        return signMessages(signer::sign, messages);
+    }
+
+    /**
+     * Sign the messages in parallel
+     * @param keyPair Key pair of the signer
+     * @param messages Hashes of the messages
+     * @return The signatures in the same order as the messages
+     */
+    @NotNull
+    public List<byte[]> signMessages(@NotNull ECKeyPair keyPair, @NotNull List<byte[]> messages) {
+        return Arrays.asList(signMessages(keyPair, messages.toArray(new byte[0][])));
+    }
+
+    /**
+     * Sign the messages in parallel with the precomputed signer of a key
+     * @param signer Signer bound to the key
+     * @param messages Hashes of the messages
+     * @return The signatures in the same order as the messages
+     */
+    @NotNull
+    public List<byte[]> signMessages(@NotNull MessageSigner signer, @NotNull List<byte[]> messages) {
+        return Arrays.asList(signMessages(signer, messages.toArray(new byte[0][])));
+    }
+
+    @NotNull
+    private byte[][] signMessages(@NotNull UnaryOperator<byte[]> sign, @NotNull byte[][] messages) {
+        byte[][] signatures = new byte[messages.length][];
+        if (messages.length == 0) return signatures;
+        // A few tasks per worker keep the workers busy when some finish early
+        int threshold = Math.max(1, messages.length / (pool.getParallelism() * 4));
+        pool.invoke(new SignTask(sign, messages, signatures, 0, messages.length, threshold));
+        return signatures;
+    }
+
+    private static class SignTask extends RecursiveAction {
+        private final UnaryOperator<byte[]> sign;
+        private final byte[][] messages;
+        private final byte[][] signatures;
+        private final int from;
+        private final int to;
+        private final int threshold;
+
+        SignTask(UnaryOperator<byte[]> sign, byte[][] messages, byte[][] signatures, int from, int to, int threshold) {
+            this.sign = sign;
+            this.messages = messages;
+            this.signatures = signatures;
+            this.from = from;
+            this.to = to;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= threshold) {
+                for (int idx = from; idx < to; idx++) {
+                    signatures[idx] = sign.apply(messages[idx]);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new SignTask(sign, messages, signatures, from, middle, threshold),
+                    new SignTask(sign, messages, signatures, middle, to, threshold)
+            );
+        }
+    }
+}
@@ -3,29 +3,21 @@ package org.dms.service.sdk.utils;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.Phonenumber;
 import org.jetbrains.annotations.NotNull;
-import org.web3j.abi.TypeEncoder;
-import org.web3j.abi.datatypes.Address;
-import org.web3j.abi.datatypes.DynamicStruct;
-import org.web3j.abi.datatypes.Utf8String;
-import org.web3j.abi.datatypes.generated.Bytes32;
-import org.web3j.abi.datatypes.generated.Uint256;
 import org.web3j.crypto.ECKeyPair;
-import org.web3j.crypto.Hash;
-import org.web3j.crypto.Sign;
 import org.web3j.utils.Numeric;
 
 import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
 
 public class CommonUtils {
     @NotNull
     public static String getPhoneHash(String phone) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String("BOSagora Phone Number"),
-                        new Utf8String(phone)
-                )
-        );
-        return Numeric.toHexString(Hash.sha3(Numeric.hexStringToByteArray(value)));
+        return Numeric.toHexString(ABIEncoder.get()
+                .begin(2)
+                .string("BOSagora Phone Number")
+                .string(phone)
+                .hash());
     }
 
     public static long getTimeStamp() {
@@ -39,16 +31,14 @@ public class CommonUtils {
             long nonce,
             long chainId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Address(provider),
-                        new Address(receiver),
-                        new Uint256(amount),
-                        new Uint256(chainId),
-                        new Uint256(nonce)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(5)
+                .address(provider)
+                .address(receiver)
+                .uint256(amount)
+                .uint256(chainId)
+                .uint256(nonce)
+                .hash();
     }
 
     public static byte[] getProvidePointToPhoneMessage(
@@ -58,16 +48,14 @@ public class CommonUtils {
             long nonce,
             long chainId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Address(provider),
-                        new Bytes32(Numeric.hexStringToByteArray(receiver)),
-                        new Uint256(amount),
-                        new Uint256(chainId),
-                        new Uint256(nonce)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(5)
+                .address(provider)
+                .bytes32(receiver)
+                .uint256(amount)
+                .uint256(chainId)
+                .uint256(nonce)
+                .hash();
     }
 
     public static byte[] getRegisterAssistanceMessage(
@@ -76,15 +64,13 @@ public class CommonUtils {
             long nonce,
             long chainId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Address(provider),
-                        new Address(assistance),
-                        new Uint256(chainId),
-                        new Uint256(nonce)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(4)
+                .address(provider)
+                .address(assistance)
+                .uint256(chainId)
+                .uint256(nonce)
+                .hash();
     }
 
     public static byte[] getAccountMessage(
@@ -92,14 +78,12 @@ public class CommonUtils {
             long nonce,
             long chainId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Address(account),
-                        new Uint256(chainId),
-                        new Uint256(nonce)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(3)
+                .address(account)
+                .uint256(chainId)
+                .uint256(nonce)
+                .hash();
     }
 
     public static byte[] getOpenNewPaymentMessage(
@@ -110,60 +94,52 @@ public class CommonUtils {
             String account,
             String terminalId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String("OpenNewPayment"),
-                        new Utf8String(purchaseId),
-                        new Uint256(amount),
-                        new Utf8String(currency),
-                        new Bytes32(Numeric.hexStringToByteArray(shopId)),
-                        new Address(account),
-                        new Utf8String(terminalId)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(7)
+                .string("OpenNewPayment")
+                .string(purchaseId)
+                .uint256(amount)
+                .string(currency)
+                .bytes32(shopId)
+                .address(account)
+                .string(terminalId)
+                .hash();
     }
 
     public static byte[] getCloseNewPaymentMessage(
             String paymentId,
             Boolean confirm
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String("CloseNewPayment"),
-                        new Utf8String(paymentId),
-                        new Uint256(confirm ? BigInteger.ONE : BigInteger.ZERO)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(3)
+                .string("CloseNewPayment")
+                .string(paymentId)
+                .uint256(confirm ? 1 : 0)
+                .hash();
     }
 
     public static byte[] getOpenCancelPaymentMessage(
             String paymentId,
             String terminalId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String("OpenCancelPayment"),
-                        new Utf8String(paymentId),
-                        new Utf8String(terminalId)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(3)
+                .string("OpenCancelPayment")
+                .string(paymentId)
+                .string(terminalId)
+                .hash();
     }
 
     public static byte[] getCloseCancelPaymentMessage(
             String paymentId,
             Boolean confirm
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String("CloseCancelPayment"),
-                        new Utf8String(paymentId),
-                        new Uint256(confirm ? BigInteger.ONE : BigInteger.ZERO)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(3)
+                .string("CloseCancelPayment")
+                .string(paymentId)
+                .uint256(confirm ? 1 : 0)
+                .hash();
     }
 
     public static byte[] getNewPurchaseDataMessage(
@@ -177,20 +153,18 @@ public class CommonUtils {
             String sender,
             long chainId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String(purchaseId),
-                        new Uint256(amount),
-                        new Uint256(loyalty),
-                        new Utf8String(currency),
-                        new Bytes32(Numeric.hexStringToByteArray(shopId)),
-                        new Address(account),
-                        new Bytes32(Numeric.hexStringToByteArray(phone)),
-                        new Address(sender),
-                        new Uint256(chainId)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(9)
+                .string(purchaseId)
+                .uint256(amount)
+                .uint256(loyalty)
+                .string(currency)
+                .bytes32(shopId)
+                .address(account)
+                .bytes32(phone)
+                .address(sender)
+                .uint256(chainId)
+                .hash();
     }
 
     public static byte[] getCancelPurchaseDataMessage(
@@ -198,14 +172,12 @@ public class CommonUtils {
             String sender,
             long chainId
     ) {
-        String value = TypeEncoder.encode(
-                new DynamicStruct(
-                        new Utf8String(purchaseId),
-                        new Address(sender),
-                        new Uint256(chainId)
-                )
-        );
-        return Hash.sha3(Numeric.hexStringToByteArray(value));
+        return ABIEncoder.get()
+                .begin(3)
+                .string(purchaseId)
+                .address(sender)
+                .uint256(chainId)
+                .hash();
     }
 
     @NotNull
@@ -213,12 +185,26 @@ public class CommonUtils {
             ECKeyPair keyPair,
             byte[] message
     ) {
-        Sign.SignatureData signature = Sign.signPrefixedMessage(message, keyPair);
-        byte[] value = new byte[65];
-        System.arraycopy(signature.getR(), 0, value, 0, 32);
-        System.arraycopy(signature.getS(), 0, value, 32, 32);
-        System.arraycopy(signature.getV(), 0, value, 64, 1);
-        return Numeric.toHexString(value);
+        return Numeric.toHexString(BatchSigner.signMessage(keyPair, message));
+    }
+
+    /**
+     * Sign many messages with the same key in parallel
+     * @param keyPair Key pair of the signer
+     * @param messages Hashes of the messages
+     * @return The signatures in the same order as the messages
+     */
+    @NotNull
+    public static List<String> signMessages(
+            ECKeyPair keyPair,
+            List<byte[]> messages
+    ) {
+        byte[][] signatures = BatchSigner.getDefault().signMessages(keyPair, messages.toArray(new byte[0][]));
+        List<String> values = new ArrayList<>(signatures.length);
+        for (byte[] signature : signatures) {
+            values.add(Numeric.toHexString(signature));
+        }
+        return values;
     }
 
     public static String padLeftZeros(@NotNull String inputString, int length) {
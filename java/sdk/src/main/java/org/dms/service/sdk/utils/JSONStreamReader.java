@@ -0,0 +1,373 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Pull reader that decodes JSON straight from a stream, without building JSONObject trees.
+ * It is lenient: commas and colons are expected in the right places but not strictly validated.
+ */
+public class JSONStreamReader implements Closeable {
+    /**
+     * Type of the next value in the stream
+     */
+    public enum Token {
+        OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL, END
+    }
+
+    /**
+     * Decoder of a value that is read from the stream
+     * @param <T> Type of the decoded value
+     */
+    @FunctionalInterface
+    public interface Decoder<T> {
+        T decode(@NotNull JSONStreamReader reader) throws Exception;
+    }
+
+    private final Reader in;
+    private final char[] buffer;
+    private int pos;
+    private int limit;
+    private final StringBuilder text;
+
+    /**
+     * Constructor
+     * @param input The stream of UTF-8 encoded JSON
+     */
+    public JSONStreamReader(@NotNull InputStream input) {
+        this(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Constructor
+     * @param reader The reader of JSON
+     */
+    public JSONStreamReader(@NotNull Reader reader) {
+        this.in = reader;
+        this.buffer = new char[4096];
+        this.pos = 0;
+        this.limit = 0;
+        this.text = new StringBuilder(64);
+    }
+
+    /**
+     * Provide the type of the next value without consuming it
+     */
+    public Token peek() throws IOException {
+        int c = peekChar();
+        switch (c) {
+            case -1: return Token.END;
+            case '{': return Token.OBJECT;
+            case '[': return Token.ARRAY;
+            case '"': return Token.STRING;
+            case 't':
+            case 'f': return Token.BOOLEAN;
+            case 'n': return Token.NULL;
+            default: return Token.NUMBER;
+        }
+    }
+
+    public void beginObject() throws IOException {
+        expect('{');
+    }
+
+    public void endObject() throws IOException {
+        expect('}');
+    }
+
+    public void beginArray() throws IOException {
+        expect('[');
+    }
+
+    public void endArray() throws IOException {
+        expect(']');
+    }
+
+    /**
+     * Check if the current object or array has another element. The separating comma is consumed.
+     */
+    public boolean hasNext() throws IOException {
+        int c = peekChar();
+        if (c == ',') {
+            pos++;
+            c = peekChar();
+        }
+        return c != '}' && c != ']' && c != -1;
+    }
+
+    /**
+     * Read the name of the next member of the current object
+     */
+    @NotNull
+    public String nextName() throws IOException {
+        if (peekChar() != '"') throw syntaxError("Expected a name");
+        String name = readString();
+        expect(':');
+        return name;
+    }
+
+    /**
+     * Read a string. Numbers and booleans are provided as their literal text, null as null.
+     */
+    public String nextString() throws IOException {
+        int c = peekChar();
+        if (c == '"') return readString();
+        String literal = readLiteral();
+        return literal.equals("null") ? null : literal;
+    }
+
+    /**
+     * Read a number that may also be written as a string
+     */
+    public long nextLong() throws IOException {
+        int c = peekChar();
+        boolean quoted = (c == '"');
+        if (quoted) pos++;
+        boolean negative = false;
+        long value = 0;
+        int digits = 0;
+        c = peekRaw();
+        if (c == '-') {
+            negative = true;
+            pos++;
+        }
+        while (true) {
+            c = peekRaw();
+            if (c < '0' || c > '9') break;
+            if (value > (Long.MAX_VALUE - (c - '0')) / 10) throw syntaxError("Number is too large");
+            value = value * 10 + (c - '0');
+            digits++;
+            pos++;
+        }
+        if (digits == 0) throw syntaxError("Expected a number");
+        if (quoted) {
+            if (peekRaw() != '"') throw syntaxError("Expected a number");
+            pos++;
+        } else if (c == '.' || c == 'e' || c == 'E') {
+            throw syntaxError("Expected an integer");
+        }
+        return negative ? -value : value;
+    }
+
+    public int nextInt() throws IOException {
+        long value = nextLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) throw syntaxError("Number is too large");
+        return (int) value;
+    }
+
+    /**
+     * Read a big integer that may be written as a number or as a string
+     */
+    @NotNull
+    public BigInteger nextBigInteger() throws IOException {
+        String value = nextString();
+        if (value == null) throw syntaxError("Expected a number");
+        return new BigInteger(value, 10);
+    }
+
+    public boolean nextBoolean() throws IOException {
+        String value = nextString();
+        if ("true".equals(value)) return true;
+        if ("false".equals(value)) return false;
+        throw syntaxError("Expected a boolean");
+    }
+
+    /**
+     * Skip the next value including all nested values
+     */
+    public void skipValue() throws IOException {
+        readValue(null);
+    }
+
+    /**
+     * Read the next object as JSONObject. It is used when a value can not be decoded while streaming.
+     */
+    @NotNull
+    public JSONObject nextJSONObject() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        readValue(sb);
+        return new JSONObject(sb.toString());
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decoder of an object, providing only one member and skipping the others
+     * @param name Name of the member
+     * @param decoder Decoder of the member
+     */
+    @NotNull
+    public static <T> Decoder<T> field(@NotNull String name, @NotNull Decoder<T> decoder) {
+        return reader -> {
+            T value = null;
+            boolean found = false;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String key = reader.nextName();
+                if (!found && key.equals(name)) {
+                    value = decoder.decode(reader);
+                    found = true;
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (!found) throw new JSONException("JSONObject[\"" + name + "\"] not found.");
+            return value;
+        };
+    }
+
+    /**
+     * Decoder of an array, providing the decoded elements in order
+     * @param decoder Decoder of the element
+     */
+    @NotNull
+    public static <T> Decoder<List<T>> list(@NotNull Decoder<T> decoder) {
+        return reader -> {
+            List<T> values = new ArrayList<>();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                values.add(decoder.decode(reader));
+            }
+            reader.endArray();
+            return values;
+        };
+    }
+
+    private void readValue(StringBuilder capture) throws IOException {
+        int c = peekChar();
+        if (c == '"') {
+            String value = readString();
+            if (capture != null) capture.append(JSONObject.quote(value));
+        } else if (c == '{' || c == '[') {
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            do {
+                c = nextRaw();
+                if (c == -1) throw syntaxError("Unterminated value");
+                if (capture != null) capture.append((char) c);
+                if (inString) {
+                    if (escaped) escaped = false;
+                    else if (c == '\\') escaped = true;
+                    else if (c == '"') inString = false;
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            } while (depth > 0);
+        } else {
+            String literal = readLiteral();
+            if (capture != null) capture.append(literal);
+        }
+    }
+
+    @NotNull
+    private String readString() throws IOException {
+        pos++;
+        text.setLength(0);
+        while (true) {
+            if (pos >= limit && !fill()) throw syntaxError("Unterminated string");
+            // Copy the run of plain characters at once
+            int start = pos;
+            while (pos < limit) {
+                char c = buffer[pos];
+                if (c == '"' || c == '\\') break;
+                pos++;
+            }
+            text.append(buffer, start, pos - start);
+            if (pos >= limit) continue;
+            char c = buffer[pos++];
+            if (c == '"') return text.toString();
+            int e = nextRaw();
+            switch (e) {
+                case 'n': text.append('\n'); break;
+                case 't': text.append('\t'); break;
+                case 'r': text.append('\r'); break;
+                case 'b': text.append('\b'); break;
+                case 'f': text.append('\f'); break;
+                case 'u':
+                    int code = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int d = Character.digit(nextRaw(), 16);
+                        if (d < 0) throw syntaxError("Invalid escape sequence");
+                        code = (code << 4) | d;
+                    }
+                    text.append((char) code);
+                    break;
+                case -1: throw syntaxError("Unterminated string");
+                default: text.append((char) e);
+            }
+        }
+    }
+
+    @NotNull
+    private String readLiteral() throws IOException {
+        text.setLength(0);
+        while (true) {
+            int c = peekRaw();
+            if (c == -1 || c == ',' || c == '}' || c == ']' || c == ':' || Character.isWhitespace(c)) break;
+            text.append((char) c);
+            pos++;
+        }
+        if (text.length() == 0) throw syntaxError("Expected a value");
+        return text.toString();
+    }
+
+    private void expect(char expected) throws IOException {
+        if (peekChar() != expected) throw syntaxError("Expected '" + expected + "'");
+        pos++;
+    }
+
+    /**
+     * Provide the next character that is not a whitespace, without consuming it
+     */
+    private int peekChar() throws IOException {
+        while (true) {
+            if (pos >= limit && !fill()) return -1;
+            char c = buffer[pos];
+            if (c == ' ' || c == '\n' || c == '\r' || c == '\t') pos++;
+            else return c;
+        }
+    }
+
+    private int peekRaw() throws IOException {
+        if (pos >= limit && !fill()) return -1;
+        return buffer[pos];
+    }
+
+    private int nextRaw() throws IOException {
+        if (pos >= limit && !fill()) return -1;
+        return buffer[pos++];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) return false;
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    @NotNull
+    private JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + pos);
+    }
+}
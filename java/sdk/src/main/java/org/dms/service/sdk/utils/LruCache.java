@@ -0,0 +1,177 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache that evicts the least recently used entry when it is full, and entries older than the time to live.
+ * It is safe to use from multiple threads. Values are loaded outside the lock.
+ * @param <K> Type of the key
+ * @param <V> Type of the value
+ */
+public class LruCache<K, V> {
+    /**
+     * Loader of a value that is not in the cache
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+        V load(K key) throws Exception;
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final int maxSize;
+    private final long timeToLive;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Constructor
+     * @param maxSize Maximum number of entries
+     * @param timeToLive Time to live of an entry in milliseconds, zero or less to keep entries until they are evicted by size
+     */
+    public LruCache(int maxSize, long timeToLive) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize must be positive");
+        this.maxSize = maxSize;
+        this.timeToLive = (timeToLive > 0) ? TimeUnit.MILLISECONDS.toNanos(timeToLive) : 0;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Provide the cached value
+     * @param key Key
+     * @return The value, or null if it is not cached or has expired
+     */
+    public V get(@NotNull K key) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (!isExpired(entry, now)) {
+                    hits.incrementAndGet();
+                    return entry.value;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Provide the cached value, loading and caching it when it is missing.
+     * Two threads missing the same key at the same time may both load it.
+     * @param key Key
+     * @param loader Loader of the value, errors are not cached
+     * @return The value
+     * @throws Exception Error of the loader
+     */
+    public V get(@NotNull K key, @NotNull Loader<K, V> loader) throws Exception {
+        V value = get(key);
+        if (value != null) return value;
+        value = loader.load(key);
+        if (value != null) put(key, value);
+        return value;
+    }
+
+    /**
+     * Store a value
+     * @param key Key
+     * @param value Value
+     */
+    public void put(@NotNull K key, @NotNull V value) {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            entries.put(key, new Entry<>(value, (timeToLive > 0) ? now + timeToLive : 0));
+            Iterator<Map.Entry<K, Entry<V>>> iterator = entries.entrySet().iterator();
+            while (entries.size() > maxSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Remove the value of the key
+     * @param key Key
+     */
+    public void invalidate(@NotNull K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Remove all values
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Remove the expired values. Expired values are otherwise removed when they are requested or evicted by size.
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Iterator<Entry<V>> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (isExpired(iterator.next(), now)) {
+                    iterator.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Provide the ratio of the requests that were answered from the cache
+     */
+    public double getHitRate() {
+        long hit = hits.get();
+        long total = hit + misses.get();
+        return (total == 0) ? 0.0 : (double) hit / total;
+    }
+
+    private boolean isExpired(@NotNull Entry<V> entry, long now) {
+        return (entry.expiresAt != 0) && (now - entry.expiresAt >= 0);
+    }
+}
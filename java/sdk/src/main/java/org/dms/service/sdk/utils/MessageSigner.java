@@ -0,0 +1,166 @@
+package org.dms.service.sdk.utils;
+
+import org.bouncycastle.asn1.x9.X9ECParameters;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.crypto.digests.SHA256Digest;
+import org.bouncycastle.crypto.ec.CustomNamedCurves;
+import org.bouncycastle.crypto.signers.HMacDSAKCalculator;
+import org.bouncycastle.math.ec.ECAlgorithms;
+import org.bouncycastle.math.ec.ECMultiplier;
+import org.bouncycastle.math.ec.ECPoint;
+import org.bouncycastle.math.ec.FixedPointCombMultiplier;
+import org.bouncycastle.math.ec.FixedPointUtil;
+import org.jetbrains.annotations.NotNull;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Signer bound to one key, producing the same signatures as Sign.signPrefixedMessage of web3j.
+ * The comb table of the generator is precomputed once and shared, and the recovery id is taken
+ * from the point R of the signature instead of recovering up to four public keys.
+ * It is safe to use from multiple threads.
+ */
+public class MessageSigner {
+    private static final X9ECParameters CURVE = CustomNamedCurves.getByName("secp256k1");
+    private static final BigInteger N = CURVE.getN();
+    private static final BigInteger HALF_N = N.shiftRight(1);
+    private static final ECPoint G = CURVE.getG();
+    private static final ECMultiplier multiplier = new FixedPointCombMultiplier();
+    private static final byte[] MESSAGE_PREFIX = "\u0019Ethereum Signed Message:\n".getBytes(StandardCharsets.US_ASCII);
+
+    static {
+        FixedPointUtil.precompute(G);
+    }
+
+    private final ECKeyPair keyPair;
+    private final BigInteger privateKey;
+
+    /**
+     * Constructor
+     * @param keyPair Key pair of the signer
+     */
+    public MessageSigner(@NotNull ECKeyPair keyPair) {
+        this.keyPair = keyPair;
+        this.privateKey = keyPair.getPrivateKey();
+    }
+
+    public ECKeyPair getKeyPair() {
+        return this.keyPair;
+    }
+
+    /**
+     * Sign the message with the Ethereum prefix
+     * @param message Hash of the message
+     * @return The signature as a hexadecimal string
+     */
+    @NotNull
+    public String signMessage(@NotNull byte[] message) {
+        return Numeric.toHexString(sign(message));
+    }
+
+    /**
+     * Sign the message with the Ethereum prefix
+     * @param message Hash of the message
+     * @return The 65 bytes of r, s and v
+     */
+    @NotNull
+    public byte[] sign(@NotNull byte[] message) {
+        byte[] hash = getEthereumMessageHash(message);
+        BigInteger e = new BigInteger(1, hash);
+
+        // Deterministic k of RFC 6979, as used by ECDSASigner of web3j
+        HMacDSAKCalculator kCalculator = new HMacDSAKCalculator(new SHA256Digest());
+        kCalculator.init(N, privateKey, hash);
+
+        BigInteger r;
+        BigInteger s;
+        int recId;
+        do {
+            ECPoint p;
+            BigInteger k;
+            do {
+                k = kCalculator.nextK();
+                p = multiplier.multiply(G, k).normalize();
+                BigInteger x = p.getAffineXCoord().toBigInteger();
+                r = x.mod(N);
+                recId = (p.getAffineYCoord().testBitZero() ? 1 : 0) | (x.compareTo(N) >= 0 ? 2 : 0);
+            } while (r.signum() == 0);
+            s = k.modInverse(N).multiply(e.add(privateKey.multiply(r))).mod(N);
+        } while (s.signum() == 0);
+
+        // The canonical s is the negation, which mirrors R
+        if (s.compareTo(HALF_N) > 0) {
+            s = N.subtract(s);
+            recId ^= 1;
+        }
+
+        byte[] value = new byte[65];
+        writePadded(r, value, 0);
+        writePadded(s, value, 32);
+        value[64] = (byte) (recId + 27);
+        return value;
+    }
+
+    /**
+     * Recover the address of the wallet that signed the message with the Ethereum prefix
+     * @param message Hash of the message
+     * @param signature The 65 bytes of r, s and v
+     * @return The address in lower case, or null if the signature is not valid
+     */
+    public static String recoverAddress(@NotNull byte[] message, @NotNull byte[] signature) {
+        if (signature.length != 65) return null;
+        BigInteger r = new BigInteger(1, Arrays.copyOfRange(signature, 0, 32));
+        BigInteger s = new BigInteger(1, Arrays.copyOfRange(signature, 32, 64));
+        int recId = (signature[64] & 0xff) - 27;
+        if (recId < 0 || recId > 3 || r.signum() == 0 || r.compareTo(N) >= 0 || s.signum() == 0 || s.compareTo(N) >= 0) return null;
+
+        // The point R, from its x coordinate and the parity of its y coordinate
+        BigInteger x = ((recId & 2) != 0) ? r.add(N) : r;
+        if (x.compareTo(CURVE.getCurve().getField().getCharacteristic()) >= 0) return null;
+        byte[] encoded = new byte[33];
+        encoded[0] = (byte) (((recId & 1) != 0) ? 0x03 : 0x02);
+        writePadded(x, encoded, 1);
+        ECPoint point;
+        try {
+            point = CURVE.getCurve().decodePoint(encoded);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        // Q = r^-1 (sR - eG)
+        BigInteger e = new BigInteger(1, getEthereumMessageHash(message));
+        BigInteger rInv = r.modInverse(N);
+        ECPoint q = ECAlgorithms.sumOfTwoMultiplies(G, rInv.multiply(e).negate().mod(N), point, rInv.multiply(s).mod(N)).normalize();
+        if (q.isInfinity()) return null;
+
+        byte[] publicKey = q.getEncoded(false);
+        KeccakDigest digest = new KeccakDigest(256);
+        digest.update(publicKey, 1, 64);
+        byte[] hash = new byte[32];
+        digest.doFinal(hash, 0);
+        return Numeric.toHexString(Arrays.copyOfRange(hash, 12, 32));
+    }
+
+    @NotNull
+    private static byte[] getEthereumMessageHash(@NotNull byte[] message) {
+        byte[] length = Integer.toString(message.length).getBytes(StandardCharsets.US_ASCII);
+        KeccakDigest digest = new KeccakDigest(256);
+        digest.update(MESSAGE_PREFIX, 0, MESSAGE_PREFIX.length);
+        digest.update(length, 0, length.length);
+        digest.update(message, 0, message.length);
+        byte[] hash = new byte[32];
+        digest.doFinal(hash, 0);
+        return hash;
+    }
+
+    private static void writePadded(@NotNull BigInteger value, @NotNull byte[] out, int offset) {
+        byte[] bytes = value.toByteArray();
+        int start = (bytes.length > 32) ? bytes.length - 32 : 0;
+        int length = bytes.length - start;
+        System.arraycopy(bytes, start, out, offset + 32 - length, length);
+    }
+}
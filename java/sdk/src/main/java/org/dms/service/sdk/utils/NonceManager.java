@@ -0,0 +1,124 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Hands out the nonces of signing accounts without asking the relay server for each signature.
+ * The nonce of an account is requested once, then incremented locally for each message.
+ * When the relay server rejects a nonce, the account is resynchronized and the next nonce is requested again.
+ */
+public class NonceManager {
+    /**
+     * The error code of the relay server when the signature or the nonce of a message is invalid
+     */
+    public static final int NONCE_ERROR_CODE = 1501;
+
+    private static final class Counter {
+        long next = -1;
+        CompletableFuture<Long> loading;
+    }
+
+    private final Function<String, CompletableFuture<Long>> loader;
+    private final ConcurrentHashMap<String, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     * @param loader Requests the nonce of an account from the relay server
+     */
+    public NonceManager(@NotNull Function<String, CompletableFuture<Long>> loader) {
+        this.loader = loader;
+    }
+
+    private Counter getCounter(@NotNull String account) {
+        return this.counters.computeIfAbsent(account.trim().toLowerCase(), key -> new Counter());
+    }
+
+    /**
+     * Provide the nonce to sign the next message of the account
+     * @param account Wallet address
+     * @return The nonce
+     * @throws Exception Error while requesting the nonce
+     */
+    public long next(@NotNull String account) throws Exception {
+        try {
+            return this.nextAsync(account).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause instanceof CompletionException && cause.getCause() != null) cause = cause.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+    }
+
+    /**
+     * Provide the nonce to sign the next message of the account without blocking the calling thread.
+     * Only one request is made when many threads ask for an account that is not synchronized.
+     * @param account Wallet address
+     * @return The future of the nonce
+     */
+    public CompletableFuture<Long> nextAsync(@NotNull String account) {
+        Counter counter = this.getCounter(account);
+        CompletableFuture<Long> loading;
+        boolean load = false;
+        synchronized (counter) {
+            if (counter.next >= 0) return CompletableFuture.completedFuture(counter.next++);
+            if (counter.loading == null) {
+                counter.loading = new CompletableFuture<>();
+                load = true;
+            }
+            loading = counter.loading;
+        }
+        if (load) {
+            CompletableFuture<Long> request;
+            try {
+                request = this.loader.apply(account);
+            } catch (Exception e) {
+                request = CompletableFuture.failedFuture(e);
+            }
+            request.whenComplete((nonce, error) -> {
+                synchronized (counter) {
+                    if (counter.loading == loading) {
+                        counter.loading = null;
+                        if (error == null) counter.next = nonce;
+                    }
+                }
+                if (error != null) loading.completeExceptionally(error);
+                else loading.complete(nonce);
+            });
+        }
+        return loading.thenCompose(nonce -> this.nextAsync(account));
+    }
+
+    /**
+     * Forget the nonce of the account, the next one is requested from the relay server
+     * @param account Wallet address
+     */
+    public void resync(@NotNull String account) {
+        Counter counter = this.getCounter(account);
+        synchronized (counter) {
+            counter.next = -1;
+            counter.loading = null;
+        }
+    }
+
+    /**
+     * Check if the relay server rejected a message because of its nonce.
+     * The relay server answers `Internal Error : <message> (1501)`, other errors are not matched even if they mention a nonce.
+     * @param error The error of a request
+     */
+    public static boolean isNonceError(Throwable error) {
+        String code = String.format(" (%d)", NONCE_ERROR_CODE);
+        while (error != null) {
+            String message = error.getMessage();
+            if (message != null && message.startsWith("Internal Error : ") && message.endsWith(code)) return true;
+            error = error.getCause();
+        }
+        return false;
+    }
+}
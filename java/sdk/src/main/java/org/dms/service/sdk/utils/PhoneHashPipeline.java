@@ -0,0 +1,176 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Computes the hashes of many phone numbers in parallel.
+ * Phone numbers are read in chunks, normalized and hashed on a pool of threads, and written as `phone,hash` lines
+ * in the order they were read. Only a few chunks per thread are kept in memory at a time.
+ * Numbers that are not valid are written to a separate sink.
+ */
+public class PhoneHashPipeline {
+    /**
+     * Counts of the processed phone numbers
+     */
+    public static class Result {
+        public long total;
+        public long valid;
+        public long invalid;
+    }
+
+    private static class Chunk {
+        final StringBuilder valid = new StringBuilder();
+        final StringBuilder invalid = new StringBuilder();
+        long validCount;
+        long invalidCount;
+    }
+
+    private final int threads;
+    private final int chunkSize;
+
+    /**
+     * Constructor with one thread per available processor
+     */
+    public PhoneHashPipeline() {
+        this(Runtime.getRuntime().availableProcessors(), 1000);
+    }
+
+    /**
+     * Constructor
+     * @param threads Number of threads computing the hashes
+     * @param chunkSize Number of phone numbers processed together
+     */
+    public PhoneHashPipeline(int threads, int chunkSize) {
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Process the phone numbers of a file, one per line
+     * @param input File of phone numbers
+     * @param output File of `phone,hash` lines
+     * @param invalid File of the phone numbers that are not valid
+     * @return Counts of the processed phone numbers
+     * @throws Exception Error while reading or writing
+     */
+    @NotNull
+    public Result run(@NotNull Path input, @NotNull Path output, @NotNull Path invalid) throws Exception {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter validWriter = Files.newBufferedWriter(output, StandardCharsets.UTF_8);
+             BufferedWriter invalidWriter = Files.newBufferedWriter(invalid, StandardCharsets.UTF_8)) {
+            return run(reader.lines(), validWriter, invalidWriter);
+        }
+    }
+
+    /**
+     * Process the phone numbers of a stream
+     * @param input Phone numbers
+     * @param output Sink of `phone,hash` lines
+     * @param invalid Sink of the phone numbers that are not valid
+     * @return Counts of the processed phone numbers
+     * @throws Exception Error while writing
+     */
+    @NotNull
+    public Result run(@NotNull Stream<String> input, @NotNull Writer output, @NotNull Writer invalid) throws Exception {
+        return run(input.iterator(), output, invalid);
+    }
+
+    /**
+     * Process the phone numbers
+     * @param input Phone numbers
+     * @param output Sink of `phone,hash` lines
+     * @param invalid Sink of the phone numbers that are not valid
+     * @return Counts of the processed phone numbers
+     * @throws Exception Error while writing
+     */
+    @NotNull
+    public Result run(@NotNull Iterator<String> input, @NotNull Writer output, @NotNull Writer invalid) throws Exception {
+        Result result = new Result();
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "PhoneHashPipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            while (input.hasNext()) {
+                List<String> phones = new ArrayList<>(chunkSize);
+                while (phones.size() < chunkSize && input.hasNext()) {
+                    phones.add(input.next());
+                }
+                pending.add(executor.submit(() -> process(phones)));
+                // Wait for the oldest chunk so that memory stays bounded and the order is kept
+                if (pending.size() >= threads * 2) {
+                    write(pending.poll(), output, invalid, result);
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), output, invalid, result);
+            }
+            output.flush();
+            invalid.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    @NotNull
+    private static Chunk process(@NotNull List<String> phones) {
+        Chunk chunk = new Chunk();
+        for (String value : phones) {
+            String phone = value.trim();
+            if (phone.isEmpty()) continue;
+            try {
+                String hash = CommonUtils.getPhoneHash(CommonUtils.getInternationalPhoneNumber(phone));
+                appendField(chunk.valid, phone).append(',').append(hash).append('\n');
+                chunk.validCount++;
+            } catch (Exception e) {
+                chunk.invalid.append(phone).append('\n');
+                chunk.invalidCount++;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * Write the field of CSV, quoted when it contains a separator
+     */
+    @NotNull
+    private static StringBuilder appendField(@NotNull StringBuilder sb, @NotNull String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return sb.append(value);
+        return sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void write(@NotNull Future<Chunk> future, @NotNull Writer output, @NotNull Writer invalid, @NotNull Result result) throws Exception {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) throw (Exception) cause;
+            throw e;
+        }
+        output.append(chunk.valid);
+        invalid.append(chunk.invalid);
+        result.valid += chunk.validCount;
+        result.invalid += chunk.invalidCount;
+        result.total += chunk.validCount + chunk.invalidCount;
+    }
+}
@@ -0,0 +1,104 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Cache of the international phone number and its hash, keyed by the phone number as it was entered.
+ * It avoids parsing the number and hashing it again for customers who come back.
+ */
+public class PhoneNumberCache {
+    /**
+     * The international phone number and its hash
+     */
+    public static class Entry {
+        public final String phoneNumber;
+        public final String phoneHash;
+
+        public Entry(String phoneNumber, String phoneHash) {
+            this.phoneNumber = phoneNumber;
+            this.phoneHash = phoneHash;
+        }
+    }
+
+    private static volatile PhoneNumberCache defaultCache;
+
+    private final LruCache<String, Entry> cache;
+
+    /**
+     * Constructor with 10000 entries kept for one hour
+     */
+    public PhoneNumberCache() {
+        this(10000, 3600 * 1000L);
+    }
+
+    /**
+     * Constructor
+     * @param maxSize Maximum number of phone numbers
+     * @param timeToLive Time to live of an entry in milliseconds
+     */
+    public PhoneNumberCache(int maxSize, long timeToLive) {
+        this.cache = new LruCache<>(maxSize, timeToLive);
+    }
+
+    /**
+     * Provide the cache shared by the clients
+     * @return PhoneNumberCache
+     */
+    public static PhoneNumberCache getDefault() {
+        PhoneNumberCache cache = defaultCache;
+        if (cache == null) {
+            synchronized (PhoneNumberCache.class) {
+                cache = defaultCache;
+                if (cache == null) {
+                    cache = new PhoneNumberCache();
+                    defaultCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Provide the international phone number and its hash
+     * @param phoneNumber Phone number as it was entered
+     * @return Entry
+     * @throws Exception If the phone number is not valid. Invalid numbers are not cached.
+     */
+    @NotNull
+    public Entry get(@NotNull String phoneNumber) throws Exception {
+        return cache.get(phoneNumber.trim(), key -> {
+            String international = CommonUtils.getInternationalPhoneNumber(key);
+            return new Entry(international, CommonUtils.getPhoneHash(international));
+        });
+    }
+
+    /**
+     * Provide the hash of the phone number
+     * @param phoneNumber Phone number as it was entered
+     * @throws Exception If the phone number is not valid
+     */
+    @NotNull
+    public String getPhoneHash(@NotNull String phoneNumber) throws Exception {
+        return get(phoneNumber).phoneHash;
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public long getHitCount() {
+        return cache.getHitCount();
+    }
+
+    public long getMissCount() {
+        return cache.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return cache.getEvictionCount();
+    }
+}
@@ -0,0 +1,85 @@
+package org.dms.service.sdk.utils;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Shares one request between the callers that ask for the same key at the same time.
+ * The first caller sends the request, and the callers that arrive while it is in flight receive its result.
+ * Nothing is kept after the request completes, the next caller sends a new request.
+ */
+public class RequestCoalescer<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Provide the value of the key, waiting for the request in flight if there is one
+     * @param key The key of the request
+     * @param request Sends the request, called only when no request for the key is in flight
+     * @return The value
+     * @throws Exception Error of the request
+     */
+    public V get(@NotNull K key, @NotNull Callable<V> request) throws Exception {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            try {
+                return existing.get();
+            } catch (ExecutionException e) {
+                throw unwrap(e.getCause());
+            }
+        }
+        try {
+            V value = request.call();
+            this.inFlight.remove(key, created);
+            created.complete(value);
+            return value;
+        } catch (Throwable e) {
+            // Also an Error, so the callers waiting for the request are not left waiting
+            this.inFlight.remove(key, created);
+            created.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Provide the value of the key without blocking the calling thread, sharing the request in flight if there is one
+     * @param key The key of the request
+     * @param request Sends the request, called only when no request for the key is in flight
+     * @return The future of the value
+     */
+    public CompletableFuture<V> getAsync(@NotNull K key, @NotNull Function<K, CompletableFuture<V>> request) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, created);
+        if (existing != null) return existing.copy();
+        try {
+            request.apply(key).whenComplete((value, error) -> {
+                this.inFlight.remove(key, created);
+                if (error != null) created.completeExceptionally(error);
+                else created.complete(value);
+            });
+        } catch (Throwable e) {
+            this.inFlight.remove(key, created);
+            created.completeExceptionally(e);
+        }
+        return created.copy();
+    }
+
+    /**
+     * Provide the number of requests in flight
+     */
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+
+    private static Exception unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) error = error.getCause();
+        if (error instanceof Exception) return (Exception) error;
+        return new Exception(error);
+    }
+}
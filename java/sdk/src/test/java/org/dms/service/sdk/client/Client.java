@@ -2,10 +2,28 @@ package org.dms.service.sdk.client;
 
 import org.dms.service.sdk.data.NetWorkType;
 import org.dms.service.sdk.data.UserBalance;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
 import org.dms.service.sdk.utils.CommonUtils;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -19,6 +37,37 @@ class ClientTest {
             Assertions.assertEquals("some exception message...", e.getMessage());
         }
     }
+    @Test void getChainIdShared() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicInteger requests = new AtomicInteger();
+        Client client = new Client(NetWorkType.testnet, new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                requests.incrementAndGet();
+                Thread.sleep(50);
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                requests.incrementAndGet();
+                return memory.requestAsync(method, uri, body);
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int idx = 0; idx < 32; idx++) futures.add(executor.submit(client::getChainId));
+            for (Future<Long> future : futures) assertEquals(215115, (long) future.get());
+            assertEquals(1, requests.get());
+            assertEquals(215115, (long) client.getChainIdAsync().get());
+            assertEquals(1, requests.get());
+        } catch (Exception e) {
+            Assertions.assertEquals("some exception message...", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
     @Test void getBalancePhone() {
         Client client = new Client(NetWorkType.testnet);
         try {
@@ -58,6 +107,42 @@ class ClientTest {
             Assertions.assertEquals("some exception message...", e.getMessage());
         }
     }
+    @Test void invalidArgumentAsync() {
+        Client client = new Client(NetWorkType.testnet, new InMemoryHttpTransport(215115, 10));
+        CompletableFuture<UserBalance> future = client.getBalanceAccountAsync("0x64D111eA9763c93a003cef491941A011B8df5a49 <>");
+        assertTrue(future.isCompletedExceptionally());
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof URISyntaxException);
+        } catch (Exception e) {
+            Assertions.assertEquals("some exception message...", e.getMessage());
+        }
+    }
+    @Test void cancelledAsync() {
+        CompletableFuture<InputStream> response = new CompletableFuture<>();
+        AtomicBoolean closed = new AtomicBoolean(false);
+        Client client = new Client(NetWorkType.testnet, new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                throw new IOException("Not used");
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                return response;
+            }
+        });
+        // The response that arrives after the caller cancelled is closed, so the transport can reuse its connection
+        client.getLedgerNonceOfAsync("0x64D111eA9763c93a003cef491941A011B8df5a49").cancel(false);
+        response.complete(new ByteArrayInputStream("{\"code\":0,\"data\":{\"nonce\":1}}".getBytes()) {
+            @Override
+            public void close() {
+                closed.set(true);
+            }
+        });
+        assertTrue(closed.get());
+    }
     @Test void getInternationalPhoneNumber() {
         Client client = new Client(NetWorkType.testnet);
         try {
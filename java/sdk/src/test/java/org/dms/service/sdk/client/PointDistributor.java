@@ -0,0 +1,238 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PointDistributorTest {
+    @Test
+    void run() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicBoolean lost = new AtomicBoolean(false);
+        AtomicInteger sends = new AtomicInteger();
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        String failing = "0x0000000000000000000000000000000000000007";
+        // A request sent after another one may reach the relay first
+        ExecutorService network = Executors.newFixedThreadPool(4);
+        ProviderClient client = new ProviderClient(NetWorkType.testnet, "0x70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (!uri.getPath().startsWith("/v1/provider/send/")) return memory.requestAsync(method, uri, body);
+                int count = sends.incrementAndGet();
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                // The response of the same receiver is lost once, after the relay used the nonce
+                boolean lose = new JSONObject(new String(body, StandardCharsets.UTF_8)).getString("receiver").equals(failing) && lost.compareAndSet(false, true);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(10 - (count % 4) * 2);
+                        InputStream response = memory.request(method, uri, body);
+                        if (lose) throw new IOException("Connection reset");
+                        return response;
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                }, network);
+            }
+        });
+        try {
+            List<String> lines = new ArrayList<>();
+            lines.add("# receiver,amount");
+            for (int idx = 1; idx <= 20; idx++) lines.add(String.format("0x%040x,1_000", idx));
+            lines.add("+82 10-9000-0001,2,000.5");
+            lines.add("0x0000000000000000000000000000000000000099");
+            lines.add("");
+            Path input = Files.createTempFile("points", ".csv");
+            Path journal = Files.createTempFile("points", ".journal");
+            Files.delete(journal);
+            Files.write(input, lines, StandardCharsets.UTF_8);
+
+            // The first run is stopped after ten lines
+            PointDistributor distributor = new PointDistributor(client, client.getAddress(), 4, 0);
+            PointDistributor.Result first = distributor.run(lines.subList(0, 11).iterator(), journal);
+            assertEquals(10, first.total);
+            assertEquals(9, first.sent);
+            assertEquals(0, first.failed);
+            assertEquals(1, first.unknown);
+            assertEquals(0, first.skipped);
+
+            // The line whose response was lost may have been processed, so it is not sent again
+            PointDistributor.Result second = distributor.run(input, journal);
+            assertEquals(22, second.total);
+            assertEquals(11, second.sent);
+            assertEquals(1, second.failed);
+            assertEquals(0, second.unknown);
+            assertEquals(10, second.skipped);
+            // The requests of the provider are sent one after another
+            assertEquals(1, maxInFlight.get());
+            assertEquals(21, sends.get());
+
+            assertEquals(Amount.make("1_000").getValue(), client.getBalanceAccount(failing).point.balance);
+            assertEquals(Amount.make("1_000").getValue(), client.getBalanceAccount(String.format("0x%040x", 20)).point.balance);
+            assertEquals(Amount.make("2,000.5").getValue(), client.getBalancePhoneHash(CommonUtils.getPhoneHash(CommonUtils.getInternationalPhoneNumber("+82 10-9000-0001"))).point.balance);
+            assertEquals(22, Files.readAllLines(journal).size());
+            // Every request was signed with the nonce expected by the relay
+            assertEquals(21, client.getLedgerNonceOf(client.getAddress()));
+
+            Files.delete(input);
+            Files.delete(journal);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            network.shutdown();
+        }
+    }
+
+    @Test
+    void reordered() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicInteger sends = new AtomicInteger();
+        AtomicInteger nonceErrors = new AtomicInteger();
+        // Each request is slower than the one sent after it
+        ExecutorService network = Executors.newFixedThreadPool(8);
+        ProviderClient client = new ProviderClient(NetWorkType.testnet, "0x70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (!uri.getPath().startsWith("/v1/provider/send/")) return memory.requestAsync(method, uri, body);
+                int count = sends.incrementAndGet();
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(16 - (count % 8) * 2);
+                        byte[] response = memory.request(method, uri, body).readAllBytes();
+                        if (new JSONObject(new String(response, StandardCharsets.UTF_8)).getInt("code") == 1501) nonceErrors.incrementAndGet();
+                        return new ByteArrayInputStream(response);
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    }
+                }, network);
+            }
+        });
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int idx = 1; idx <= 40; idx++) lines.add(String.format("0x%040x,1", idx));
+            Path journal = Files.createTempFile("points", ".journal");
+            PointDistributor.Result result = new PointDistributor(client, client.getAddress(), 8, 0).run(lines.iterator(), journal);
+            assertEquals(40, result.sent);
+            assertEquals(0, result.failed);
+            assertEquals(0, nonceErrors.get());
+            assertEquals(40, sends.get());
+            assertEquals(40, client.getLedgerNonceOf(client.getAddress()));
+            Files.delete(journal);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            network.shutdown();
+        }
+    }
+
+    @Test
+    void rate() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        ProviderClient client = new ProviderClient(NetWorkType.testnet, "0x70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", memory);
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int idx = 1; idx <= 10; idx++) lines.add(String.format("0x%040x,1", idx));
+            Path journal = Files.createTempFile("points", ".journal");
+            PointDistributor.Result result = new PointDistributor(client, client.getAddress(), 8, 100).run(lines.iterator(), journal);
+            assertEquals(10, result.sent);
+            assertTrue(result.elapsed >= 80);
+            assertTrue(result.getThroughput() <= 110);
+            Files.delete(journal);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void rejected() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicBoolean rejected = new AtomicBoolean(false);
+        AtomicBoolean badRequest = new AtomicBoolean(false);
+        String failing = "0x0000000000000000000000000000000000000002";
+        String invalid = "0x0000000000000000000000000000000000000003";
+        String unavailable = "0x0000000000000000000000000000000000000004";
+        ProviderClient client = new ProviderClient(NetWorkType.testnet, "0x70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (!uri.getPath().startsWith("/v1/provider/send/")) return memory.requestAsync(method, uri, body);
+                String receiver = new JSONObject(new String(body, StandardCharsets.UTF_8)).getString("receiver");
+                // The relay rejects the same receiver once
+                if (receiver.equals(failing) && rejected.compareAndSet(false, true)) {
+                    String response = "{\"code\":2001,\"error\":{\"message\":\"Rejected\"}}";
+                    return CompletableFuture.completedFuture(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+                }
+                // A status of 4xx is a rejection, a status of 5xx leaves the result unknown
+                if (receiver.equals(invalid) && badRequest.compareAndSet(false, true)) {
+                    return CompletableFuture.failedFuture(new IOException("Server returned HTTP response code: 400 for URL: " + uri));
+                }
+                if (receiver.equals(unavailable)) {
+                    return CompletableFuture.failedFuture(new IOException("Server returned HTTP response code: 503 for URL: " + uri));
+                }
+                return memory.requestAsync(method, uri, body);
+            }
+        });
+        try {
+            List<String> lines = new ArrayList<>();
+            for (int idx = 1; idx <= 4; idx++) lines.add(String.format("0x%040x,1", idx));
+            Path journal = Files.createTempFile("points", ".journal");
+            PointDistributor distributor = new PointDistributor(client, client.getAddress(), 1, 0);
+            PointDistributor.Result first = distributor.run(lines.iterator(), journal);
+            assertEquals(1, first.sent);
+            assertEquals(2, first.failed);
+            assertEquals(1, first.unknown);
+
+            // The rejected lines are sent again
+            PointDistributor.Result second = distributor.run(lines.iterator(), journal);
+            assertEquals(2, second.sent);
+            assertEquals(2, second.skipped);
+            assertEquals(Amount.make("1").getValue(), client.getBalanceAccount(failing).point.balance);
+            assertEquals(Amount.make("1").getValue(), client.getBalanceAccount(invalid).point.balance);
+            assertEquals(3, client.getLedgerNonceOf(client.getAddress()));
+            Files.delete(journal);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.purchase.PurchaseDetail;
+import org.dms.service.sdk.data.purchase.ResponseSavePurchase;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PurchaseOutboxTest {
+    private static final String PRIVATE_KEY = "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276";
+    private static final String ASSET = "0x85EeBb1289c0d0C17eFCbadB40AeF0a1c3b46714";
+    private static final String SHOP_ID = "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874";
+
+    private static SavePurchaseClient makeClient(InMemoryHttpTransport memory, AtomicInteger posts, AtomicInteger failures, String rejected) {
+        return makeClient(memory, posts, failures, rejected, new ArrayList<>());
+    }
+
+    /**
+     * The posted requests are added to the list as the last part of the path and the purchase id
+     */
+    private static SavePurchaseClient makeClient(InMemoryHttpTransport memory, AtomicInteger posts, AtomicInteger failures, String rejected, List<String> sent) {
+        return new SavePurchaseClient(NetWorkType.testnet, PRIVATE_KEY, ASSET, new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (!uri.getPath().startsWith("/v2/tx/purchase/")) return memory.requestAsync(method, uri, body);
+                posts.incrementAndGet();
+                String purchaseId = new JSONObject(new String(body, StandardCharsets.UTF_8)).getJSONObject("purchase").getString("purchaseId");
+                synchronized (sent) {
+                    sent.add(uri.getPath().substring("/v2/tx/purchase/".length()) + " " + purchaseId);
+                }
+                // The save server can not be reached a few times
+                if (failures.getAndUpdate(value -> Math.max(0, value - 1)) > 0) {
+                    return CompletableFuture.failedFuture(new IOException("Connection refused"));
+                }
+                if (purchaseId.equals(rejected)) {
+                    String response = "{\"code\":2001,\"error\":{\"message\":\"Rejected\"}}";
+                    return CompletableFuture.completedFuture(new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8)));
+                }
+                return memory.requestAsync(method, uri, body);
+            }
+        });
+    }
+
+    private static CompletableFuture<ResponseSavePurchase> save(PurchaseOutbox outbox, String purchaseId) throws Exception {
+        return outbox.saveNewPurchase(
+                purchaseId,
+                CommonUtils.getTimeStamp(),
+                0,
+                "10000",
+                "10000",
+                "php",
+                SHOP_ID,
+                "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                "",
+                new PurchaseDetail[]{new PurchaseDetail("2020051310000000", "10000", 10)}
+        );
+    }
+
+    private static void waitForPending(PurchaseOutbox outbox, int expected) throws Exception {
+        for (int idx = 0; idx < 500 && outbox.getPending() != expected; idx++) Thread.sleep(10);
+    }
+
+    @Test
+    void deliver() {
+        AtomicInteger posts = new AtomicInteger();
+        SavePurchaseClient client = makeClient(new InMemoryHttpTransport(215115, 10), posts, new AtomicInteger(), "");
+        try {
+            Path path = Files.createTempFile("outbox", ".journal");
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path)) {
+                outbox.start();
+                List<String> purchaseIds = new ArrayList<>();
+                List<CompletableFuture<ResponseSavePurchase>> futures = new ArrayList<>();
+                for (int idx = 0; idx < 20; idx++) {
+                    String purchaseId = CommonUtils.getSamplePurchaseId();
+                    purchaseIds.add(purchaseId);
+                    futures.add(save(outbox, purchaseId));
+                }
+                futures.add(outbox.saveCancelPurchase(purchaseIds.get(0), CommonUtils.getTimeStamp(), 0));
+                for (int idx = 0; idx < 20; idx++) assertEquals(purchaseIds.get(idx), futures.get(idx).get().purchaseId);
+                assertEquals(purchaseIds.get(0), futures.get(20).get().purchaseId);
+                waitForPending(outbox, 0);
+                assertEquals(0, outbox.getPending());
+            }
+            assertEquals(21, posts.get());
+
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path)) {
+                assertEquals(0, outbox.getPending());
+            }
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void replay() {
+        AtomicInteger posts = new AtomicInteger();
+        SavePurchaseClient client = makeClient(new InMemoryHttpTransport(215115, 10), posts, new AtomicInteger(), "");
+        try {
+            Path path = Files.createTempFile("outbox", ".journal");
+            // The process dies before the purchases are sent
+            PurchaseOutbox crashed = new PurchaseOutbox(client, path);
+            for (int idx = 0; idx < 3; idx++) save(crashed, CommonUtils.getSamplePurchaseId());
+            assertEquals(3, crashed.getPending());
+
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path)) {
+                assertEquals(3, outbox.getPending());
+                outbox.start();
+                waitForPending(outbox, 0);
+                assertEquals(0, outbox.getPending());
+            }
+            assertEquals(3, posts.get());
+
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path)) {
+                assertEquals(0, outbox.getPending());
+            }
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void retry() {
+        AtomicInteger posts = new AtomicInteger();
+        String rejected = CommonUtils.getSamplePurchaseId();
+        SavePurchaseClient client = makeClient(new InMemoryHttpTransport(215115, 10), posts, new AtomicInteger(2), rejected);
+        try {
+            Path path = Files.createTempFile("outbox", ".journal");
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path, 64 * 1024, 10, 1, 10)) {
+                outbox.start();
+                String purchaseId = CommonUtils.getSamplePurchaseId();
+                assertEquals(purchaseId, save(outbox, purchaseId).get().purchaseId);
+                assertEquals(3, posts.get());
+                try {
+                    save(outbox, rejected).get();
+                } catch (Exception e) {
+                    assertEquals("Internal Error : Rejected (2001)", e.getCause().getMessage());
+                }
+                assertEquals(4, posts.get());
+                waitForPending(outbox, 0);
+                assertEquals(0, outbox.getPending());
+            }
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void order() {
+        AtomicInteger posts = new AtomicInteger();
+        List<String> sent = new ArrayList<>();
+        SavePurchaseClient client = makeClient(new InMemoryHttpTransport(215115, 10), posts, new AtomicInteger(3), "", sent);
+        try {
+            Path path = Files.createTempFile("outbox", ".journal");
+            String purchaseId = CommonUtils.getSamplePurchaseId();
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path, 64 * 1024, 10, 1, 10)) {
+                outbox.start();
+                // The cancellation waits until the purchase is answered, while the purchase is sent again
+                CompletableFuture<ResponseSavePurchase> saved = save(outbox, purchaseId);
+                CompletableFuture<ResponseSavePurchase> cancelled = outbox.saveCancelPurchase(purchaseId, CommonUtils.getTimeStamp(), 0);
+                assertEquals(purchaseId, saved.get().purchaseId);
+                assertEquals(purchaseId, cancelled.get().purchaseId);
+                waitForPending(outbox, 0);
+                assertEquals(0, outbox.getPending());
+            }
+            assertEquals(5, posts.get());
+            List<String> expected = new ArrayList<>();
+            for (int idx = 0; idx < 4; idx++) expected.add("new " + purchaseId);
+            expected.add("cancel " + purchaseId);
+            assertEquals(expected, sent);
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void compact() {
+        SavePurchaseClient client = makeClient(new InMemoryHttpTransport(215115, 10), new AtomicInteger(), new AtomicInteger(), "");
+        try {
+            Path path = Files.createTempFile("outbox", ".journal");
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path, 4096, 10, 1, 10)) {
+                // The first entry is never acknowledged, the others are acknowledged at once
+                JSONObject body = client.makeCancelPurchaseBody(CommonUtils.getSamplePurchaseId(), CommonUtils.getTimeStamp(), 0, client.getChainId());
+                outbox.append(PurchaseOutbox.CANCEL, body);
+                for (long id = 1; id <= 100; id++) {
+                    outbox.append(PurchaseOutbox.CANCEL, body);
+                    outbox.acknowledge(id);
+                }
+                assertEquals(1, outbox.getPending());
+
+                int appended = 0;
+                try {
+                    while (appended < 100) {
+                        outbox.append(PurchaseOutbox.CANCEL, body);
+                        appended++;
+                    }
+                } catch (Exception e) {
+                    assertEquals("Internal Error : The outbox of purchases is full", e.getMessage());
+                }
+                assertTrue(appended > 0 && appended < 100);
+                assertEquals(appended + 1, outbox.getPending());
+            }
+            assertEquals(4096, Files.size(path));
+
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path, 4096, 10, 1, 10)) {
+                int pending = outbox.getPending();
+                assertTrue(pending > 1);
+                outbox.start();
+                waitForPending(outbox, 0);
+                assertEquals(0, outbox.getPending());
+                // The journal is cleared, so it has room again
+                for (int idx = 0; idx < 20; idx++) save(outbox, CommonUtils.getSamplePurchaseId()).get();
+            }
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void failedAcknowledge() {
+        SavePurchaseClient client = makeClient(new InMemoryHttpTransport(215115, 10), new AtomicInteger(), new AtomicInteger(), "");
+        try {
+            Path path = Files.createTempFile("outbox", ".journal");
+            // The new journal can not be created while a directory has its name
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.createDirectory(temp);
+            List<IOException> errors = new ArrayList<>();
+            long acknowledged = 0;
+            int pending;
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path, 4096, 10, 1, 10)) {
+                outbox.setErrorHandler(errors::add);
+                // The records are small, so the journal is full to the last bytes
+                JSONObject body = new JSONObject();
+                int appended = 0;
+                try {
+                    while (appended < 1000) {
+                        outbox.append(PurchaseOutbox.CANCEL, body);
+                        appended++;
+                    }
+                } catch (IOException e) {
+                    assertTrue(appended > 1 && appended < 1000);
+                }
+                // The first entry is never acknowledged, the others until there is no room for an acknowledgement
+                while (errors.isEmpty() && acknowledged < appended - 1) outbox.acknowledge(++acknowledged);
+                assertEquals(1, errors.size());
+                assertEquals(appended - acknowledged, outbox.getPending());
+
+                // The acknowledged entries are left out of the compacted journal
+                Files.delete(temp);
+                outbox.acknowledge(++acknowledged);
+                assertEquals(1, errors.size());
+                assertEquals(appended - acknowledged, outbox.getPending());
+                outbox.append(PurchaseOutbox.CANCEL, body);
+                pending = outbox.getPending();
+                assertEquals(appended - acknowledged + 1, pending);
+            }
+
+            try (PurchaseOutbox outbox = new PurchaseOutbox(client, path, 4096, 10, 1, 10)) {
+                assertEquals(pending, outbox.getPending());
+            }
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.dms.service.sdk.client;
+
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.purchase.PurchaseDetail;
+import org.dms.service.sdk.data.purchase.ResponseSavePurchase;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PurchaseSubmitterTest {
+    private static final String PRIVATE_KEY = "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276";
+    private static final String ASSET = "0x85EeBb1289c0d0C17eFCbadB40AeF0a1c3b46714";
+    private static final String SHOP_ID = "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874";
+
+    @Test
+    void submit() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        SavePurchaseClient client = new SavePurchaseClient(NetWorkType.testnet, PRIVATE_KEY, ASSET, new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        Thread.sleep(5);
+                        return memory.request(method, uri, body);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                });
+            }
+        });
+        PurchaseSubmitter submitter = new PurchaseSubmitter(client, 100, 4, 3);
+        try {
+            List<String> purchaseIds = new ArrayList<>();
+            List<CompletableFuture<ResponseSavePurchase>> futures = new ArrayList<>();
+            for (int idx = 0; idx < 40; idx++) {
+                String purchaseId = CommonUtils.getSamplePurchaseId();
+                purchaseIds.add(purchaseId);
+                futures.add(submitter.submitNewPurchase(
+                        purchaseId,
+                        CommonUtils.getTimeStamp(),
+                        0,
+                        "10000",
+                        "10000",
+                        "php",
+                        SHOP_ID,
+                        "",
+                        "+82 10-9000-" + String.format("%04d", idx),
+                        new PurchaseDetail[]{new PurchaseDetail("2020051310000000", "10000", 10)}
+                ));
+            }
+            futures.add(submitter.submitCancelPurchase(purchaseIds.get(0), CommonUtils.getTimeStamp(), 0));
+
+            Set<String> sequences = new HashSet<>();
+            for (int idx = 0; idx < 40; idx++) {
+                ResponseSavePurchase response = futures.get(idx).get();
+                assertEquals(purchaseIds.get(idx), response.purchaseId);
+                sequences.add(response.sequence);
+            }
+            assertEquals(purchaseIds.get(0), futures.get(40).get().purchaseId);
+            assertEquals(40, sequences.size());
+            assertTrue(maxInFlight.get() <= 3);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            submitter.close();
+        }
+    }
+
+    @Test
+    void full() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        SavePurchaseClient client = new SavePurchaseClient(NetWorkType.testnet, PRIVATE_KEY, ASSET, new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                return CompletableFuture.supplyAsync(() -> {
+                    try {
+                        release.await();
+                        return memory.request(method, uri, body);
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+            }
+        });
+        PurchaseSubmitter submitter = new PurchaseSubmitter(client, 2, 1, 1);
+        List<CompletableFuture<ResponseSavePurchase>> futures = new ArrayList<>();
+        try {
+            // One request is held, the worker waits for a permit with the next one, and two wait in the queue
+            long started = System.nanoTime();
+            for (int idx = 0; idx < 8; idx++) {
+                futures.add(submitter.submitCancelPurchase(CommonUtils.getSamplePurchaseId(), CommonUtils.getTimeStamp(), 0));
+                Thread.sleep(20);
+            }
+            assertTrue(System.nanoTime() - started < 2_000_000_000L);
+            assertEquals(2, submitter.getPending());
+            try {
+                futures.get(7).get();
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+                assertEquals("The queue of purchases is full", e.getCause().getMessage());
+            }
+
+            release.countDown();
+            submitter.close();
+            for (int idx = 0; idx < 4; idx++) assertTrue(!futures.get(idx).get().sequence.isEmpty());
+            try {
+                submitter.submitCancelPurchase(CommonUtils.getSamplePurchaseId(), CommonUtils.getTimeStamp(), 0).get();
+            } catch (Exception e) {
+                assertTrue(e.getCause() instanceof RejectedExecutionException);
+                assertEquals("The submitter of purchases is closed", e.getCause().getMessage());
+            }
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            release.countDown();
+            submitter.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package org.dms.service.sdk.event;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptivePollingTest {
+    @Test
+    void nextDelay() {
+        AdaptivePolling polling = new AdaptivePolling(100, 1000, 2.0, 0.0);
+        assertEquals(0, polling.nextDelay(true));
+        assertEquals(100, polling.nextDelay(false));
+        assertEquals(200, polling.nextDelay(false));
+        assertEquals(400, polling.nextDelay(false));
+        assertEquals(800, polling.nextDelay(false));
+        assertEquals(1000, polling.nextDelay(false));
+        assertEquals(1000, polling.nextDelay(false));
+        assertEquals(0, polling.nextDelay(true));
+        assertEquals(100, polling.nextDelay(false));
+    }
+
+    @Test
+    void jitter() {
+        AdaptivePolling polling = new AdaptivePolling(100, 2000, 2.0, 0.5);
+        for (int idx = 0; idx < 100; idx++) {
+            long delay = polling.nextDelay(false);
+            assertTrue(delay >= 100 && delay <= 2000);
+        }
+    }
+
+    @Test
+    void invalidFloor() {
+        // A floor of zero would poll an idle relay in a loop
+        try {
+            AdaptivePolling polling = new AdaptivePolling(0, 1000, 2.0, 0.0);
+            assertTrue(polling.nextDelay(false) > 0);
+        } catch (Exception e) {
+            assertEquals("Invalid floor or ceiling", e.getMessage());
+        }
+    }
+}
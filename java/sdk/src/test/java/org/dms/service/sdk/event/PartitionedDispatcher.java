@@ -0,0 +1,80 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PartitionedDispatcherTest {
+    @Test
+    void orderPerKey() {
+        Map<String, List<Long>> received = new HashMap<>();
+        Set<Long> threads = ConcurrentHashMap.newKeySet();
+        PartitionedDispatcher dispatcher = new PartitionedDispatcher(new ITaskEventListener() {
+            @Override
+            public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+            }
+
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                threads.add(Thread.currentThread().getId());
+                synchronized (received) {
+                    received.computeIfAbsent(shopTaskItem.shopId, k -> new ArrayList<>()).add(sequence);
+                }
+            }
+        }, 4, 16, WaitStrategy.YIELD, PartitionedDispatcher::getDefaultKey);
+
+        try {
+            dispatcher.start();
+            for (long seq = 1; seq <= 2000; seq++) {
+                ShopTaskItem shop = new ShopTaskItem(
+                        "", "shop" + (seq % 50), "", "php", 1, "", "", 0
+                );
+                dispatcher.dispatch(new TaskEvent("shop_update", 0, "", seq, null, shop));
+                assertTrue(dispatcher.getCompletedSequence() <= seq);
+            }
+            dispatcher.close();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+
+        assertEquals(50, received.size());
+        for (List<Long> sequences : received.values()) {
+            assertEquals(40, sequences.size());
+            for (int idx = 1; idx < sequences.size(); idx++) {
+                assertEquals(sequences.get(idx - 1) + 50, (long) sequences.get(idx));
+            }
+        }
+        assertTrue(threads.size() > 1);
+        assertEquals(2000, dispatcher.getCompletedSequence());
+    }
+
+    @Test
+    void partition() {
+        PartitionedDispatcher dispatcher = new PartitionedDispatcher(new ITaskEventListener() {
+            @Override
+            public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+            }
+
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+            }
+        }, 8, PartitionedDispatcher::getDefaultKey);
+        for (int idx = 0; idx < 100; idx++) {
+            String key = "key" + idx;
+            int partition = dispatcher.getPartition(key);
+            assertTrue(partition >= 0 && partition < 8);
+            assertEquals(partition, dispatcher.getPartition(key));
+        }
+    }
+}
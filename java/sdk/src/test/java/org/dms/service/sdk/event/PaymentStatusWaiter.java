@@ -0,0 +1,85 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentStatusWaiterTest {
+    private static final int PAYMENT_CLOSED_NEW = 18;
+    private static final int PAYMENT_FAILED_NEW = 19;
+
+    private static PaymentTaskItem openPayment(PaymentClient client) throws Exception {
+        return client.openNewPayment(
+                CommonUtils.getSamplePurchaseId(),
+                "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                Amount.make("1_000").getValue(),
+                "php",
+                "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                "POS001"
+        );
+    }
+
+    @Test
+    void awaitPaymentStatus() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", transport);
+            PaymentStatusWaiter waiter = new PaymentStatusWaiter(client);
+            TaskEventCollector collector = new TaskEventCollector(client, waiter, new AdaptivePolling(10, 50, 2.0, 0.0));
+            collector.start();
+            Thread.sleep(100);
+
+            PaymentTaskItem item = openPayment(client);
+            CompletableFuture<PaymentTaskItem> future = waiter.awaitPaymentStatus(item.paymentId, Set.of(PAYMENT_CLOSED_NEW, PAYMENT_FAILED_NEW), 5000);
+            assertEquals(1, waiter.getPendingPayments());
+            client.closeNewPayment(item.paymentId, true);
+
+            PaymentTaskItem closed = future.get(2, TimeUnit.SECONDS);
+            assertEquals(item.paymentId, closed.paymentId);
+            assertEquals(PAYMENT_CLOSED_NEW, closed.paymentStatus);
+            assertEquals(0, waiter.getPendingPayments());
+            collector.stop();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void fallbackOnTimeout() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", transport);
+            // No collector runs, so the status is only seen by the request after the timeout
+            PaymentStatusWaiter waiter = new PaymentStatusWaiter(client);
+
+            PaymentTaskItem item = openPayment(client);
+            CompletableFuture<PaymentTaskItem> opened = waiter.awaitPaymentStatus(item.paymentId, Set.of(PAYMENT_CLOSED_NEW), 100);
+            try {
+                opened.get(2, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+            assertTrue(opened.isCompletedExceptionally());
+
+            client.closeNewPayment(item.paymentId, true);
+            CompletableFuture<PaymentTaskItem> closed = waiter.awaitPaymentStatus(item.paymentId, Set.of(PAYMENT_CLOSED_NEW), 100);
+            assertEquals(PAYMENT_CLOSED_NEW, closed.get(2, TimeUnit.SECONDS).paymentStatus);
+            assertEquals(0, waiter.getPendingPayments());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RingBufferDispatcherTest {
+    private static TaskEvent shopEvent(long sequence) {
+        return new TaskEvent("shop_update", 0, "", sequence, null, null);
+    }
+
+    @Test
+    void dispatch() {
+        for (WaitStrategy waitStrategy : WaitStrategy.values()) {
+            List<Long> sequences = new ArrayList<>();
+            List<Long> batches = new ArrayList<>();
+            RingBufferDispatcher dispatcher = new RingBufferDispatcher(new ITaskEventBatchListener() {
+                @Override
+                public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+                }
+
+                @Override
+                public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                    sequences.add(sequence);
+                }
+
+                @Override
+                public void onEndOfBatch(long sequence) {
+                    batches.add(sequence);
+                }
+            }, 8, waitStrategy);
+            try {
+                dispatcher.start();
+                // Many more events than slots, the producer waits for the consumer
+                for (long seq = 1; seq <= 1000; seq++) {
+                    dispatcher.dispatch(shopEvent(seq));
+                }
+                dispatcher.close();
+            } catch (Exception e) {
+                assertEquals("some exception message...", e.getMessage());
+            }
+            assertEquals(1000, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                assertEquals(idx + 1, (long) sequences.get(idx));
+            }
+            assertTrue(batches.size() <= 1000);
+            assertEquals(1000, (long) batches.get(batches.size() - 1));
+            assertEquals(1000, dispatcher.getCompletedSequence());
+        }
+    }
+
+    @Test
+    void completedSequence() {
+        CountDownLatch gate = new CountDownLatch(1);
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new NullListener() {
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                try {
+                    gate.await();
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }, 8, WaitStrategy.PARK);
+        try {
+            dispatcher.start();
+            dispatcher.dispatch(shopEvent(10));
+            // A refetched event below a higher one
+            dispatcher.dispatch(shopEvent(7));
+            assertEquals(6, dispatcher.getCompletedSequence());
+            gate.countDown();
+            dispatcher.close();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        assertEquals(10, dispatcher.getCompletedSequence());
+    }
+
+    @Test
+    void failedListener() {
+        List<Long> sequences = new ArrayList<>();
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new NullListener() {
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                if (sequence == 5) throw new IllegalStateException("Listener failed");
+                sequences.add(sequence);
+            }
+        }, 8, WaitStrategy.PARK);
+        try {
+            dispatcher.start();
+            for (long seq = 1; seq <= 10; seq++) dispatcher.dispatch(shopEvent(seq));
+            dispatcher.close();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        // The following events are delivered, but the checkpoint stays below the failed one
+        assertEquals(9, sequences.size());
+        assertEquals(1, dispatcher.getFailedCount());
+        assertEquals(4, dispatcher.getCompletedSequence());
+    }
+
+    @Test
+    void retryFailed() {
+        List<Long> sequences = new ArrayList<>();
+        AtomicBoolean broken = new AtomicBoolean(true);
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new NullListener() {
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                // An Error does not stop the consumer
+                if (sequence == 5 && broken.get()) throw new StackOverflowError();
+                sequences.add(sequence);
+            }
+        }, 8, WaitStrategy.PARK);
+        try {
+            dispatcher.start();
+            for (long seq = 1; seq <= 30; seq++) dispatcher.dispatch(shopEvent(seq));
+            for (int idx = 0; idx < 500 && dispatcher.getFailedCount() == 0; idx++) Thread.sleep(10);
+            broken.set(false);
+            dispatcher.retryFailed();
+            dispatcher.close();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        // The failed event is delivered again after the following ones
+        assertEquals(30, sequences.size());
+        assertTrue(sequences.indexOf(5L) > sequences.indexOf(6L));
+        assertEquals(1, dispatcher.getFailedCount());
+        assertTrue(dispatcher.getFailedSequences().isEmpty());
+        assertEquals(30, dispatcher.getCompletedSequence());
+    }
+
+    @Test
+    void acknowledgeFailed() {
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new NullListener() {
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                if (sequence == 5) throw new IllegalStateException("Listener failed");
+            }
+        }, 8, WaitStrategy.PARK);
+        try {
+            dispatcher.start();
+            for (long seq = 1; seq <= 10; seq++) dispatcher.dispatch(shopEvent(seq));
+            dispatcher.close();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        assertEquals(List.of(5L), dispatcher.getFailedSequences());
+        assertEquals(4, dispatcher.getCompletedSequence());
+        // The event is given up, so the checkpoint moves above it
+        assertTrue(dispatcher.acknowledgeFailed(5));
+        assertFalse(dispatcher.acknowledgeFailed(5));
+        assertEquals(10, dispatcher.getCompletedSequence());
+    }
+
+    @Test
+    void failedBatch() {
+        AtomicBoolean broken = new AtomicBoolean(true);
+        List<Long> sequences = new ArrayList<>();
+        RingBufferDispatcher dispatcher = new RingBufferDispatcher(new ITaskEventBatchListener() {
+            @Override
+            public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+            }
+
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                sequences.add(sequence);
+            }
+
+            @Override
+            public void onEndOfBatch(long sequence) {
+                if (broken.get()) throw new OutOfMemoryError("Batch failed");
+            }
+        }, 8, WaitStrategy.PARK);
+        try {
+            dispatcher.start();
+            dispatcher.dispatch(shopEvent(1));
+            dispatcher.dispatch(shopEvent(2));
+            dispatcher.close();
+            // None of the events of a batch that failed is completed
+            assertEquals(List.of(1L, 2L), dispatcher.getFailedSequences());
+            assertEquals(0, dispatcher.getCompletedSequence());
+
+            broken.set(false);
+            dispatcher.start();
+            dispatcher.retryFailed();
+            dispatcher.close();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        assertEquals(List.of(1L, 2L, 1L, 2L), sequences);
+        assertTrue(dispatcher.getFailedSequences().isEmpty());
+        assertEquals(2, dispatcher.getCompletedSequence());
+    }
+
+    @Test
+    void invalidCapacity() {
+        try {
+            new RingBufferDispatcher(new NullListener(), 1000, WaitStrategy.PARK);
+        } catch (Exception e) {
+            assertEquals("capacity must be a power of two", e.getMessage());
+        }
+    }
+
+    private static class NullListener implements ITaskEventListener {
+        @Override
+        public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+        }
+
+        @Override
+        public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+        }
+    }
+}
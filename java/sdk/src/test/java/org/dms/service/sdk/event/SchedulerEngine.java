@@ -0,0 +1,169 @@
+package org.dms.service.sdk.event;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SchedulerEngineTest {
+    private static class CountingScheduler extends Scheduler {
+        final AtomicInteger starts = new AtomicInteger();
+        final AtomicInteger works = new AtomicInteger();
+        final AtomicInteger stops = new AtomicInteger();
+        final Set<String> threads;
+
+        CountingScheduler(Set<String> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public void onStart() {
+            starts.incrementAndGet();
+        }
+
+        @Override
+        public void onWork() {
+            threads.add(Thread.currentThread().getName());
+            works.incrementAndGet();
+        }
+
+        @Override
+        public void onStop() {
+            stops.incrementAndGet();
+        }
+
+        @Override
+        protected long getWorkInterval() {
+            return 10;
+        }
+    }
+
+    @Test
+    void manySchedulers() {
+        SchedulerEngine engine = new SchedulerEngine(2);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        List<CountingScheduler> schedulers = new ArrayList<>();
+        try {
+            for (int idx = 0; idx < 500; idx++) {
+                CountingScheduler scheduler = new CountingScheduler(threads);
+                engine.start(scheduler);
+                schedulers.add(scheduler);
+            }
+            Thread.sleep(300);
+            for (CountingScheduler scheduler : schedulers) scheduler.stop();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+
+        for (CountingScheduler scheduler : schedulers) {
+            assertEquals(1, scheduler.starts.get());
+            assertEquals(1, scheduler.stops.get());
+            assertTrue(scheduler.works.get() > 1);
+        }
+        assertTrue(threads.size() <= 2);
+
+        // No work after stop
+        int works = schedulers.get(0).works.get();
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException ignored) {
+        }
+        assertEquals(works, schedulers.get(0).works.get());
+        engine.shutdown();
+    }
+
+    @Test
+    void blockingWork() {
+        // Schedulers that wait for the network at the same time do not wait for each other on the shared engine
+        CountDownLatch waiting = new CountDownLatch(SchedulerEngine.MIN_THREADS);
+        AtomicInteger released = new AtomicInteger();
+        List<Scheduler> schedulers = new ArrayList<>();
+        try {
+            for (int idx = 0; idx < SchedulerEngine.MIN_THREADS; idx++) {
+                Scheduler scheduler = new CountingScheduler(ConcurrentHashMap.newKeySet()) {
+                    private boolean blocked = false;
+
+                    @Override
+                    public void onWork() {
+                        if (this.blocked) return;
+                        this.blocked = true;
+                        waiting.countDown();
+                        try {
+                            if (waiting.await(1, TimeUnit.SECONDS)) released.incrementAndGet();
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                };
+                SchedulerEngine.getDefault().start(scheduler);
+                schedulers.add(scheduler);
+            }
+            assertTrue(waiting.await(2, TimeUnit.SECONDS));
+            for (Scheduler scheduler : schedulers) scheduler.stop();
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        assertEquals(SchedulerEngine.MIN_THREADS, released.get());
+        assertTrue(SchedulerEngine.getDefault().getThreads() >= SchedulerEngine.MIN_THREADS);
+    }
+
+    @Test
+    void restart() {
+        SchedulerEngine engine = new SchedulerEngine(1);
+        CountingScheduler scheduler = new CountingScheduler(ConcurrentHashMap.newKeySet());
+        scheduler.start(engine);
+        scheduler.stop();
+        scheduler.start(engine);
+        scheduler.stop();
+        assertEquals(scheduler.starts.get(), scheduler.stops.get());
+        engine.shutdown();
+    }
+
+    @Test
+    void failure() {
+        SchedulerEngine engine = new SchedulerEngine(1);
+        // onStart fails, the scheduler keeps working and stops as usual
+        CountingScheduler failedStart = new CountingScheduler(ConcurrentHashMap.newKeySet()) {
+            @Override
+            public void onStart() {
+                super.onStart();
+                throw new IllegalStateException("Start failed");
+            }
+        };
+        // onWork fails with an Error, the scheduler finishes by itself
+        CountingScheduler failedWork = new CountingScheduler(ConcurrentHashMap.newKeySet()) {
+            @Override
+            public void onWork() {
+                super.onWork();
+                throw new AssertionError("Work failed");
+            }
+        };
+        try {
+            failedStart.start(engine);
+            failedWork.start(engine);
+            for (int idx = 0; idx < 100 && (failedStart.works.get() < 2 || failedWork.stops.get() == 0); idx++) Thread.sleep(10);
+
+            Thread stopping = new Thread(() -> {
+                failedStart.stop();
+                failedWork.stop();
+            });
+            stopping.start();
+            stopping.join(2000);
+            assertTrue(!stopping.isAlive());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+        assertEquals(1, failedStart.stops.get());
+        assertTrue(failedStart.works.get() >= 2);
+        assertEquals(1, failedWork.works.get());
+        assertEquals(1, failedWork.stops.get());
+        engine.shutdown();
+    }
+}
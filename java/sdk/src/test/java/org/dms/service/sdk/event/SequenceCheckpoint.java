@@ -0,0 +1,90 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SequenceCheckpointTest {
+    @Test
+    void saveAndLoad() {
+        try {
+            Path path = Files.createTempFile("checkpoint", ".seq");
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path)) {
+                assertEquals(-1, checkpoint.load());
+                checkpoint.save(10);
+                checkpoint.save(12);
+                checkpoint.save(11);
+                assertEquals(12, checkpoint.load());
+            }
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path)) {
+                assertEquals(12, checkpoint.load());
+            }
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void resume() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 2);
+            PaymentClient client = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", transport);
+            Path path = Files.createTempFile("checkpoint", ".seq");
+            long start = client.getLatestTaskSequence();
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path)) {
+                checkpoint.save(start);
+            }
+
+            // Payments made while the collector is not running
+            for (int idx = 0; idx < 3; idx++) {
+                PaymentTaskItem item = client.openNewPayment(
+                        CommonUtils.getSamplePurchaseId(),
+                        "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                        Amount.make("1_000").getValue(),
+                        "php",
+                        "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                        "POS001"
+                );
+                client.closeNewPayment(item.paymentId, true);
+            }
+
+            List<Long> sequences = new ArrayList<>();
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                TaskEventCollector collector = new TaskEventCollector(client, new ITaskEventListener() {
+                    @Override
+                    public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+                        synchronized (sequences) {
+                            sequences.add(sequence);
+                        }
+                    }
+
+                    @Override
+                    public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                    }
+                }, new AdaptivePolling(), checkpoint);
+                collector.start();
+                Thread.sleep(500);
+                collector.stop();
+                assertEquals(start + 6, checkpoint.load());
+            }
+            assertEquals(6, sequences.size());
+            assertEquals(start + 1, (long) sequences.get(0));
+            Files.delete(path);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
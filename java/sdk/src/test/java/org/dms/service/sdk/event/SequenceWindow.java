@@ -0,0 +1,157 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SequenceWindowTest {
+    @Test
+    void mark() {
+        SequenceWindow window = new SequenceWindow(10, 64);
+        assertTrue(window.mark(11));
+        assertEquals(11, window.getBase());
+        assertFalse(window.mark(11));
+        assertFalse(window.mark(5));
+
+        assertTrue(window.mark(14));
+        assertTrue(window.mark(17));
+        assertEquals(11, window.getBase());
+        assertEquals(17, window.getHighest());
+        List<long[]> gaps = window.getGaps();
+        assertEquals(2, gaps.size());
+        assertEquals(12, gaps.get(0)[0]);
+        assertEquals(13, gaps.get(0)[1]);
+        assertEquals(15, gaps.get(1)[0]);
+        assertEquals(16, gaps.get(1)[1]);
+
+        assertTrue(window.mark(12));
+        assertTrue(window.mark(13));
+        assertEquals(14, window.getBase());
+        assertEquals(2, window.skipTo(window.getHighest()));
+        assertEquals(17, window.getBase());
+        assertTrue(window.getGaps().isEmpty());
+    }
+
+    @Test
+    void slide() {
+        SequenceWindow window = new SequenceWindow(0, 64);
+        assertTrue(window.mark(2));
+        // Too far above the base, the oldest sequences are given up
+        assertTrue(window.mark(100));
+        assertEquals(36, window.getBase());
+        assertEquals(100, window.getHighest());
+        assertFalse(window.mark(30));
+        assertEquals(963, window.skipTo(1000));
+        assertEquals(1000, window.getBase());
+    }
+
+    /**
+     * Drops every third task and repeats the first one of each page, but only for the blocking requests of the polls
+     */
+    private static class LossyTransport implements IHttpTransport {
+        private final IHttpTransport transport;
+
+        LossyTransport(IHttpTransport transport) {
+            this.transport = transport;
+        }
+
+        @Override
+        public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+            InputStream input = this.transport.request(method, uri, body);
+            if (!uri.getPath().startsWith("/v1/task/list/")) return input;
+            JSONObject response = new JSONObject(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            JSONArray tasks = response.getJSONArray("data");
+            JSONArray lossy = new JSONArray();
+            for (int idx = 0; idx < tasks.length(); idx++) {
+                if (tasks.getJSONObject(idx).getLong("sequence") % 3 != 0) lossy.put(tasks.get(idx));
+            }
+            if (tasks.length() > 0) lossy.put(tasks.get(0));
+            response.put("data", lossy);
+            return new ByteArrayInputStream(response.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+            return this.transport.requestAsync(method, uri, body);
+        }
+    }
+
+    @Test
+    void backfill() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", transport);
+            PaymentClient lossyClient = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", new LossyTransport(transport));
+
+            Path path = Files.createTempFile("checkpoint", ".seq");
+            long start = client.getLatestTaskSequence();
+            for (int idx = 0; idx < 5; idx++) {
+                PaymentTaskItem item = client.openNewPayment(
+                        CommonUtils.getSamplePurchaseId(),
+                        "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                        Amount.make("1_000").getValue(),
+                        "php",
+                        "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                        "POS001"
+                );
+                client.closeNewPayment(item.paymentId, true);
+            }
+
+            List<Long> sequences = new ArrayList<>();
+            TaskEventCollector collector;
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                checkpoint.save(start);
+                collector = new TaskEventCollector(lossyClient, new ITaskEventListener() {
+                    @Override
+                    public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+                        sequences.add(sequence);
+                    }
+
+                    @Override
+                    public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                    }
+                }, new AdaptivePolling(10, 50, 2.0, 0.0), checkpoint);
+                collector.start();
+                Thread.sleep(300);
+                collector.stop();
+                assertEquals(start + 10, checkpoint.load());
+            }
+            Files.delete(path);
+
+            // The refetched events are delivered in the order of the sequences with the others
+            assertEquals(10, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                assertEquals(start + idx + 1, (long) sequences.get(idx));
+            }
+            assertTrue(collector.getGapCount() > 0);
+            assertTrue(collector.getRefetchCount() > 0);
+            assertTrue(collector.getDuplicateCount() > 0);
+            assertEquals(0, collector.getLostCount());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
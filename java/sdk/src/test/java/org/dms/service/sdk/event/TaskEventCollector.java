@@ -0,0 +1,263 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.jetbrains.annotations.NotNull;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskEventCollectorTest {
+    /**
+     * Leaves one sequence out of the pages of the polls. The refetches fail a number of times,
+     * then they find the sequence unless it is hidden from them too.
+     */
+    private static class HidingTransport implements IHttpTransport {
+        private final IHttpTransport transport;
+        private final long hidden;
+        private final AtomicInteger refetchFailures;
+        private final boolean hideFromRefetch;
+
+        HidingTransport(IHttpTransport transport, long hidden, AtomicInteger refetchFailures, boolean hideFromRefetch) {
+            this.transport = transport;
+            this.hidden = hidden;
+            this.refetchFailures = refetchFailures;
+            this.hideFromRefetch = hideFromRefetch;
+        }
+
+        private InputStream hide(InputStream input) throws IOException {
+            JSONObject response = new JSONObject(new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            JSONArray tasks = response.getJSONArray("data");
+            JSONArray visible = new JSONArray();
+            for (int idx = 0; idx < tasks.length(); idx++) {
+                if (tasks.getJSONObject(idx).getLong("sequence") != this.hidden) visible.put(tasks.get(idx));
+            }
+            response.put("data", visible);
+            return new ByteArrayInputStream(response.toString().getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+            InputStream input = this.transport.request(method, uri, body);
+            return uri.getPath().startsWith("/v1/task/list/") ? this.hide(input) : input;
+        }
+
+        @Override
+        public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+            if (!uri.getPath().startsWith("/v1/task/list/")) return this.transport.requestAsync(method, uri, body);
+            if (this.refetchFailures.getAndUpdate(value -> Math.max(0, value - 1)) > 0) {
+                return CompletableFuture.failedFuture(new IOException("Connection reset"));
+            }
+            if (!this.hideFromRefetch) return this.transport.requestAsync(method, uri, body);
+            return this.transport.requestAsync(method, uri, body).thenApply(input -> {
+                try {
+                    return this.hide(input);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        }
+    }
+
+    @Test
+    void failedDispatch() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = TaskEventFixture.makeClient(transport);
+            long start = client.getLatestTaskSequence();
+            TaskEventFixture.makePayments(client, 5);
+            Path path = TaskEventFixture.makeCheckpoint(start);
+
+            List<Long> sequences = new ArrayList<>();
+            ITaskEventListener listener = new ITaskEventListener() {
+                @Override
+                public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+                    if (sequence == start + 3) throw new IllegalStateException("Listener failed");
+                    synchronized (sequences) {
+                        sequences.add(sequence);
+                    }
+                }
+
+                @Override
+                public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+                }
+            };
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                TaskEventCollector collector = new TaskEventCollector(client, listener, new AdaptivePolling(10, 50, 2.0, 0.0), checkpoint);
+                collector.start();
+                TaskEventFixture.waitFor(() -> checkpoint.load() == start + 10);
+                collector.stop();
+                assertEquals(start + 10, checkpoint.load());
+                assertEquals(0, collector.getDuplicateCount());
+            }
+            Files.delete(path);
+
+            // The events after the one whose listener failed are delivered on the next poll
+            assertEquals(9, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                long expected = start + idx + ((idx < 2) ? 1 : 2);
+                assertEquals(expected, (long) sequences.get(idx));
+            }
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void lateEvent() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = TaskEventFixture.makeClient(transport);
+            long start = client.getLatestTaskSequence();
+            TaskEventFixture.makePayments(client, 5);
+            Path path = TaskEventFixture.makeCheckpoint(start);
+            // The refetches fail more times than the polls a gap stays open
+            AtomicInteger refetchFailures = new AtomicInteger(6);
+            PaymentClient collectorClient = TaskEventFixture.makeClient(new HidingTransport(transport, start + 4, refetchFailures, false));
+
+            List<Long> sequences = new ArrayList<>();
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                TaskEventCollector collector = new TaskEventCollector(collectorClient, TaskEventFixture.collect(sequences), new AdaptivePolling(10, 50, 2.0, 0.0), checkpoint);
+                collector.setGapPolls(2);
+                collector.start();
+                TaskEventFixture.waitFor(() -> checkpoint.load() == start + 10);
+                collector.stop();
+                assertEquals(start + 10, checkpoint.load());
+                assertEquals(0, refetchFailures.get());
+                assertEquals(0, collector.getLostCount());
+                assertEquals(1, collector.getGapCount());
+            }
+            Files.delete(path);
+
+            assertEquals(10, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                assertEquals(start + idx + 1, (long) sequences.get(idx));
+            }
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void lostEvent() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = TaskEventFixture.makeClient(transport);
+            long start = client.getLatestTaskSequence();
+            TaskEventFixture.makePayments(client, 5);
+            Path path = TaskEventFixture.makeCheckpoint(start);
+            PaymentClient collectorClient = TaskEventFixture.makeClient(new HidingTransport(transport, start + 4, new AtomicInteger(), true));
+
+            List<Long> sequences = new ArrayList<>();
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                TaskEventCollector collector = new TaskEventCollector(collectorClient, TaskEventFixture.collect(sequences), new AdaptivePolling(10, 50, 2.0, 0.0), checkpoint);
+                collector.setGapPolls(2);
+                collector.start();
+                TaskEventFixture.waitFor(() -> checkpoint.load() == start + 10);
+                collector.stop();
+                assertEquals(start + 10, checkpoint.load());
+                assertEquals(1, collector.getLostCount());
+                assertTrue(collector.getRefetchCount() >= 2);
+            }
+            Files.delete(path);
+
+            // The events above the gap are held until it is given up
+            assertEquals(9, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                long expected = start + idx + ((idx < 3) ? 1 : 2);
+                assertEquals(expected, (long) sequences.get(idx));
+            }
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void parallelCatchUp() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = TaskEventFixture.makeClient(transport);
+            AtomicInteger asyncRequests = new AtomicInteger();
+            PaymentClient collectorClient = TaskEventFixture.makeClient(TaskEventFixture.countRequests(transport, "/v1/task/list/", new AtomicInteger(), asyncRequests));
+
+            long start = client.getLatestTaskSequence();
+            TaskEventFixture.makePayments(client, 100);
+            Path path = TaskEventFixture.makeCheckpoint(start);
+
+            List<Long> sequences = new ArrayList<>();
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                TaskEventCollector collector = new TaskEventCollector(collectorClient, TaskEventFixture.collect(sequences), new AdaptivePolling(10, 50, 2.0, 0.0), checkpoint);
+                collector.setCatchUp(50, 4);
+                collector.setPageSize(10);
+                collector.start();
+                TaskEventFixture.waitFor(() -> checkpoint.load() == start + 200);
+                collector.stop();
+                assertEquals(start + 200, checkpoint.load());
+                assertEquals(0, collector.getGapCount());
+            }
+            Files.delete(path);
+
+            assertEquals(200, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                assertEquals(start + idx + 1, (long) sequences.get(idx));
+            }
+            assertTrue(asyncRequests.get() > 0);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void partialPage() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 10);
+            PaymentClient client = TaskEventFixture.makeClient(transport);
+            AtomicInteger latestRequests = new AtomicInteger();
+            PaymentClient collectorClient = TaskEventFixture.makeClient(TaskEventFixture.countRequests(transport, "/v1/task/sequence/latest", latestRequests, new AtomicInteger()));
+
+            long start = client.getLatestTaskSequence();
+            Path path = TaskEventFixture.makeCheckpoint(start);
+
+            List<Long> sequences = new ArrayList<>();
+            try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path, 0)) {
+                TaskEventCollector collector = new TaskEventCollector(collectorClient, TaskEventFixture.collect(sequences), new AdaptivePolling(10, 50, 2.0, 0.0), checkpoint);
+                collector.setPageSize(10);
+                collector.start();
+                TaskEventFixture.waitFor(() -> latestRequests.get() > 0);
+                // Pages shorter than the page size do not start a catch-up
+                for (int idx = 0; idx < 5; idx++) {
+                    TaskEventFixture.makePayments(client, 1);
+                    long expected = start + 2L * (idx + 1);
+                    TaskEventFixture.waitFor(() -> checkpoint.load() == expected);
+                }
+                collector.stop();
+                assertEquals(start + 10, checkpoint.load());
+            }
+            Files.delete(path);
+
+            assertEquals(10, sequences.size());
+            // Only the catch-up at the start
+            assertEquals(1, latestRequests.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.ShopTaskItem;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Shared setup of the tests of the collector of the task events
+ */
+class TaskEventFixture {
+    static final String PRIVATE_KEY = "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276";
+
+    static PaymentClient makeClient(IHttpTransport transport) {
+        return new PaymentClient(NetWorkType.testnet, PRIVATE_KEY, transport);
+    }
+
+    /**
+     * Count the requests whose path starts with the prefix, blocking and not
+     */
+    static IHttpTransport countRequests(IHttpTransport transport, String prefix, AtomicInteger requests, AtomicInteger asyncRequests) {
+        return new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                if (uri.getPath().startsWith(prefix)) requests.incrementAndGet();
+                return transport.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (uri.getPath().startsWith(prefix)) asyncRequests.incrementAndGet();
+                return transport.requestAsync(method, uri, body);
+            }
+        };
+    }
+
+    /**
+     * Open and close payments, each one registers two task events
+     */
+    static void makePayments(PaymentClient client, int count) throws Exception {
+        for (int idx = 0; idx < count; idx++) {
+            PaymentTaskItem item = client.openNewPayment(
+                    CommonUtils.getSamplePurchaseId(),
+                    "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                    Amount.make("1_000").getValue(),
+                    "php",
+                    "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                    "POS001"
+            );
+            client.closeNewPayment(item.paymentId, true);
+        }
+    }
+
+    /**
+     * Create a temporary checkpoint file holding the sequence
+     */
+    static Path makeCheckpoint(long sequence) throws Exception {
+        Path path = Files.createTempFile("checkpoint", ".seq");
+        try (SequenceCheckpoint checkpoint = new SequenceCheckpoint(path)) {
+            checkpoint.save(sequence);
+        }
+        return path;
+    }
+
+    /**
+     * Listener adding the sequences of the payment events to the list
+     */
+    static ITaskEventListener collect(List<Long> sequences) {
+        return new ITaskEventListener() {
+            @Override
+            public void onNewPaymentEvent(String type, int code, String message, long sequence, PaymentTaskItem paymentTaskItem) {
+                synchronized (sequences) {
+                    sequences.add(sequence);
+                }
+            }
+
+            @Override
+            public void onNewShopEvent(String type, int code, String message, long sequence, ShopTaskItem shopTaskItem) {
+            }
+        };
+    }
+
+    /**
+     * Wait up to five seconds until the condition holds
+     */
+    static void waitFor(BooleanSupplier condition) throws Exception {
+        for (int idx = 0; idx < 500 && !condition.getAsBoolean(); idx++) Thread.sleep(10);
+    }
+}
@@ -0,0 +1,163 @@
+package org.dms.service.sdk.event;
+
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TaskEventPublisherTest {
+    @Test
+    void demand() {
+        try {
+            InMemoryHttpTransport transport = new InMemoryHttpTransport(215115, 4);
+            PaymentClient client = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", transport);
+            TaskEventPublisher publisher = new TaskEventPublisher();
+            TaskEventCollector collector = new TaskEventCollector(client, publisher, new AdaptivePolling(10, 20, 2.0, 0.0), null);
+
+            List<Long> sequences = new ArrayList<>();
+            AtomicReference<Flow.Subscription> subscription = new AtomicReference<>();
+            AtomicBoolean completed = new AtomicBoolean(false);
+            publisher.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription value) {
+                    subscription.set(value);
+                    value.request(3);
+                }
+
+                @Override
+                public void onNext(TaskEvent item) {
+                    synchronized (sequences) {
+                        sequences.add(item.sequence);
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                    completed.set(true);
+                }
+            });
+            assertEquals(1, publisher.getSubscribers());
+
+            collector.start();
+            Thread.sleep(100);
+            long start = client.getLatestTaskSequence();
+            for (int idx = 0; idx < 10; idx++) {
+                PaymentTaskItem item = client.openNewPayment(
+                        CommonUtils.getSamplePurchaseId(),
+                        "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                        Amount.make("1_000").getValue(),
+                        "php",
+                        "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                        "POS001"
+                );
+                client.closeNewPayment(item.paymentId, true);
+            }
+            Thread.sleep(300);
+
+            // The collector stops polling when the demand is met
+            synchronized (sequences) {
+                assertEquals(3, sequences.size());
+            }
+            assertFalse(publisher.isReady());
+
+            subscription.get().request(Long.MAX_VALUE);
+            Thread.sleep(300);
+            collector.stop();
+
+            assertEquals(20, sequences.size());
+            for (int idx = 0; idx < sequences.size(); idx++) {
+                assertEquals(start + idx + 1, (long) sequences.get(idx));
+            }
+            assertTrue(completed.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void noSubscriber() {
+        TaskEventPublisher publisher = new TaskEventPublisher();
+        assertFalse(publisher.isReady());
+        publisher.dispatch(new TaskEvent("shop_update", 0, "", 1, null, null));
+        assertEquals(1, publisher.getCompletedSequence());
+    }
+
+    @Test
+    void cancelOnSubscribe() {
+        TaskEventPublisher publisher = new TaskEventPublisher();
+        publisher.subscribe(new Subscriber() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.cancel();
+            }
+        });
+        assertEquals(0, publisher.getSubscribers());
+    }
+
+    @Test
+    void failedSubscriber() {
+        TaskEventPublisher publisher = new TaskEventPublisher();
+        List<Long> failed = new ArrayList<>();
+        List<Long> received = new ArrayList<>();
+        publisher.subscribe(new Subscriber() {
+            @Override
+            public void onNext(TaskEvent item) {
+                failed.add(item.sequence);
+                throw new IllegalStateException("Subscriber failed");
+            }
+        });
+        publisher.subscribe(new Subscriber() {
+            @Override
+            public void onNext(TaskEvent item) {
+                received.add(item.sequence);
+            }
+        });
+        for (long seq = 1; seq <= 3; seq++) publisher.dispatch(new TaskEvent("shop_update", 0, "", seq, null, null));
+
+        // The failed subscriber is cancelled, the other one receives every event
+        assertEquals(List.of(1L), failed);
+        assertEquals(List.of(1L, 2L, 3L), received);
+        assertEquals(1, publisher.getSubscribers());
+        assertEquals(3, publisher.getCompletedSequence());
+    }
+
+    /**
+     * Requests every event when it is subscribed
+     */
+    private static class Subscriber implements Flow.Subscriber<TaskEvent> {
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(TaskEvent item) {
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
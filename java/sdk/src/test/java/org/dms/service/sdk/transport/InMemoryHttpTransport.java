@@ -0,0 +1,88 @@
+package org.dms.service.sdk.transport;
+
+import org.dms.service.sdk.client.Client;
+import org.dms.service.sdk.client.PaymentClient;
+import org.dms.service.sdk.client.SavePurchaseClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.UserBalance;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.data.purchase.PurchaseDetail;
+import org.dms.service.sdk.data.purchase.ResponseSavePurchase;
+import org.dms.service.sdk.utils.Amount;
+import org.dms.service.sdk.utils.CommonUtils;
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InMemoryHttpTransportTest {
+    @Test void getBalanceAccount() {
+        InMemoryHttpTransport transport = new InMemoryHttpTransport();
+        transport.setBalance("0x20eB9941Df5b95b1b1AfAc1193c6a075B6191563", Amount.make("5000000").getValue(), Amount.make("100000").getValue());
+        Client client = new Client(NetWorkType.testnet, transport);
+        try {
+            assertEquals(client.getChainId(), 215115);
+            UserBalance balance = client.getBalanceAccount("0x20eB9941Df5b95b1b1AfAc1193c6a075B6191563");
+            assertEquals(balance.point.balance.toString(), "5000000000000000000000000");
+            assertEquals(balance.token.balance.toString(), "100000000000000000000000");
+            UserBalance balanceAsync = client.getBalanceAccountAsync("0x20eB9941Df5b95b1b1AfAc1193c6a075B6191563").get();
+            assertEquals(balanceAsync.point.balance.toString(), "5000000000000000000000000");
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test void PaymentClient() {
+        InMemoryHttpTransport transport = new InMemoryHttpTransport();
+        PaymentClient client = new PaymentClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", transport);
+        try {
+            long sequence = client.getLatestTaskSequence();
+            PaymentTaskItem paymentItem = client.openNewPayment(
+                    CommonUtils.getSamplePurchaseId(),
+                    "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                    Amount.make("1_000").getValue(),
+                    "php",
+                    "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                    "POS001"
+            );
+            PaymentTaskItem closedItem = client.closeNewPaymentAsync(paymentItem.paymentId, true).get();
+            assertEquals(closedItem.paymentId, paymentItem.paymentId);
+            assertEquals(client.getPaymentItem(paymentItem.paymentId).paymentStatus, closedItem.paymentStatus);
+
+            JSONArray tasks = client.getTasks(sequence);
+            assertEquals(tasks.length(), 2);
+            assertEquals(tasks.getJSONObject(0).getString("type"), "pay_new");
+            assertEquals(client.getLatestTaskSequence(), sequence + 2);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test void SavePurchase() {
+        InMemoryHttpTransport transport = new InMemoryHttpTransport();
+        SavePurchaseClient client = new SavePurchaseClient(NetWorkType.testnet, "0x8acceea5937a8e4bb07abc93a1374264dd9bd2fc384c979717936efe63367276", "0x85EeBb1289c0d0C17eFCbadB40AeF0a1c3b46714", transport);
+        try {
+            String purchaseId = CommonUtils.getSamplePurchaseId();
+            ResponseSavePurchase res = client.saveNewPurchase(
+                    purchaseId,
+                    CommonUtils.getTimeStamp(),
+                    0,
+                    "10000",
+                    "10000",
+                    "php",
+                    "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874",
+                    "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                    "",
+                    new PurchaseDetail[]{ new PurchaseDetail("2020051310000000", "10000", 10) }
+            );
+            assertEquals(res.purchaseId, purchaseId);
+            assertEquals(res.type, 0);
+
+            ResponseSavePurchase cancel = client.saveCancelPurchaseAsync(purchaseId, CommonUtils.getTimeStamp(), 0).get();
+            assertEquals(cancel.purchaseId, purchaseId);
+            assertEquals(cancel.type, 1);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.dms.service.sdk.transport;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PooledHttpTransportTest {
+    @Test
+    void cancelled() {
+        HttpServer server = null;
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.createContext("/", exchange -> {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ignored) {
+                }
+                byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            });
+            server.start();
+            URI uri = new URI(String.format("http://127.0.0.1:%d/", server.getAddress().getPort()));
+
+            // The response of a cancelled request is closed, so the only permit is released
+            PooledHttpTransport transport = new PooledHttpTransport(new TransportOptions(1, 1000, 1000, false));
+            for (int idx = 0; idx < 3; idx++) {
+                transport.requestAsync("GET", uri, null).cancel(false);
+            }
+            try (InputStream input = transport.requestAsync("GET", uri, null).get(5, TimeUnit.SECONDS)) {
+                assertEquals("{}", new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            if (server != null) server.stop(0);
+        }
+    }
+
+    @Test
+    void configurePool() {
+        new PooledHttpTransport();
+        try {
+            PooledHttpTransport.configurePool(16, 30);
+        } catch (Exception e) {
+            assertEquals("The connection pool is already in use", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.dms.service.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.abi.TypeEncoder;
+import org.web3j.abi.datatypes.Address;
+import org.web3j.abi.datatypes.DynamicStruct;
+import org.web3j.abi.datatypes.Utf8String;
+import org.web3j.abi.datatypes.generated.Bytes32;
+import org.web3j.abi.datatypes.generated.Uint256;
+import org.web3j.crypto.Hash;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ABIEncoderTest {
+    private static final String shopId = "0x0001be96d74202df38fd21462ffcef10dfe0fcbd7caa3947689a3903e8b6b874";
+    private static final String account = "0x64D111eA9763c93a003cef491941A011B8df5a49";
+    private static final String phoneHash = "0x8f01f960dd25ac5b4f6b4e5cd0a5a1bc4c1d7a1ed2c4da1c8b56e2ee2bcb1ca";
+
+    @Test
+    void encode() {
+        String[] strings = {"", "P000100", "krw", "0123456789012345678901234567890", "01234567890123456789012345678901",
+                "012345678901234567890123456789012", "\uD3EC\uC778\uD2B8 \u00e9 \uD83D\uDE00", "\uD83D"};
+        for (String value : strings) {
+            String expected = TypeEncoder.encode(
+                    new DynamicStruct(
+                            new Utf8String("OpenNewPayment"),
+                            new Utf8String(value),
+                            new Uint256(new BigInteger("100000000000000000000", 10)),
+                            new Utf8String(value),
+                            new Bytes32(Numeric.hexStringToByteArray(shopId)),
+                            new Address(account),
+                            new Uint256(215115)
+                    )
+            );
+            byte[] actual = ABIEncoder.get()
+                    .begin(7)
+                    .string("OpenNewPayment")
+                    .string(value)
+                    .uint256(new BigInteger("100000000000000000000", 10))
+                    .string(value)
+                    .bytes32(shopId)
+                    .address(account)
+                    .uint256(215115)
+                    .toByteArray();
+            assertEquals(expected, Numeric.toHexStringNoPrefix(actual));
+        }
+    }
+
+    @Test
+    void hash() {
+        BigInteger[] amounts = {BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(Long.MAX_VALUE),
+                BigInteger.TWO.pow(255), BigInteger.TWO.pow(256).subtract(BigInteger.ONE)};
+        for (BigInteger amount : amounts) {
+            byte[] expected = Hash.sha3(Numeric.hexStringToByteArray(TypeEncoder.encode(
+                    new DynamicStruct(
+                            new Address(account),
+                            new Bytes32(Numeric.hexStringToByteArray(phoneHash)),
+                            new Uint256(amount),
+                            new Uint256(215115),
+                            new Uint256(7)
+                    )
+            )));
+            byte[] actual = ABIEncoder.get()
+                    .begin(5)
+                    .address(account)
+                    .bytes32(phoneHash)
+                    .uint256(amount)
+                    .uint256(215115)
+                    .uint256(7)
+                    .hash();
+            assertEquals(Numeric.toHexString(expected), Numeric.toHexString(actual));
+        }
+    }
+
+    @Test
+    void invalid() {
+        try {
+            ABIEncoder.get().begin(1).bytes32("0x1234");
+        } catch (Exception e) {
+            assertEquals("Value must be 32 bytes: 0x1234", e.getMessage());
+        }
+
+        try {
+            ABIEncoder.get().begin(1).uint256(-1);
+        } catch (Exception e) {
+            assertEquals("Value must be non-negative", e.getMessage());
+        }
+
+        try {
+            ABIEncoder.get().begin(2).address(account).hash();
+        } catch (Exception e) {
+            assertEquals("Fewer values than declared in begin()", e.getMessage());
+        }
+    }
+}
@@ -73,4 +73,42 @@ class AmountTest {
             assertEquals("some exception message...", e.getMessage());
         }
     }
+
+    @Test
+    void sameAsGeneralParser() {
+        String[] values = {"0", "1", "1.", "1.5", ".5", "0.000000000000000001", "9.223372036854775807", "9.223372036854775808",
+                "123456789012345678", "1234567890123456789", "99999999999999999999.999999999999999999999", "1,000,000_000.25",
+                "-1.5", "+2.5", "1.2.3", "007.0700"};
+        int[] decimalsList = {18, 6, 2, 1};
+        for (String value : values) {
+            for (int decimals : decimalsList) {
+                String expected;
+                try {
+                    Amount amount = Amount.parseGeneral(value, decimals);
+                    expected = amount.getValue() + "/" + amount.getDecimals();
+                } catch (Exception e) {
+                    expected = e.getClass().getName();
+                }
+                String actual;
+                try {
+                    Amount amount = Amount.make(value, decimals);
+                    actual = amount.getValue() + "/" + amount.getDecimals();
+                } catch (Exception e) {
+                    actual = e.getClass().getName();
+                }
+                assertEquals(expected, actual, value + " with " + decimals);
+            }
+        }
+    }
+
+    @Test
+    void toAmountString() {
+        assertEquals("0.000000000000000001", new Amount(BigInteger.ONE).toAmountString());
+        assertEquals("9.223372036854775807", new Amount(BigInteger.valueOf(Long.MAX_VALUE)).toAmountString());
+        assertEquals("123456789.123456789012345678", new Amount(new BigInteger("123456789123456789012345678")).toAmountString());
+        assertEquals("12.50", new Amount(BigInteger.valueOf(1250), 2).toAmountString());
+        assertEquals("7.0", new Amount(BigInteger.valueOf(7), 0).toAmountString());
+        assertEquals("1.00000000000000000000000000000000000000000000000000000000000000000000000000000000",
+                new Amount(BigInteger.TEN.pow(80), 80).toAmountString());
+    }
 }
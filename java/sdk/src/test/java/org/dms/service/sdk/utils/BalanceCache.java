@@ -0,0 +1,106 @@
+package org.dms.service.sdk.utils;
+
+import org.dms.service.sdk.client.Client;
+import org.dms.service.sdk.data.Balance;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.data.UserBalance;
+import org.dms.service.sdk.data.payment.PaymentTaskItem;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class BalanceCacheTest {
+    private static final String ACCOUNT = "0x64D111eA9763c93a003cef491941A011B8df5a49";
+
+    private static PaymentTaskItem payment(String account) {
+        return new PaymentTaskItem(
+                "0x01", "P001", BigInteger.ONE, "php", "0x02", account,
+                BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO, BigInteger.ZERO,
+                "POS001", 18
+        );
+    }
+
+    @Test
+    void cache() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicInteger requests = new AtomicInteger();
+        Client client = new Client(NetWorkType.testnet, new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                requests.incrementAndGet();
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                requests.incrementAndGet();
+                return memory.requestAsync(method, uri, body);
+            }
+        });
+        BalanceCache cache = new BalanceCache(100, 60 * 1000L);
+        client.setBalanceCache(cache);
+        try {
+            UserBalance first = client.getBalanceAccount(ACCOUNT);
+            assertSame(first, client.getBalanceAccount(ACCOUNT.toLowerCase()));
+            assertSame(first, client.getBalanceAccountAsync(ACCOUNT).get());
+            assertEquals(1, requests.get());
+
+            // The same phone number entered in two ways
+            UserBalance phone = client.getBalancePhone("+82 10-1000-2099");
+            assertSame(phone, client.getBalancePhone("+821010002099"));
+            assertSame(phone, client.getBalancePhoneHash(CommonUtils.getPhoneHash("+82 10-1000-2099")));
+            assertEquals(2, requests.get());
+
+            // A payment of another account drops the balances read by phone number only
+            cache.onNewPaymentEvent("pay_new", 0, "", 1, payment("0x0000000000000000000000000000000000000001"));
+            assertSame(first, client.getBalanceAccount(ACCOUNT));
+            assertNull(cache.getPhone("+82 10-1000-2099"));
+
+            cache.onNewPaymentEvent("pay_cancel", 0, "", 2, payment(ACCOUNT.toLowerCase()));
+            assertNull(cache.getAccount(ACCOUNT));
+            client.getBalanceAccount(ACCOUNT);
+            assertEquals(3, requests.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void invalidatedWhileRequested() {
+        BalanceCache cache = new BalanceCache();
+        long stamp = cache.getStamp();
+        cache.invalidateAccount(ACCOUNT);
+        cache.putAccount(ACCOUNT, new UserBalance((Balance) null, null), stamp);
+        assertNull(cache.getAccount(ACCOUNT));
+    }
+
+    @Test
+    void invalidatedWhilePut() {
+        BalanceCache cache = new BalanceCache();
+        UserBalance balance = new UserBalance((Balance) null, null);
+        try {
+            for (int idx = 0; idx < 2000; idx++) {
+                long stamp = cache.getStamp();
+                Thread thread = new Thread(() -> cache.invalidateAccount(ACCOUNT));
+                thread.start();
+                cache.putAccount(ACCOUNT, balance, stamp);
+                thread.join();
+                // The balance was requested before the invalidation, so it is never kept
+                assertNull(cache.getAccount(ACCOUNT));
+            }
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
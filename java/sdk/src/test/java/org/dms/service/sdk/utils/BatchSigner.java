@@ -0,0 +1,37 @@
+package org.dms.service.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BatchSignerTest {
+    @Test
+    void signMessages() {
+        ECKeyPair keyPair = ECKeyPair.create(new BigInteger("70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", 16));
+        List<byte[]> messages = new ArrayList<>();
+        for (int idx = 0; idx < 100; idx++) {
+            messages.add(CommonUtils.getRegisterAssistanceMessage(
+                    "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                    "0x3FE8D00143bd0eAd2397D48ba0E31E5E1268dBfb",
+                    idx,
+                    215115));
+        }
+
+        List<byte[]> signatures = BatchSigner.getDefault().signMessages(keyPair, messages);
+        assertEquals(messages.size(), signatures.size());
+        for (int idx = 0; idx < messages.size(); idx++) {
+            assertEquals(65, signatures.get(idx).length);
+            assertEquals(CommonUtils.signMessage(keyPair, messages.get(idx)), Numeric.toHexString(signatures.get(idx)));
+        }
+        assertEquals(
+                "0x16c3db108967fef995b7e6a9439338af06886c568653ee849f5c6511ede9faa2351cd6c89f53f2d400810e07ab8fafeb5d5c19c4b917837b94de2a445ea518281c",
+                Numeric.toHexString(signatures.get(45))
+        );
+    }
+}
@@ -0,0 +1,72 @@
+package org.dms.service.sdk.utils;
+
+import org.dms.service.sdk.data.UserBalance;
+import org.dms.service.sdk.data.payment.TaskEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class JSONStreamReaderTest {
+    private static JSONStreamReader reader(String json) {
+        return new JSONStreamReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void field() {
+        try {
+            long nonce = JSONStreamReader.field("nonce", JSONStreamReader::nextLong)
+                    .decode(reader("{\"account\":\"0x01\",\"extra\":{\"a\":[1,2,{\"b\":\"}\"}]},\"nonce\":\"12\"}"));
+            assertEquals(12, nonce);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+
+        try {
+            JSONStreamReader.field("chainId", JSONStreamReader::nextInt).decode(reader("{\"nonce\":12}"));
+        } catch (Exception e) {
+            assertEquals("JSONObject[\"chainId\"] not found.", e.getMessage());
+        }
+    }
+
+    @Test
+    void userBalance() {
+        try {
+            UserBalance balance = UserBalance.fromJSONReader(reader(
+                    "{\"account\":\"0x01\",\"point\":{\"balance\":\"1000000000000000000000\",\"value\":\"1000000000000000000000\"},"
+                            + "\"token\":{\"balance\":\"50\",\"value\":\"100\"}}"));
+            assertEquals(new BigInteger("1000000000000000000000"), balance.point.balance);
+            assertEquals(new BigInteger("100"), balance.token.value);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void taskEvents() {
+        String shop = "{\"taskId\":\"0x02\",\"shopId\":\"0x03\",\"name\":\"Shop \\\"A\\\" \\u00e9\",\"currency\":\"krw\","
+                + "\"status\":1,\"account\":\"0x04\",\"terminalId\":\"\",\"taskStatus\":11}";
+        String payment = "{\"paymentId\":\"0x05\",\"purchaseId\":\"P1\",\"amount\":\"100\",\"currency\":\"krw\",\"shopId\":\"0x03\","
+                + "\"account\":\"0x06\",\"paidPoint\":\"1\",\"paidValue\":\"2\",\"feePoint\":\"3\",\"feeValue\":\"4\","
+                + "\"totalPoint\":\"5\",\"totalValue\":\"6\",\"terminalId\":\"T1\",\"paymentStatus\":11}";
+        String json = "[{\"type\":\"pay_new\",\"code\":0,\"message\":\"Success\",\"sequence\":\"7\",\"data\":" + payment + "},"
+                + "{\"data\":" + shop + ",\"type\":\"shop_update\",\"code\":0,\"message\":\"Success\",\"sequence\":8}]";
+        try {
+            List<TaskEvent> events = JSONStreamReader.list(TaskEvent::fromJSONReader).decode(reader(json));
+            assertEquals(2, events.size());
+            assertEquals(7, events.get(0).sequence);
+            assertEquals(new BigInteger("6"), events.get(0).payment.totalValue);
+            assertNull(events.get(0).shop);
+            assertEquals(8, events.get(1).sequence);
+            assertEquals("Shop \"A\" \u00e9", events.get(1).shop.name);
+            assertEquals(11, events.get(1).shop.taskStatus);
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
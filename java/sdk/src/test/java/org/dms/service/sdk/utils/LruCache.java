@@ -0,0 +1,52 @@
+package org.dms.service.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LruCacheTest {
+    @Test
+    void evictBySize() {
+        LruCache<String, String> cache = new LruCache<>(2, 0);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        assertEquals("1", cache.get("a"));
+        cache.put("c", "3");
+        assertNull(cache.get("b"));
+        assertEquals("1", cache.get("a"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void evictByTimeToLive() {
+        try {
+            LruCache<String, String> cache = new LruCache<>(10, 50);
+            cache.put("a", "1");
+            assertEquals("1", cache.get("a"));
+            Thread.sleep(100);
+            assertNull(cache.get("a"));
+            assertEquals(0, cache.size());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void phoneNumberCache() {
+        try {
+            PhoneNumberCache cache = new PhoneNumberCache(100, 60000);
+            PhoneNumberCache.Entry entry = cache.get("+82 10-9000-5000");
+            assertEquals("0x8f01f960fa3bacb03c4217e254a031bd005b1685002a1826141a90f1692ca2c4", entry.phoneHash);
+            assertEquals(entry.phoneHash, cache.getPhoneHash("+82 10-9000-5000 "));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.dms.service.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+import org.web3j.crypto.Credentials;
+import org.web3j.crypto.ECKeyPair;
+import org.web3j.utils.Numeric;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class MessageSignerTest {
+    @Test
+    void signMessage() {
+        ECKeyPair keyPair = ECKeyPair.create(new BigInteger("70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", 16));
+        MessageSigner signer = new MessageSigner(keyPair);
+        byte[] message = CommonUtils.getRegisterAssistanceMessage(
+                "0x64D111eA9763c93a003cef491941A011B8df5a49",
+                "0x3FE8D00143bd0eAd2397D48ba0E31E5E1268dBfb",
+                45,
+                215115);
+        assertEquals(
+                "0x16c3db108967fef995b7e6a9439338af06886c568653ee849f5c6511ede9faa2351cd6c89f53f2d400810e07ab8fafeb5d5c19c4b917837b94de2a445ea518281c",
+                signer.signMessage(message)
+        );
+    }
+
+    @Test
+    void sameAsWeb3j() {
+        Random random = new Random(215115);
+        for (int idx = 0; idx < 200; idx++) {
+            ECKeyPair keyPair = ECKeyPair.create(new BigInteger(256, random).add(BigInteger.ONE));
+            MessageSigner signer = new MessageSigner(keyPair);
+            byte[] message = new byte[32];
+            random.nextBytes(message);
+            assertEquals(CommonUtils.signMessage(keyPair, message), Numeric.toHexString(signer.sign(message)));
+        }
+    }
+
+    @Test
+    void recoverAddress() {
+        Random random = new Random(215115);
+        for (int idx = 0; idx < 50; idx++) {
+            ECKeyPair keyPair = ECKeyPair.create(new BigInteger(256, random).add(BigInteger.ONE));
+            MessageSigner signer = new MessageSigner(keyPair);
+            byte[] message = new byte[32];
+            random.nextBytes(message);
+            byte[] signature = signer.sign(message);
+            String address = Credentials.create(keyPair).getAddress().toLowerCase();
+            assertEquals(address, MessageSigner.recoverAddress(message, signature));
+
+            // Another message, such as one signed with another nonce, recovers another address
+            message[0] ^= 1;
+            assertNotEquals(address, MessageSigner.recoverAddress(message, signature));
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.dms.service.sdk.utils;
+
+import org.dms.service.sdk.client.ProviderClient;
+import org.dms.service.sdk.data.NetWorkType;
+import org.dms.service.sdk.transport.IHttpTransport;
+import org.dms.service.sdk.transport.InMemoryHttpTransport;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NonceManagerTest {
+    private static final String ACCOUNT = "0x64D111eA9763c93a003cef491941A011B8df5a49";
+
+    @Test
+    void next() {
+        AtomicInteger requests = new AtomicInteger();
+        NonceManager manager = new NonceManager(account -> {
+            requests.incrementAndGet();
+            return CompletableFuture.supplyAsync(() -> 7L);
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> futures = new ArrayList<>();
+            for (int idx = 0; idx < 1000; idx++) futures.add(executor.submit(() -> manager.next(ACCOUNT)));
+            Set<Long> nonces = ConcurrentHashMap.newKeySet();
+            for (Future<Long> future : futures) nonces.add(future.get());
+            assertEquals(1000, nonces.size());
+            for (long nonce = 7; nonce < 1007; nonce++) assertTrue(nonces.contains(nonce));
+            assertEquals(1, requests.get());
+
+            assertEquals(1007, manager.next(ACCOUNT.toLowerCase()));
+            manager.resync(ACCOUNT);
+            assertEquals(7, manager.next(ACCOUNT));
+            assertEquals(2, requests.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void error() {
+        NonceManager manager = new NonceManager(account -> CompletableFuture.failedFuture(new Exception("Internal Error : Not found (404)")));
+        try {
+            manager.next(ACCOUNT);
+        } catch (Exception e) {
+            assertEquals("Internal Error : Not found (404)", e.getMessage());
+        }
+        assertTrue(NonceManager.isNonceError(new Exception("Internal Error : Invalid nonce (1501)")));
+        assertFalse(NonceManager.isNonceError(new Exception("Internal Error : Not found (404)")));
+        // A failed request of the nonce itself is not a rejected nonce
+        assertFalse(NonceManager.isNonceError(new IOException("Server returned HTTP response code: 502 for URL: https://relay.test.acccoin.io/v1/ledger/nonce/" + ACCOUNT)));
+        assertFalse(NonceManager.isNonceError(new Exception("Internal Error : Invalid nonce")));
+    }
+
+    @Test
+    void rejectedNonce() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicInteger nonceRequests = new AtomicInteger();
+        AtomicBoolean rejected = new AtomicBoolean(false);
+        AtomicBoolean lose = new AtomicBoolean(false);
+        ProviderClient client = new ProviderClient(NetWorkType.testnet, "0x70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                // The first send is rejected as if another process had used the nonce
+                if (uri.getPath().equals("/v1/provider/send/account") && rejected.compareAndSet(false, true)) {
+                    String response = "{\"code\":1501,\"error\":{\"message\":\"Invalid nonce\"}}";
+                    return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+                }
+                // The response is lost after the relay used the nonce
+                if (uri.getPath().equals("/v1/provider/send/account") && lose.compareAndSet(true, false)) {
+                    memory.request(method, uri, body);
+                    throw new IOException("Connection reset");
+                }
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (uri.getPath().startsWith("/v1/ledger/nonce/")) nonceRequests.incrementAndGet();
+                return memory.requestAsync(method, uri, body);
+            }
+        });
+        try {
+            for (int idx = 0; idx < 5; idx++) {
+                client.provideToAddress(client.getAddress(), "0xB6f69F0e9e70034ba0578C542476cC13eF739269", BigInteger.TEN);
+            }
+            assertTrue(rejected.get());
+            // Once at the start, once after the rejection
+            assertEquals(2, nonceRequests.get());
+            assertEquals(5, client.getLedgerNonceOf(client.getAddress()));
+
+            client.provideToAddressAsync(client.getAddress(), "0xB6f69F0e9e70034ba0578C542476cC13eF739269", BigInteger.TEN).get();
+            assertEquals(6, client.getLedgerNonceOf(client.getAddress()));
+            assertEquals(2, nonceRequests.get());
+
+            // Another error keeps the local nonce, which the relay expects next
+            lose.set(true);
+            try {
+                client.provideToAddress(client.getAddress(), "0xB6f69F0e9e70034ba0578C542476cC13eF739269", BigInteger.TEN);
+            } catch (Exception e) {
+                assertEquals("Connection reset", e.getMessage());
+            }
+            client.provideToAddress(client.getAddress(), "0xB6f69F0e9e70034ba0578C542476cC13eF739269", BigInteger.TEN);
+            assertEquals(8, client.getLedgerNonceOf(client.getAddress()));
+            assertEquals(2, nonceRequests.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+
+    @Test
+    void invalidPhone() {
+        InMemoryHttpTransport memory = new InMemoryHttpTransport(215115, 10);
+        AtomicInteger nonceRequests = new AtomicInteger();
+        ProviderClient client = new ProviderClient(NetWorkType.testnet, "0x70438bc3ed02b5e4b76d496625cb7c06d6b7bf4362295b16fdfe91a046d4586c", new IHttpTransport() {
+            @Override
+            public InputStream request(@NotNull String method, @NotNull URI uri, byte[] body) throws Exception {
+                return memory.request(method, uri, body);
+            }
+
+            @Override
+            public CompletableFuture<InputStream> requestAsync(@NotNull String method, @NotNull URI uri, byte[] body) {
+                if (uri.getPath().startsWith("/v1/ledger/nonce/")) nonceRequests.incrementAndGet();
+                return memory.requestAsync(method, uri, body);
+            }
+        });
+        try {
+            client.provideToAddress(client.getAddress(), "0xB6f69F0e9e70034ba0578C542476cC13eF739269", BigInteger.TEN);
+            // An invalid phone number does not take a nonce, so the next send is not rejected
+            try {
+                client.provideToPhone(client.getAddress(), "+82 10-1", BigInteger.TEN);
+            } catch (Exception e) {
+                assertEquals("Invalid Phone Number", e.getMessage());
+            }
+            try {
+                client.provideToPhoneAsync(client.getAddress(), "+82 10-1", BigInteger.TEN).get();
+            } catch (Exception e) {
+                assertEquals("Invalid Phone Number", e.getCause().getMessage());
+            }
+            client.provideToAddress(client.getAddress(), "0xB6f69F0e9e70034ba0578C542476cC13eF739269", BigInteger.TEN);
+            assertEquals(2, client.getLedgerNonceOf(client.getAddress()));
+            assertEquals(1, nonceRequests.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
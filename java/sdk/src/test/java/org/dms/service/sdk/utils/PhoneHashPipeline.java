@@ -0,0 +1,39 @@
+package org.dms.service.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PhoneHashPipelineTest {
+    @Test
+    void run() {
+        try {
+            List<String> phones = new ArrayList<>();
+            StringBuilder expected = new StringBuilder();
+            for (int idx = 0; idx < 250; idx++) {
+                String phone = String.format("+82 10-9000-%04d", idx);
+                phones.add(phone);
+                expected.append(phone).append(',')
+                        .append(CommonUtils.getPhoneHash(CommonUtils.getInternationalPhoneNumber(phone))).append('\n');
+                if (idx % 100 == 0) phones.add("01090005000");
+                if (idx % 50 == 0) phones.add("");
+            }
+
+            StringWriter output = new StringWriter();
+            StringWriter invalid = new StringWriter();
+            PhoneHashPipeline.Result result = new PhoneHashPipeline(4, 16).run(phones.stream(), output, invalid);
+
+            assertEquals(253, result.total);
+            assertEquals(250, result.valid);
+            assertEquals(3, result.invalid);
+            assertEquals(expected.toString(), output.toString());
+            assertEquals("01090005000\n01090005000\n01090005000\n", invalid.toString());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package org.dms.service.sdk.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RequestCoalescerTest {
+    @Test
+    void get() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+        AtomicInteger requests = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int idx = 0; idx < 16; idx++) {
+                futures.add(executor.submit(() -> coalescer.get("chainId", () -> {
+                    requests.incrementAndGet();
+                    release.await();
+                    return 215115;
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Integer> future : futures) assertEquals(215115, (int) future.get());
+            assertEquals(1, requests.get());
+            assertEquals(0, coalescer.getInFlight());
+
+            // Nothing is kept after the request
+            assertEquals(1, (int) coalescer.get("chainId", () -> requests.incrementAndGet() - 1));
+            assertEquals(2, requests.get());
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void getAsync() {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        AtomicInteger requests = new AtomicInteger();
+        CompletableFuture<String> response = new CompletableFuture<>();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int idx = 0; idx < 10; idx++) {
+            futures.add(coalescer.getAsync("0x64D111eA9763c93a003cef491941A011B8df5a49", key -> {
+                requests.incrementAndGet();
+                return response;
+            }));
+        }
+        assertEquals(1, coalescer.getInFlight());
+        response.complete("0x0000000000000000000000000000000000000000");
+        for (CompletableFuture<String> future : futures) assertEquals("0x0000000000000000000000000000000000000000", future.join());
+        assertEquals(1, requests.get());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    void error() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+        try {
+            coalescer.get("chainId", () -> {
+                throw new Exception("Internal Error : chain ID not found");
+            });
+        } catch (Exception e) {
+            assertEquals("Internal Error : chain ID not found", e.getMessage());
+        }
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    void fatal() {
+        RequestCoalescer<String, Integer> coalescer = new RequestCoalescer<>();
+        try {
+            coalescer.get("chainId", () -> {
+                throw new OutOfMemoryError("Java heap space");
+            });
+        } catch (Throwable e) {
+            assertEquals("Java heap space", e.getMessage());
+        }
+        // The request is not left in flight, so the next caller sends a new one
+        assertEquals(0, coalescer.getInFlight());
+        try {
+            assertEquals(215115, (int) coalescer.get("chainId", () -> 215115));
+        } catch (Exception e) {
+            assertEquals("some exception message...", e.getMessage());
+        }
+    }
+}